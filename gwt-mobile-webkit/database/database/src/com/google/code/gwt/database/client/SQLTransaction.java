@@ -142,6 +142,28 @@ public class SQLTransaction extends JavaScriptObject {
     executeSql(sqlStatement, toJsniArray(arguments), callback);
   }
 
+  /**
+   * Executes the provided <code>sqlStatement</code> with the values of the
+   * specified JavaScript array as arguments.
+   * 
+   * <p>
+   * Unlike {@link #executeSql(String, Object[], StatementCallback)}, the values
+   * are not converted to strings: numbers are bound as numbers, so they keep
+   * their type in columns without a numeric affinity.
+   * </p>
+   * 
+   * @param sqlStatement the SQL statement to execute, containing
+   *          <code>"?"</code> placeholders for the <code>values</code>
+   * @param values a JavaScript array of strings, numbers and
+   *          <code>null</code> values
+   * @param callback the callback for handling errors and the resultset of the
+   *          SQL statement
+   */
+  public final void executeSqlValues(String sqlStatement,
+      JavaScriptObject values, StatementCallback<?> callback) {
+    executeSql(sqlStatement, values.<JsArrayString> cast(), callback);
+  }
+
   @SuppressWarnings("unchecked")
   private final native void executeSql(String sqlStatement,
       JsArrayString arguments, StatementCallback callback) /*-{
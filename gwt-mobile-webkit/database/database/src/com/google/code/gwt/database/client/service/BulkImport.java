@@ -0,0 +1,168 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * Describes the import of a {@link JsArray} of objects (e.g. parsed from a
+ * JSON response) into a table, by
+ * {@link DataService#bulkImport(BulkImport, JsArray, BulkImportCallback)}.
+ * 
+ * <p>
+ * The rows are inserted by multi-row
+ * <code>INSERT ... VALUES (...), (...)</code> statements of at most
+ * {@link #setRowsPerStatement(int) rowsPerStatement} rows each, which are
+ * executed in transactions of at most
+ * {@link #setRowsPerTransaction(int) rowsPerTransaction} rows each. Between
+ * the transactions the progress is reported, and the browser gets the
+ * opportunity to handle other events. Multi-row <code>VALUES</code> clauses
+ * require SQLite 3.7.11 or newer; specify <code>rowsPerStatement=1</code> for
+ * older versions.
+ * </p>
+ * 
+ * <pre>
+ * BulkImport items = new BulkImport("item");
+ * items.addColumn("id", "itemId");
+ * items.addColumn("name", "title");
+ * service.bulkImport(items, json.getItems(), callback);
+ * </pre>
+ * 
+ * <p>
+ * If no columns are added, each property of the first object is inserted into
+ * the column with the same name. Property values which are objects themselves
+ * are inserted as JSON text.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class BulkImport {
+
+  /**
+   * The default maximum number of rows inserted by a single statement.
+   */
+  public static final int DEFAULT_ROWS_PER_STATEMENT = 500;
+
+  /**
+   * The default maximum number of rows inserted by a single transaction.
+   */
+  public static final int DEFAULT_ROWS_PER_TRANSACTION = 1000;
+
+  private String table;
+  private List<String> columns = new ArrayList<String>();
+  private List<String> properties = new ArrayList<String>();
+  private boolean replace = false;
+  private int rowsPerStatement = DEFAULT_ROWS_PER_STATEMENT;
+  private int rowsPerTransaction = DEFAULT_ROWS_PER_TRANSACTION;
+
+  /**
+   * Creates a new BulkImport into the specified table.
+   */
+  public BulkImport(String table) {
+    this.table = table;
+  }
+
+  /**
+   * Returns the name of the table the rows are imported into.
+   */
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * Maps the specified property of the imported objects to the specified
+   * column.
+   */
+  public void addColumn(String column, String property) {
+    columns.add(column);
+    properties.add(property);
+  }
+
+  /**
+   * Returns the names of the columns added by
+   * {@link #addColumn(String, String)}.
+   */
+  public List<String> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Returns the names of the properties added by
+   * {@link #addColumn(String, String)}.
+   */
+  public List<String> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Returns whether existing rows with the same key are replaced.
+   */
+  public boolean isReplace() {
+    return replace;
+  }
+
+  /**
+   * Sets whether existing rows with the same key are replaced
+   * (<code>INSERT OR REPLACE</code>) instead of failing the import. The
+   * default is <code>false</code>.
+   */
+  public void setReplace(boolean replace) {
+    this.replace = replace;
+  }
+
+  /**
+   * Returns the maximum number of rows inserted by a single statement with the
+   * specified number of columns, which also stays within SQLite's maximum
+   * number of bound parameters and compound rows, see
+   * {@link DataServiceUtils#MAX_VARIABLE_NUMBER} and
+   * {@link DataServiceUtils#MAX_COMPOUND_ROWS}.
+   */
+  public int getRowsPerStatement(int columnCount) {
+    return Math.max(1, Math.min(rowsPerStatement, Math.min(
+        DataServiceUtils.MAX_COMPOUND_ROWS,
+        DataServiceUtils.MAX_VARIABLE_NUMBER / Math.max(1, columnCount))));
+  }
+
+  /**
+   * Sets the maximum number of rows inserted by a single statement.
+   */
+  public void setRowsPerStatement(int rowsPerStatement) {
+    this.rowsPerStatement = rowsPerStatement;
+  }
+
+  /**
+   * Returns the maximum number of rows inserted by a single transaction.
+   */
+  public int getRowsPerTransaction() {
+    return rowsPerTransaction;
+  }
+
+  /**
+   * Sets the maximum number of rows inserted by a single transaction. Smaller
+   * transactions report progress (and yield to the browser) more often, larger
+   * transactions import faster.
+   */
+  public void setRowsPerTransaction(int rowsPerTransaction) {
+    this.rowsPerTransaction = rowsPerTransaction;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * Callback for
+ * {@link DataService#bulkImport(BulkImport, JsArray, BulkImportCallback)}.
+ * 
+ * <p>
+ * You are NOT allowed to use this callback type in your DataService service
+ * methods.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public interface BulkImportCallback extends Callback {
+
+  /**
+   * This callback method is invoked each time a transaction of the import is
+   * committed.
+   * 
+   * @param imported the number of rows imported so far
+   * @param total the total number of rows to import
+   */
+  void onProgress(int imported, int total);
+
+  /**
+   * This callback method is invoked once all rows are imported.
+   * 
+   * @param imported the number of rows imported
+   */
+  void onSuccess(int imported);
+}
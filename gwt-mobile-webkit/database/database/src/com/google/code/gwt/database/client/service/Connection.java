@@ -31,6 +31,41 @@ import com.google.code.gwt.database.client.Database;
  * {@link Database#openDatabase(String, String, String, int)}.
  * </p>
  * 
+ * <h3>Multiple databases</h3>
+ * <p>
+ * All DataServices with the same {@link #name()} share a single Database
+ * connection. The browser executes the transactions of a connection one after
+ * another, so independent data domains (e.g. a message store and a settings
+ * store) can use differently named databases to run their transactions in
+ * parallel. Each database also has its own {@link ResultCache}.
+ * </p>
+ * 
+ * <h3>Migrations</h3>
+ * <p>
+ * Specify the {@link #migrations()} attribute to create and upgrade the
+ * database schema, instead of executing e.g. <code>CREATE TABLE IF NOT
+ * EXISTS</code> statements at each startup:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="<b>2</b>", description="My DB", maxsize=5000,
+ *     migrations={
+ *       &#x40;Migration(version="1", sql={"CREATE TABLE mytable (id INTEGER PRIMARY KEY)"}),
+ *       &#x40;Migration(version="<b>2</b>", sql={"ALTER TABLE mytable ADD COLUMN name TEXT",
+ *           "CREATE INDEX mytable_name ON mytable (name)"})})
+ * </pre>
+ * 
+ * <p>
+ * The last migration must match the {@link #version()} of the connection. When
+ * the DataService first accesses the database, it compares the stored version
+ * with it. If it is current, no schema work is done at all. Otherwise, the
+ * statements of all subsequent migrations are executed in a single
+ * {@link Database#changeVersion(String, String,
+ * com.google.code.gwt.database.client.TransactionCallback) changeVersion}
+ * transaction, before any service method call is executed. If the migration
+ * fails, the pending service method calls fail as well.
+ * </p>
+ * 
  * @author bguijt
  */
 @Documented
@@ -56,4 +91,12 @@ public @interface Connection {
    * The estimated number of bytes reserved for the database
    */
   int maxsize();
+
+  /**
+   * The ordered migrations to the {@link #version()} of the database. This
+   * attribute is optional. DataServices connecting to the same database
+   * {@link #name()} must specify the same migrations; the database is migrated
+   * once, by the first DataService to access it.
+   */
+  Migration[] migrations() default {};
 }
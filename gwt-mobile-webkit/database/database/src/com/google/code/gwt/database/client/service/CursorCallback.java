@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.SQLResultSetRowList;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Database service callback which hands the rows in the resultset to the
+ * caller one by one.
+ * 
+ * <p>
+ * As opposed to the {@link ListCallback}, no {@link java.util.List} is
+ * involved: each row is read straight from the resultset and handed to
+ * {@link #onRow(JavaScriptObject)}. The caller can stop the iteration at any
+ * row, e.g. when enough rows are rendered.
+ * </p>
+ * 
+ * @param <T> specified the type to represent a row in the ResultSet. It must be
+ *          a subclass of {@link JavaScriptObject}. You could use
+ *          {@link GenericRow} as a sensible default. See also
+ *          {@link SQLResultSetRowList}.
+ * 
+ * @author bguijt
+ */
+public interface CursorCallback<T extends JavaScriptObject> extends Callback {
+
+  /**
+   * This callback method is invoked for each row in the resultset, in the
+   * order returned by the database, if the SQL is executed successfully.
+   * 
+   * @param row the current row
+   * @return <code>true</code> to proceed with the next row,
+   *         <code>false</code> to skip the remaining rows
+   */
+  boolean onRow(T row);
+
+  /**
+   * This callback method is invoked after the last row is handed to
+   * {@link #onRow(JavaScriptObject)}, or after the iteration is stopped.
+   * 
+   * <p>
+   * It is also invoked if the resultset has no rows at all.
+   * </p>
+   */
+  void onSuccess();
+}
@@ -21,6 +21,8 @@ import java.util.List;
 
 import com.google.code.gwt.database.client.Database;
 import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
 /**
  * Marks an interface as a <em>DataService</em>.
@@ -47,7 +49,7 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * </p>
  * 
  * <p>
- * Next, specify the actual data services as interface methods. There are four
+ * Next, specify the actual data services as interface methods. There are six
  * kinds of DataService methods, like in the following code:
  * </p>
  * 
@@ -67,6 +69,14 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * // 4. A List of ROWID's anticipated:
  * &#x40;{@link Update}(sql=<i>"INSERT INTO a_table (column_name) VALUES ({_.getTime()})"</i>, foreach=<i>"dates"</i>)
  * void <i>insertValues</i>(<i>List<Date> dates</i>, {@link RowIdListCallback} callback);
+ * 
+ * // 5. (Row) items anticipated one by one:
+ * &#x40;{@link Select}(<i>"SELECT * FROM a_table"</i>)
+ * void <i>getValues</i>({@link CursorCallback}&lt;<i>GenericRow</i>&gt; callback);
+ * 
+ * // 6. A page of (row) items anticipated:
+ * &#x40;{@link Select}(sql=<i>"SELECT * FROM a_table"</i>, pageSize=<i>30</i>, page=<i>"page"</i>)
+ * void <i>getValuesPage</i>(<i>int page</i>, {@link PageCallback}&lt;<i>GenericRow</i>&gt; callback);
  * </pre>
  * 
  * <p>
@@ -83,6 +93,11 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * <li>You can re-use a parameter as much as you want.</li>
  * <li>You can enter Java expressions within the curly braces, as long as they
  * evaluate to a single, primitive-like Object.</li>
+ * <li>The expressions of a method executing a single statement are evaluated
+ * when the method is called. The expressions of a method iterating a
+ * <code>foreach</code> collection, or expanding a collection parameter into
+ * an <code>IN</code>-list, are evaluated when its transaction starts, so don't
+ * modify such collections until the callback is invoked.</li>
  * </ul>
  * 
  * <p>
@@ -97,12 +112,25 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * columns, are just ignored. There are only a few scalar types suitable for
  * this callback: {@link Integer}, {@link String}, {@link Boolean},
  * {@link Double}, {@link Float} and {@link Date}.</li>
+ * <li>The {@link IntCallback 'int'}, {@link LongCallback 'long'} and
+ * {@link DoubleCallback 'double'} callbacks. Like the scalar callback, but
+ * these relay the value as a primitive type, read directly from the
+ * resultSet. An empty resultSet or <code>NULL</code> value yields
+ * <code>0</code>.</li>
  * <li>The {@link ListCallback 'list' callback}. This type relays the complete
  * resultSet as a {@link List} to the caller. The type parameter of the callback
- * is the same as the type parameter on the returned List.</li>
+ * is the same as the type parameter on the returned List; it is either a
+ * JavaScriptObject or a plain Java class whose fields are filled by a generated
+ * row mapper.</li>
  * <li>The {@link RowIdListCallback 'ROWIDs' callback}. This type collects the
  * ROWID's of inserted records and relays them to the caller. This callback only
  * makes sense using the {@link Update} annotation.</li>
+ * <li>The {@link CursorCallback 'cursor' callback}. This type hands the rows
+ * of the resultSet to the caller one by one, without creating a {@link List}.
+ * The caller can stop the iteration at any row.</li>
+ * <li>The {@link PageCallback 'page' callback}. This type relays a single page
+ * of the resultSet as a {@link List} to the caller, and whether a next page is
+ * available. This callback requires the {@link Select#pageSize()} attribute.</li>
  * </ol>
  * 
  * <p>
@@ -122,6 +150,86 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * });
  * </pre>
  * 
+ * <h3>Batches</h3>
+ * <p>
+ * Each service method call is executed in its own database transaction. To
+ * execute several service method calls in a single transaction (which saves
+ * the cost of starting a transaction for each call), wrap them in a batch:
+ * </p>
+ * 
+ * <pre>
+ * service.beginBatch();
+ * service.getValueCount(countCallback);
+ * service.getValuesFrom(when, listCallback);
+ * service.commitBatch(null);
+ * </pre>
+ * 
+ * <p>
+ * Each callback still receives its own result. If any statement in the batch
+ * fails, the transaction is rolled back and the onFailure() method of every
+ * callback in the batch is invoked.
+ * </p>
+ * 
+ * <h3>Caching</h3>
+ * <p>
+ * Specify <code>cached=true</code> on a {@link Select} annotation to relay the
+ * resultset of a previous call with the same parameters from the
+ * {@link #getResultCache() ResultCache}, without accessing the database. The
+ * cached resultsets are invalidated whenever an {@link Update} service method
+ * modifies a table they are selected from.
+ * </p>
+ * 
+ * <p>
+ * Specify <code>prefetch="<i>hint</i>"</code> on a {@link Select} annotation
+ * to select its resultset into the ResultCache ahead of the actual call, by
+ * calling {@link #prefetch(String, Object...)} with the hint (e.g. when a
+ * list item is shown, prefetch its detail).
+ * </p>
+ * 
+ * <h3>Write-behind</h3>
+ * <p>
+ * Specify <code>writeBehind=true</code> on an {@link Update} annotation to
+ * queue its calls in memory instead of starting a transaction for each call.
+ * The queued calls are flushed in a single transaction after a short delay,
+ * once the queue is full, when the page is hidden, before any other
+ * transaction of the DataService, or by calling
+ * {@link #flushWrites(VoidCallback)}. Calls with equal
+ * {@link Update#coalesce() coalesce} keys replace each other in the queue, so
+ * only the last one is executed. The callback of every call is invoked once
+ * the flush transaction completes.
+ * </p>
+ * 
+ * <h3>Bulk import</h3>
+ * <p>
+ * Use {@link #bulkImport(BulkImport, JsArray, BulkImportCallback)} to insert
+ * a large array of objects (e.g. an initial sync from a JSON response) with
+ * multi-row <code>INSERT</code> statements in a few transactions, rather than
+ * calling an {@link Update} service method for each object.
+ * </p>
+ * 
+ * <h3>Full-text search</h3>
+ * <p>
+ * Annotate a service method with {@link FullTextSearch} instead of a SQL
+ * statement to create a full-text index on a table (with a
+ * {@link VoidCallback}), or to search it (with a {@link ListCallback}). The
+ * index is kept in sync with the table by triggers, and the search results
+ * are ranked by the number of matched terms.
+ * </p>
+ * 
+ * <h3>Monitoring</h3>
+ * <p>
+ * Register a {@link DataServiceMonitor} with
+ * {@link #setMonitor(DataServiceMonitor)} to receive the timing of each
+ * transaction and statement. The {@link PercentileMonitor} keeps the p50, p95
+ * and p99 latency of each service method.
+ * </p>
+ * 
+ * <p>
+ * During development, the {@link IndexAdvisor} records the statements
+ * executed by the service methods, and recommends indexes for them based on
+ * their query plans.
+ * </p>
+ * 
  * <p>
  * Due to the asynchronous nature of the Database API, we must employ callbacks
  * instead of regular return values. Hopefully, the <a
@@ -132,10 +240,13 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * @see Connection
  * @see Select
  * @see Update
+ * @see FullTextSearch
  * @see VoidCallback
  * @see ScalarCallback
  * @see ListCallback
  * @see RowIdListCallback
+ * @see CursorCallback
+ * @see PageCallback
  * @see <a
  *      href="http://code.google.com/p/gwt-mobile-webkit/wiki/DataServiceUserGuide">Wiki:
  *      User Guide</a>
@@ -145,7 +256,95 @@ import com.google.code.gwt.database.client.SQLTransaction;
 public interface DataService {
 
   /**
-   * Returns the Database instance associated with this DataService.
+   * Returns the Database instance associated with this DataService. It is
+   * shared by all DataServices with the same {@link Connection#name()}.
    */
   Database getDatabase();
+
+  /**
+   * Returns the ResultCache holding the resultsets of {@link Select#cached()
+   * cached} service methods. The ResultCache is shared by all DataServices
+   * connecting to the same database.
+   */
+  ResultCache getResultCache();
+
+  /**
+   * Starts collecting the subsequent service method calls of this DataService
+   * in a batch, instead of executing each of them in its own transaction.
+   * 
+   * @throws IllegalStateException if a batch is already started
+   */
+  void beginBatch();
+
+  /**
+   * Executes all service method calls collected since {@link #beginBatch()} in
+   * a single transaction. The transaction is read-only if all collected calls
+   * are {@link Select} service methods.
+   * 
+   * @param callback invoked after the callbacks of the collected service
+   *          method calls are invoked. May be <code>null</code>.
+   * @throws IllegalStateException if no batch is started
+   */
+  void commitBatch(VoidCallback callback);
+
+  /**
+   * Sets when the queued {@link Update#writeBehind() write-behind} service
+   * method calls are flushed.
+   * 
+   * @param delayMillis the number of milliseconds after which a queued call is
+   *          flushed at the latest
+   * @param maxQueued the number of queued calls at which the queue is flushed
+   *          right away
+   */
+  void setWriteBehindPolicy(int delayMillis, int maxQueued);
+
+  /**
+   * Executes all queued {@link Update#writeBehind() write-behind} service
+   * method calls in a single transaction right away.
+   * 
+   * @param callback invoked after the callbacks of the queued service method
+   *          calls are invoked. May be <code>null</code>.
+   */
+  void flushWrites(VoidCallback callback);
+
+  /**
+   * Sets the monitor to notify of the timing of each transaction and statement
+   * executed by the service methods of this DataService.
+   * 
+   * @param monitor the monitor, e.g. a {@link PercentileMonitor}. Use
+   *          <code>null</code> to stop monitoring.
+   */
+  void setMonitor(DataServiceMonitor monitor);
+
+  /**
+   * Imports the specified rows into a table, as described by the specified
+   * {@link BulkImport}. The rows are inserted in consecutive transactions; the
+   * callback's {@link BulkImportCallback#onProgress(int, int)} method is
+   * invoked after each of them. If a transaction fails, the rows imported by
+   * the preceding transactions remain.
+   * 
+   * @param bulkImport the table and columns to import into
+   * @param rows the objects to import, e.g. parsed from JSON
+   * @param callback the callback to notify of the progress and result
+   * @throws IllegalStateException if a batch is started
+   */
+  void bulkImport(BulkImport bulkImport,
+      JsArray<? extends JavaScriptObject> rows, BulkImportCallback callback);
+
+  /**
+   * Selects the resultsets of the service methods whose
+   * {@link Select#prefetch() prefetch} attribute equals the specified hint
+   * into the {@link #getResultCache() ResultCache}, so that a subsequent call
+   * of such a service method with the same parameters is relayed from the
+   * cache. The service methods are executed once the current event is
+   * handled, in read-only transactions, without invoking any callback.
+   * 
+   * @param hint the navigation hint, e.g. <code>"itemDetail"</code>
+   * @param params the parameters of the service methods, in order and
+   *          excluding the callback; primitive parameters are passed boxed.
+   *          Service methods with a different number of parameters, or with
+   *          parameter types the values are no instances of, are not
+   *          prefetched.
+   */
+  void prefetch(String hint, Object... params);
 }
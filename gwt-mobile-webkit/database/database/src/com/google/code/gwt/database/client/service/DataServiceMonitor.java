@@ -0,0 +1,98 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Receives the timing events of the transactions and statements executed by
+ * the service methods of a DataService. Register a monitor with
+ * {@link DataService#setMonitor(DataServiceMonitor)}.
+ * 
+ * <p>
+ * All times are in milliseconds, as returned by
+ * {@link com.google.gwt.core.client.Duration#currentTimeMillis()}. Each event
+ * carries the name of the service method (e.g.
+ * <code>"MyDataService.getValues"</code>) which requested the transaction.
+ * The service methods in a batch (or in a write-behind flush) each receive
+ * their own transaction events for the shared transaction. Resultsets relayed
+ * from the {@link ResultCache} only generate an
+ * {@link #onCacheHit(String, String, int, double)} event.
+ * </p>
+ * 
+ * <p>
+ * The monitor methods are invoked synchronously, so they should return
+ * quickly. See {@link PercentileMonitor} for a built-in implementation.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public interface DataServiceMonitor {
+
+  /**
+   * Invoked when the database starts the transaction of a service method.
+   * 
+   * @param method the name of the service method
+   * @param requestTime the time at which the transaction was requested
+   * @param time the current time
+   */
+  void onTransactionStart(String method, double requestTime, double time);
+
+  /**
+   * Invoked when a statement is handed to the database.
+   * 
+   * @param method the name of the service method
+   * @param sql the SQL statement, with a '?' placeholder for each parameter
+   * @param time the current time
+   */
+  void onStatementDispatch(String method, String sql, double time);
+
+  /**
+   * Invoked when the result of a statement is available.
+   * 
+   * @param method the name of the service method
+   * @param sql the SQL statement, with a '?' placeholder for each parameter
+   * @param rowCount the number of rows selected or affected by the statement,
+   *          or <code>-1</code> if the statement failed
+   * @param dispatchTime the time at which the statement was dispatched
+   * @param time the current time
+   */
+  void onStatementResult(String method, String sql, int rowCount,
+      double dispatchTime, double time);
+
+  /**
+   * Invoked when the transaction of a service method is committed or rolled
+   * back, before the DataService callback is invoked.
+   * 
+   * @param method the name of the service method
+   * @param committed <code>true</code> if the transaction is committed
+   * @param requestTime the time at which the transaction was requested
+   * @param time the current time
+   */
+  void onTransactionEnd(String method, boolean committed, double requestTime,
+      double time);
+
+  /**
+   * Invoked when the resultset of a statement is relayed from the
+   * {@link ResultCache}, instead of executing the statement.
+   * 
+   * @param method the name of the service method
+   * @param sql the SQL statement, with a '?' placeholder for each parameter
+   * @param rowCount the number of rows in the cached resultset
+   * @param time the current time
+   */
+  void onCacheHit(String method, String sql, int rowCount, double time);
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a full-text index on a table, or a search method on that index.
+ * Use it instead of the {@link Select} or {@link Update} annotation.
+ * 
+ * <p>
+ * A service method with a {@link VoidCallback} creates the index: an
+ * <code>fts3</code> (or <code>fts4</code>) virtual table named
+ * <code><i>table</i>_fts</code>, the triggers which keep it in sync with the
+ * {@link #table()}, and the index entries of the rows already present. It is
+ * safe to call it each time the application starts:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;FullTextSearch(table="note", <b>columns={"title", "body"}</b>)
+ * void createNoteIndex(VoidCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * A service method with a {@link ListCallback} searches the index. Its first
+ * parameter is the <code>MATCH</code> expression (e.g.
+ * <code>"gwt data*"</code>); the rows of the {@link #table()} are returned
+ * with the best matching rows first:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;FullTextSearch(table="note", limit=20)
+ * void searchNotes(String query, ListCallback&lt;Note&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * The HTML5 Database does not allow custom SQL functions, so the rows are
+ * ranked by the number of matched term occurrences (the number of entries
+ * reported by the <code>offsets()</code> function) rather than by a relevance
+ * function like BM25.
+ * </p>
+ * 
+ * @see <a href="http://www.sqlite.org/fts3.html">SQLite FTS3 and FTS4
+ *      Extensions</a>
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.METHOD)
+public @interface FullTextSearch {
+
+  /**
+   * Represents the name of the table to index.
+   */
+  String table();
+
+  /**
+   * Represents the names of the (text) columns to index. Required for the
+   * method creating the index.
+   */
+  String[] columns() default {};
+
+  /**
+   * Represents the SQLite module of the virtual table, either
+   * <code>"fts3"</code> or <code>"fts4"</code>. This attribute is optional;
+   * the default is <code>"fts3"</code>, which is available in every HTML5
+   * Database implementation.
+   */
+  String module() default "fts3";
+
+  /**
+   * Represents the maximum number of rows returned by a search method. This
+   * attribute is optional; the default (<code>0</code>) returns all matching
+   * rows.
+   */
+  int limit() default 0;
+}
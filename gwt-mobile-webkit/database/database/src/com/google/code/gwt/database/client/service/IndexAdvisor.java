@@ -0,0 +1,361 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.StatementCallback;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * A {@link DataServiceMonitor} which records the shape of each SQL statement
+ * executed by the service methods, with its frequency and latency, and
+ * recommends indexes for the recorded statements. It is meant for use during
+ * development.
+ * 
+ * <p>
+ * Statements which only differ in the length of their parameter lists (e.g.
+ * <code>IN (?, ?)</code>) have the same shape. The {@link #analyze(Database,
+ * VoidCallback)} method runs <code>EXPLAIN QUERY PLAN</code> for each recorded
+ * <code>SELECT</code>, <code>UPDATE</code> and <code>DELETE</code> shape
+ * against the live database. For each full table scan it recommends an index
+ * on the columns compared to a parameter in the <code>WHERE</code> clause:
+ * the columns compared for equality first, followed by a single range column
+ * or else the <code>ORDER BY</code> columns.
+ * </p>
+ * 
+ * <pre>
+ * IndexAdvisor advisor = new IndexAdvisor();
+ * service.setMonitor(advisor);
+ * ...
+ * advisor.analyze(service.getDatabase(), new VoidCallback() {
+ *   public void onSuccess() {
+ *     GWT.log(advisor.getReport(), null);
+ *   }
+ *   ...
+ * });
+ * </pre>
+ * 
+ * <p>
+ * The recommendations are derived from the statement text and the query plan
+ * only; they are a starting point, not a substitute for measuring.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class IndexAdvisor implements DataServiceMonitor {
+
+  private static class Shape {
+    private String sql;
+    private String method;
+    private int count = 0;
+    private double totalTime = 0;
+    private double maxTime = 0;
+    private List<String> plan = null;
+    private List<String> recommendations = new ArrayList<String>();
+  }
+
+  private Map<String, Shape> shapes = new LinkedHashMap<String, Shape>();
+
+  public void onTransactionStart(String method, double requestTime,
+      double time) {
+  }
+
+  public void onStatementDispatch(String method, String sql, double time) {
+  }
+
+  public void onStatementResult(String method, String sql, int rowCount,
+      double dispatchTime, double time) {
+    String key = getShape(sql);
+    Shape shape = shapes.get(key);
+    if (shape == null) {
+      shape = new Shape();
+      shape.sql = sql;
+      shape.method = method;
+      shapes.put(key, shape);
+    }
+    double latency = time - dispatchTime;
+    shape.count++;
+    shape.totalTime += latency;
+    shape.maxTime = Math.max(shape.maxTime, latency);
+  }
+
+  public void onTransactionEnd(String method, boolean committed,
+      double requestTime, double time) {
+  }
+
+  public void onCacheHit(String method, String sql, int rowCount, double time) {
+  }
+
+  /**
+   * Runs <code>EXPLAIN QUERY PLAN</code> for each recorded statement shape
+   * which is not analyzed yet, in a single transaction on the specified
+   * database.
+   * 
+   * @param database the database the statements were executed on, e.g.
+   *          {@link DataService#getDatabase()}
+   * @param callback invoked when the analysis is complete
+   */
+  public void analyze(Database database, final VoidCallback callback) {
+    final List<Shape> pending = new ArrayList<Shape>();
+    for (Shape shape : shapes.values()) {
+      if (shape.plan == null && isExplainable(shape.sql)) {
+        pending.add(shape);
+      }
+    }
+    if (pending.isEmpty()) {
+      callback.onSuccess();
+      return;
+    }
+    database.transaction(new TransactionCallback() {
+      public void onTransactionStart(SQLTransaction tx) {
+        for (final Shape shape : pending) {
+          tx.executeSql("EXPLAIN QUERY PLAN " + shape.sql,
+              new Object[getParameterCount(shape.sql)],
+              new StatementCallback<GenericRow>() {
+                public void onSuccess(SQLTransaction transaction,
+                    SQLResultSet<GenericRow> resultSet) {
+                  JsArrayString details = (JsArrayString) JsArrayString
+                      .createArray();
+                  shape.plan = new ArrayList<String>();
+                  for (GenericRow row : resultSet.getRows()) {
+                    details.push(row.getString("detail"));
+                    shape.plan.add(row.getString("detail"));
+                  }
+                  JsArrayString recommendations = getRecommendations(
+                      shape.sql, details);
+                  for (int i = 0; i < recommendations.length(); i++) {
+                    shape.recommendations.add(recommendations.get(i));
+                  }
+                }
+                public boolean onFailure(SQLTransaction transaction,
+                    SQLError error) {
+                  shape.plan = new ArrayList<String>();
+                  shape.plan.add("(" + error.getMessage() + ")");
+                  return false;
+                }
+              });
+        }
+      }
+      public void onTransactionFailure(SQLError error) {
+        callback.onFailure(new DataServiceException(error));
+      }
+      public void onTransactionSuccess() {
+        callback.onSuccess();
+      }
+    });
+  }
+
+  /**
+   * Returns the recommended <code>CREATE INDEX</code> statements of the
+   * {@link #analyze(Database, VoidCallback) analyzed} statement shapes, the
+   * one of the shape with the highest total latency first.
+   */
+  public List<String> getRecommendations() {
+    Set<String> recommendations = new LinkedHashSet<String>();
+    for (Shape shape : getShapesByTotalTime()) {
+      recommendations.addAll(shape.recommendations);
+    }
+    return new ArrayList<String>(recommendations);
+  }
+
+  /**
+   * Returns a report of each recorded statement shape, the one with the
+   * highest total latency first: its frequency, average and maximum latency,
+   * query plan and recommended indexes.
+   */
+  public String getReport() {
+    StringBuilder report = new StringBuilder();
+    for (Shape shape : getShapesByTotalTime()) {
+      report.append(shape.count).append("x avg ").append(
+          Math.round(shape.totalTime / shape.count)).append("ms max ").append(
+          Math.round(shape.maxTime)).append("ms ").append(shape.method).append(
+          ": ").append(shape.sql).append("\n");
+      if (shape.plan != null) {
+        for (String detail : shape.plan) {
+          report.append("  plan: ").append(detail).append("\n");
+        }
+      }
+      for (String recommendation : shape.recommendations) {
+        report.append("  recommended: ").append(recommendation).append("\n");
+      }
+    }
+    return report.toString();
+  }
+
+  /**
+   * Removes all recorded statement shapes.
+   */
+  public void reset() {
+    shapes.clear();
+  }
+
+  @Override
+  public String toString() {
+    return getReport();
+  }
+
+  private List<Shape> getShapesByTotalTime() {
+    List<Shape> sorted = new ArrayList<Shape>(shapes.values());
+    Collections.sort(sorted, new Comparator<Shape>() {
+      public int compare(Shape a, Shape b) {
+        return Double.compare(b.totalTime, a.totalTime);
+      }
+    });
+    return sorted;
+  }
+
+  /**
+   * Returns the shape of the specified statement: every list of '?'
+   * placeholders, and every repeated parenthesized row, is collapsed to a
+   * single one.
+   */
+  private static native String getShape(String sql) /*-{
+    return sql.replace(/\?(?:\s*,\s*\?)+/g, '?').replace(
+        /(\([^()]*\))(?:\s*,\s*\1)+/g, '$1');
+  }-*/;
+
+  private static native boolean isExplainable(String sql) /*-{
+    return /^\s*(?:SELECT|UPDATE|DELETE|WITH)\b/i.test(sql);
+  }-*/;
+
+  /**
+   * Returns the number of '?' placeholders outside of string literals.
+   */
+  private static native int getParameterCount(String sql) /*-{
+    var m = sql.replace(/'(?:[^']|'')*'/g, '').match(/\?/g);
+    return m == null ? 0 : m.length;
+  }-*/;
+
+  /**
+   * Returns the recommended <code>CREATE INDEX</code> statements for the
+   * tables which are fully scanned according to the specified query plan
+   * details.
+   */
+  private static native JsArrayString getRecommendations(String sql,
+      JsArrayString details) /*-{
+    var keyword = /^(?:WHERE|JOIN|INNER|LEFT|CROSS|NATURAL|OUTER|ON|USING|GROUP|ORDER|LIMIT|SET|INDEXED|NOT|UNION|EXCEPT|INTERSECT|HAVING)$/i;
+    sql = sql.replace(/'(?:[^']|'')*'/g, "''");
+    var clause = function(start, end) {
+      var m = start.exec(sql);
+      if (m == null) {
+        return '';
+      }
+      var rest = sql.substring(m.index + m[0].length);
+      var e = end.exec(rest);
+      return e == null ? rest : rest.substring(0, e.index);
+    };
+    var refs = [], m;
+    var from = /\b(?:FROM|JOIN|UPDATE(?:\s+OR\s+\w+)?)\s+([\w$]+)(?:\s+(?:AS\s+)?([\w$]+))?/gi;
+    while ((m = from.exec(sql)) != null) {
+      refs.push({
+        table: m[1],
+        alias: m[2] && !keyword.test(m[2]) ? m[2] : null
+      });
+    }
+    var scans = [], sorted = false;
+    for (var i = 0; i < details.length; i++) {
+      if (/^USE TEMP B-TREE FOR ORDER BY/i.test(details[i])) {
+        sorted = true;
+      }
+      m = /^(?:SCAN(?: TABLE)?|TABLE) ([\w$]+)(?: AS ([\w$]+))?(.*)$/i.exec(details[i]);
+      if (m == null || /^(?:SUBQUERY|CONSTANT)$/i.test(m[1])
+          || /VIRTUAL TABLE|WITH INDEX|PRIMARY KEY/i.test(m[3])) {
+        continue;
+      }
+      var name = (m[2] || m[1]).toLowerCase();
+      for (var r = 0; r < refs.length; r++) {
+        if (refs[r].table.toLowerCase() == name
+            || (refs[r].alias && refs[r].alias.toLowerCase() == name)) {
+          scans.push(refs[r]);
+          break;
+        }
+      }
+    }
+    var where = clause(/\bWHERE\b/i,
+        /\b(?:GROUP\s+BY|ORDER\s+BY|LIMIT|HAVING|UNION|EXCEPT|INTERSECT)\b/i);
+    var orderBy = clause(/\bORDER\s+BY\b/i,
+        /\b(?:LIMIT|UNION|EXCEPT|INTERSECT)\b/i);
+    var single = refs.length == 1;
+    var result = [];
+    for (var s = 0; s < scans.length; s++) {
+      var scan = scans[s];
+      var refersTo = function(qualifier) {
+        if (!qualifier) {
+          return single;
+        }
+        var q = qualifier.toLowerCase();
+        return q == scan.table.toLowerCase()
+            || (scan.alias != null && q == scan.alias.toLowerCase());
+      };
+      var cols = [], range = null, seen = {};
+      if (!/\bOR\b/i.test(where)) {
+        var cond = /(?:([\w$]+)\s*\.\s*)?([\w$]+)\s*(==?|<>|!=|<=?|>=?|\bIS\s+NOT\b|\bIS\b|\bNOT\s+IN\b|\bIN\b|\bBETWEEN\b)/gi;
+        while ((m = cond.exec(where)) != null) {
+          var col = m[2].toLowerCase();
+          if (!refersTo(m[1]) || /^\d|^(?:rowid|oid|_rowid_|and|not)$/.test(col)
+              || seen[col]) {
+            continue;
+          }
+          var op = m[3].toUpperCase();
+          if (op == '=' || op == '==' || op == 'IS' || op == 'IN') {
+            seen[col] = true;
+            cols.push(col);
+          } else if (/^(?:<|>|<=|>=|BETWEEN)$/.test(op) && range == null) {
+            range = col;
+          }
+        }
+      }
+      if (range != null && !seen[range]) {
+        cols.push(range);
+      } else if (single && orderBy != '' && (sorted || cols.length > 0)) {
+        var terms = orderBy.split(','), order = [];
+        for (var t = 0; t < terms.length; t++) {
+          m = /^\s*(?:([\w$]+)\s*\.\s*)?([\w$]+)(?:\s+(?:ASC|DESC))?\s*$/i.exec(terms[t]);
+          if (m == null || !refersTo(m[1])) {
+            order = [];
+            break;
+          }
+          if (!seen[m[2].toLowerCase()]) {
+            order.push(m[2].toLowerCase());
+          }
+        }
+        cols = cols.concat(order);
+      }
+      if (cols.length > 0) {
+        result.push('CREATE INDEX IF NOT EXISTS ' + scan.table + '_'
+            + cols.join('_') + ' ON ' + scan.table + ' ('
+            + cols.join(', ') + ')');
+      }
+    }
+    return result;
+  }-*/;
+}
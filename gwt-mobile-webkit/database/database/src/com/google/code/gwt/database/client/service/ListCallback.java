@@ -26,14 +26,41 @@ import com.google.gwt.core.client.JavaScriptObject;
  * Database service callback which expects a collection of items in the
  * resultset.
  * 
- * @param <T> specified the type to represent a row in the ResultSet. It must be
- *          a subclass of {@link JavaScriptObject}. You could use
- *          {@link GenericRow} as a sensible default. See also
- *          {@link SQLResultSetRowList}.
+ * <p>
+ * The rows are either presented as {@link JavaScriptObject} overlay types (see
+ * {@link SQLResultSetRowList}), or as instances of a plain Java class. In the
+ * latter case a row mapper is generated which copies each column into the
+ * (non-static, non-final, non-transient) field with the same name, e.g.:
+ * </p>
+ * 
+ * <pre>
+ * public class Person {
+ *   private int id;
+ *   private String name;
+ *   private Date born;
+ * }
+ * 
+ * &#x40;Select("SELECT id, name, born FROM person")
+ * void getPersons(ListCallback&lt;Person&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * The class must have a no-argument constructor (of any visibility). Columns
+ * without a corresponding field are ignored, and fields without a
+ * corresponding column retain their default value. Supported field types are
+ * the primitive types (except <code>char</code>), their wrapper types,
+ * {@link String} and {@link java.util.Date} (from milliseconds since the
+ * epoch).
+ * </p>
+ * 
+ * @param <T> specified the type to represent a row in the ResultSet. It is
+ *          either a subclass of {@link JavaScriptObject} - you could use
+ *          {@link GenericRow} as a sensible default - or a plain Java class as
+ *          described above.
  * 
  * @author bguijt
  */
-public interface ListCallback<T extends JavaScriptObject> extends
+public interface ListCallback<T> extends
     Callback {
 
   /**
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Database service callback which expects a single numeric value in the
+ * resultset, like from a <code>COUNT(*)</code> or <code>SUM(...)</code> query.
+ * 
+ * <p>
+ * Unlike the {@link ScalarCallback}&lt;Long&gt;, the value is read directly from
+ * the first column of the first record as a primitive <code>long</code>,
+ * without creating a row object or boxing the value.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public interface LongCallback extends Callback {
+
+  /**
+   * This callback method is invoked if the SQL is executed successfully.
+   * 
+   * <p>
+   * The SQL is expected to return one record with one value. If the resultset
+   * is empty, or the value is <code>NULL</code>, the result is <code>0</code>.
+   * </p>
+   * 
+   * @param result the result of the SQL query.
+   */
+  void onSuccess(long result);
+}
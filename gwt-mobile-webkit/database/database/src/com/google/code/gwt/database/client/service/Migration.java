@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies the SQL statements which migrate the database schema to a
+ * specific version. Use this annotation within the
+ * {@link Connection#migrations()} attribute.
+ * 
+ * @see Connection
+ * @author bguijt
+ */
+@Documented
+@Target({})
+public @interface Migration {
+
+  /**
+   * The version of the database after the statements are executed.
+   */
+  String version();
+
+  /**
+   * The SQL statements which migrate the database from the version of the
+   * previous migration (or from a new, empty database) to {@link #version()}.
+   */
+  String[] sql();
+}
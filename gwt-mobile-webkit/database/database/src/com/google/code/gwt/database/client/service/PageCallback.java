@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.SQLResultSetRowList;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Database service callback which expects a single page of items in the
+ * resultset.
+ * 
+ * <p>
+ * This callback must be used with the {@link Select#pageSize()} attribute,
+ * which limits the number of rows selected by the SQL statement.
+ * </p>
+ * 
+ * @param <T> specified the type to represent a row in the ResultSet. It must be
+ *          a subclass of {@link JavaScriptObject}. You could use
+ *          {@link GenericRow} as a sensible default. See also
+ *          {@link SQLResultSetRowList}.
+ * 
+ * @author bguijt
+ */
+public interface PageCallback<T extends JavaScriptObject> extends Callback {
+
+  /**
+   * This callback method is invoked if the SQL is executed successfully.
+   * 
+   * <p>The page is provided as a regular List collection.</p>
+   * 
+   * @param result the rows of the page provided as a List. Is never null, but
+   *          might have zero items. It never holds more items than the
+   *          specified {@link Select#pageSize()}.
+   * @param hasNextPage <code>true</code> if at least one more row is available
+   *          after the last row in this page
+   */
+  void onSuccess(List<T> result, boolean hasNextPage);
+}
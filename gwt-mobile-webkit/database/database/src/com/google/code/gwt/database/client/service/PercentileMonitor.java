@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link DataServiceMonitor} which keeps the latency percentiles of each
+ * service method.
+ * 
+ * <p>
+ * The latency of a service method call is the time between requesting its
+ * transaction and the end of that transaction, which includes the time spent
+ * waiting for other transactions on the same database. The percentiles are
+ * computed over the latest {@link #getMaxSamples()} calls of each service
+ * method. Calls served from the {@link ResultCache} are counted separately,
+ * see {@link #getCacheHitCount(String)}.
+ * </p>
+ * 
+ * <pre>
+ * PercentileMonitor monitor = new PercentileMonitor();
+ * service.setMonitor(monitor);
+ * ...
+ * double p95 = monitor.getPercentile("MyDataService.getValues", 95);
+ * </pre>
+ * 
+ * @author bguijt
+ */
+public class PercentileMonitor implements DataServiceMonitor {
+
+  /**
+   * The default number of latency samples to keep per service method.
+   */
+  public static final int DEFAULT_MAX_SAMPLES = 256;
+
+  private static class Samples {
+    private double[] latencies;
+    private int next = 0;
+    private int size = 0;
+    private int count = 0;
+    private int failures = 0;
+    private int cacheHits = 0;
+
+    private Samples(int maxSamples) {
+      latencies = new double[maxSamples];
+    }
+  }
+
+  private Map<String, Samples> samples = new LinkedHashMap<String, Samples>();
+  private int maxSamples;
+
+  /**
+   * Creates a new PercentileMonitor which keeps
+   * {@link #DEFAULT_MAX_SAMPLES} samples per service method.
+   */
+  public PercentileMonitor() {
+    this(DEFAULT_MAX_SAMPLES);
+  }
+
+  /**
+   * Creates a new PercentileMonitor which keeps <code>maxSamples</code>
+   * samples per service method.
+   */
+  public PercentileMonitor(int maxSamples) {
+    this.maxSamples = maxSamples;
+  }
+
+  /**
+   * Returns the number of latency samples kept per service method.
+   */
+  public int getMaxSamples() {
+    return maxSamples;
+  }
+
+  /**
+   * Returns the names of the service methods monitored so far.
+   */
+  public Set<String> getServiceMethods() {
+    return samples.keySet();
+  }
+
+  /**
+   * Returns the number of monitored calls of the specified service method.
+   */
+  public int getCount(String method) {
+    Samples s = samples.get(method);
+    return s == null ? 0 : s.count;
+  }
+
+  /**
+   * Returns the number of monitored calls of the specified service method
+   * whose transaction failed.
+   */
+  public int getFailureCount(String method) {
+    Samples s = samples.get(method);
+    return s == null ? 0 : s.failures;
+  }
+
+  /**
+   * Returns the number of calls of the specified service method whose
+   * resultset was relayed from the {@link ResultCache}.
+   */
+  public int getCacheHitCount(String method) {
+    Samples s = samples.get(method);
+    return s == null ? 0 : s.cacheHits;
+  }
+
+  /**
+   * Returns the specified percentile of the latency of the specified service
+   * method, in milliseconds.
+   * 
+   * @param percentile a number between 0 and 100, e.g. <code>95</code>
+   * @return the latency, or {@link Double#NaN} if the service method was not
+   *         monitored
+   */
+  public double getPercentile(String method, double percentile) {
+    Samples s = samples.get(method);
+    if (s == null || s.size == 0) {
+      return Double.NaN;
+    }
+    double[] sorted = new double[s.size];
+    System.arraycopy(s.latencies, 0, sorted, 0, s.size);
+    Arrays.sort(sorted);
+    // Nearest-rank method:
+    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+  }
+
+  /**
+   * Discards all samples.
+   */
+  public void reset() {
+    samples.clear();
+  }
+
+  public void onTransactionStart(String method, double requestTime,
+      double time) {
+  }
+
+  public void onStatementDispatch(String method, String sql, double time) {
+  }
+
+  public void onStatementResult(String method, String sql, int rowCount,
+      double dispatchTime, double time) {
+  }
+
+  public void onTransactionEnd(String method, boolean committed,
+      double requestTime, double time) {
+    Samples s = getSamples(method);
+    s.count++;
+    if (!committed) {
+      s.failures++;
+    }
+    if (maxSamples > 0) {
+      s.latencies[s.next] = time - requestTime;
+      s.next = (s.next + 1) % maxSamples;
+      s.size = Math.min(s.size + 1, maxSamples);
+    }
+  }
+
+  public void onCacheHit(String method, String sql, int rowCount, double time) {
+    getSamples(method).cacheHits++;
+  }
+
+  /**
+   * Returns the call count and the p50, p95 and p99 latencies of each service
+   * method, one line per service method.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (String method : samples.keySet()) {
+      sb.append(method).append(": n=").append(getCount(method));
+      sb.append(", failed=").append(getFailureCount(method));
+      sb.append(", cached=").append(getCacheHitCount(method));
+      sb.append(", p50=").append(getPercentile(method, 50));
+      sb.append(", p95=").append(getPercentile(method, 95));
+      sb.append(", p99=").append(getPercentile(method, 99));
+      sb.append(" ms\n");
+    }
+    return sb.toString();
+  }
+
+  private Samples getSamples(String method) {
+    Samples s = samples.get(method);
+    if (s == null) {
+      s = new Samples(maxSamples);
+      samples.put(method, s);
+    }
+    return s;
+  }
+}
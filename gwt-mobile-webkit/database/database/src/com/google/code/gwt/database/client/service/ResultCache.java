@@ -0,0 +1,245 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+
+/**
+ * Caches the resultsets of {@link Select#cached() cached} service methods,
+ * keyed by their SQL statement and parameters.
+ * 
+ * <p>
+ * The cache holds at most {@link #getMaxRows()} rows. When that budget is
+ * exceeded, the least recently used resultsets are evicted. Cached resultsets
+ * are invalidated when an {@link Update} statement modifies one of the tables
+ * they are selected from. The table names are determined from the SQL
+ * statements at compile time; an {@link Update} statement which modifies an
+ * unknown table (e.g. <code>CREATE INDEX</code>) invalidates all cached
+ * resultsets. Tables modified by triggers are not detected.
+ * </p>
+ * 
+ * <p>
+ * The cache stores a copy of each resultset, and relays a copy of it to each
+ * caller, so callers may modify the (JavaScript) row objects they receive
+ * without affecting the cache or each other.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class ResultCache {
+
+  /**
+   * The default maximum number of rows to keep in the cache.
+   */
+  public static final int DEFAULT_MAX_ROWS = 1000;
+
+  private static class Entry {
+    private SQLResultSet<?> resultSet;
+    private String[] tables;
+    private int rows;
+  }
+
+  private Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16,
+      0.75f, true);
+  private int maxRows;
+  private int rows = 0;
+  private int version = 0;
+
+  /**
+   * Creates a new ResultCache which holds at most <code>maxRows</code> rows.
+   */
+  public ResultCache(int maxRows) {
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * Returns the maximum number of rows to keep in the cache.
+   */
+  public int getMaxRows() {
+    return maxRows;
+  }
+
+  /**
+   * Sets the maximum number of rows to keep in the cache. Set to
+   * <code>0</code> to disable caching.
+   */
+  public void setMaxRows(int maxRows) {
+    this.maxRows = maxRows;
+    evict();
+  }
+
+  /**
+   * Returns the number of cached resultsets.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Removes all resultsets from the cache.
+   */
+  public void clear() {
+    entries.clear();
+    rows = 0;
+    version++;
+  }
+
+  /**
+   * Removes all resultsets selected from any of the specified tables.
+   * 
+   * @param tables the (lowercase) names of the modified tables, or
+   *          <code>null</code> to remove all resultsets
+   */
+  public void invalidate(String[] tables) {
+    if (tables == null) {
+      clear();
+      return;
+    }
+    version++;
+    for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+      Entry entry = it.next();
+      if (intersects(entry.tables, tables)) {
+        rows -= entry.rows;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the current version of the cache, which is incremented at each
+   * invalidation. Pass it to {@link #put(String, String[], int, SQLResultSet)}
+   * to prevent caching a resultset which was selected before an invalidation.
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns a copy of the resultset cached with the specified key, or
+   * <code>null</code> if not available.
+   */
+  public SQLResultSet<?> get(String key) {
+    Entry entry = entries.get(key);
+    return entry == null ? null : copy(entry.resultSet);
+  }
+
+  /**
+   * Caches the specified resultset, unless the cache is invalidated since the
+   * specified version was obtained.
+   * 
+   * @param key the key, see {@link #getKey(String, Object[])}
+   * @param tables the (lowercase) names of the tables the resultset is selected
+   *          from
+   * @param version the {@link #getVersion() version} of the cache obtained
+   *          before the statement was executed
+   * @param resultSet the resultset to cache (a copy of it is stored)
+   */
+  public void put(String key, String[] tables, int version,
+      SQLResultSet<?> resultSet) {
+    if (version != this.version) {
+      return;
+    }
+    Entry entry = new Entry();
+    entry.tables = tables;
+    entry.rows = Math.max(1, resultSet.getRows().getLength());
+    if (entry.rows > maxRows) {
+      return;
+    }
+    entry.resultSet = copy(resultSet);
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      rows -= previous.rows;
+    }
+    rows += entry.rows;
+    evict();
+  }
+
+  /**
+   * Returns the cache key for the specified SQL statement and parameters.
+   */
+  public static String getKey(String sql, Object[] params) {
+    StringBuilder key = new StringBuilder(sql);
+    if (params != null) {
+      for (Object param : params) {
+        key.append('\u0000');
+        if (param instanceof String) {
+          key.append('\'').append(param).append('\'');
+        } else {
+          key.append(param);
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Removes the least recently used resultsets until the cache fits in
+   * {@link #getMaxRows()}.
+   */
+  private void evict() {
+    for (Iterator<Entry> it = entries.values().iterator(); rows > maxRows
+        && it.hasNext();) {
+      rows -= it.next().rows;
+      it.remove();
+    }
+  }
+
+  /**
+   * Returns a copy of the specified resultset and its rows. The
+   * <code>insertId</code> is only copied if the resultset has one.
+   */
+  private static native SQLResultSet<?> copy(SQLResultSet<?> resultSet) /*-{
+    var rows = [];
+    for (var i = 0; i < resultSet.rows.length; i++) {
+      var row = resultSet.rows.item(i);
+      var copy = {};
+      for (var name in row) {
+        copy[name] = row[name];
+      }
+      rows.push(copy);
+    }
+    var result = {
+      rowsAffected: resultSet.rowsAffected,
+      rows: {
+        length: rows.length,
+        item: function(index) {
+          return rows[index];
+        }
+      }
+    };
+    try {
+      result.insertId = resultSet.insertId;
+    } catch (e) {
+      // INVALID_ACCESS_ERR: the statement did not insert a row.
+    }
+    return result;
+  }-*/;
+
+  private static boolean intersects(String[] a, String[] b) {
+    for (String x : a) {
+      for (String y : b) {
+        if (x.equals(y)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -22,7 +22,10 @@ import java.lang.annotation.Target;
 
 /**
  * Provides the SQL SELECT statement to be executed when the annotated method is
- * called. This is the only annotation you can use in a read-only transaction.
+ * called. The statement is executed in a read-only transaction, which may run
+ * concurrently with other read-only transactions. A statement which writes to
+ * the database is executed in a read/write transaction instead, and produces
+ * a warning at compile time.
  * 
  * <p>
  * Provide any statement parameters between curly braces, e.g.:
@@ -33,6 +36,70 @@ import java.lang.annotation.Target;
  * void getData(Date <b>upToWhen</b>, ListCallback<GenericRow> callback);
  * </pre>
  * 
+ * <h3>Paging</h3>
+ * <p>
+ * Specify the {@link #pageSize()} attribute and a {@link PageCallback} to
+ * select a single page of rows. The <code>LIMIT</code> (and
+ * <code>OFFSET</code>) clause is appended to the statement, so do not specify
+ * it yourself. Name the (zero-based) page number parameter in the
+ * {@link #page()} attribute to page by offset:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Select(sql="SELECT * FROM mytable ORDER BY when", <b>pageSize=30, page="page"</b>)
+ * void getData(int <b>page</b>, PageCallback&lt;GenericRow&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * Or omit the {@link #page()} attribute to page by key, which performs better
+ * on large tables:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Select(sql="SELECT * FROM mytable WHERE id &gt; <b>{lastId}</b> ORDER BY id",
+ *     <b>pageSize=30</b>)
+ * void getData(int <b>lastId</b>, PageCallback&lt;GenericRow&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * One more row than <code>pageSize</code> is selected to tell the
+ * {@link PageCallback} whether a next page is available; that row is not
+ * relayed to the callback.
+ * </p>
+ * 
+ * <h3>Caching</h3>
+ * <p>
+ * Specify the {@link #cached()} attribute to keep the resultset in the
+ * {@link ResultCache}. Subsequent calls with the same parameters relay the
+ * cached resultset without accessing the database, until an {@link Update}
+ * statement modifies one of the tables after the <code>FROM</code> or
+ * <code>JOIN</code> keywords of the statement:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Select(sql="SELECT * FROM mytable WHERE id = {id}", <b>cached=true</b>)
+ * void getData(int id, ListCallback&lt;GenericRow&gt; callback);
+ * </pre>
+ * 
+ * <h3>Prefetching</h3>
+ * <p>
+ * Specify the {@link #prefetch()} attribute to name a navigation hint by which
+ * the resultset can be selected ahead of the actual call, e.g. the detail of
+ * a list item while the list is shown. The prefetched resultset is kept in the
+ * {@link ResultCache}, so the attribute implies {@link #cached()}:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Select(sql="SELECT * FROM item WHERE id = {id}", <b>prefetch="itemDetail"</b>)
+ * void getItem(int id, ListCallback&lt;Item&gt; callback);
+ * ...
+ * service.prefetch("itemDetail", itemId);
+ * </pre>
+ * 
+ * <p>
+ * See {@link DataService#prefetch(String, Object...)}.
+ * </p>
+ * 
  * <h3>SQL dialect</h3>
  * 
  * <p>
@@ -63,4 +130,30 @@ public @interface Select {
    * @return the SQL SELECT statement to execute
    */
   String sql() default "";
+
+  /**
+   * Represents the maximum number of rows to select. This attribute is
+   * optional, but mandatory for service methods with a {@link PageCallback}.
+   */
+  int pageSize() default 0;
+
+  /**
+   * Represents the name of the (zero-based) page number parameter of the
+   * service method. This attribute is optional; it only applies if the
+   * {@link #pageSize()} attribute is specified.
+   */
+  String page() default "";
+
+  /**
+   * Specifies whether the resultset is kept in the {@link ResultCache}. This
+   * attribute is optional; the default is <code>false</code>.
+   */
+  boolean cached() default false;
+
+  /**
+   * Represents the navigation hint by which the service method is prefetched,
+   * see {@link DataService#prefetch(String, Object...)}. This attribute is
+   * optional; by default the service method is not prefetched.
+   */
+  String prefetch() default "";
 }
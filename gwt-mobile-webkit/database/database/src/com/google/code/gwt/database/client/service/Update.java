@@ -24,7 +24,9 @@ import com.google.code.gwt.database.client.SQLResultSet;
 
 /**
  * Provides the SQL update statement to be executed when the annotated method is
- * called. This annotation mandates a read/write transaction.
+ * called. The statement is executed in a read/write transaction, unless it
+ * only reads from the database (e.g. a <code>SELECT</code> statement), in
+ * which case a read-only transaction is used.
  * 
  * <p>
  * Provide any statement parameters between curly braces, e.g.:
@@ -78,6 +80,55 @@ import com.google.code.gwt.database.client.SQLResultSet;
  * transaction.
  * </p>
  * 
+ * <h3>Batched inserts</h3>
+ * <p>
+ * Iterating an <code>INSERT</code> statement over a large collection costs one
+ * <code>tx.executeSql()</code> call per item. Specify the {@link #batchSize()}
+ * attribute to collapse the items into multi-row
+ * <code>INSERT ... VALUES (...), (...)</code> statements instead:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Update(sql="INSERT INTO mytable (when, name) VALUES ({_.getTime()}, {name})",
+ *     foreach="dates", <b>batchSize=100</b>)
+ * void insertData(List&lt;Date&gt; dates, String name, RowIdListCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * Each statement holds at most <code>batchSize</code> rows, and is further
+ * limited to stay within SQLite's maximum number of bound parameters (999) and
+ * compound rows (500). The {@link RowIdListCallback} still receives a ROWID for
+ * each inserted item, derived from the last ROWID and the number of rows
+ * inserted by each statement. This assumes that the rows of a statement get
+ * consecutive ROWIDs, which is not the case if the statement specifies
+ * explicit ROWIDs (or <code>INTEGER PRIMARY KEY</code> values), so use a
+ * {@link VoidCallback} for such statements. <code>INSERT OR IGNORE</code> and
+ * <code>REPLACE</code> statements cannot be batched with a
+ * {@link RowIdListCallback}. Multi-row <code>VALUES</code> clauses require
+ * SQLite 3.7.11 or newer.
+ * </p>
+ * 
+ * <h3>Write-behind</h3>
+ * <p>
+ * Statements fired at a high rate (e.g. marking items as read) can be queued
+ * and flushed in a single transaction with the {@link #writeBehind()}
+ * attribute. The {@link #coalesce()} attribute specifies a key expression;
+ * a queued call is replaced by a later call with an equal key:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Update(sql="UPDATE item SET read = {read} WHERE id = {id}",
+ *     <b>writeBehind=true, coalesce="id"</b>)
+ * void setRead(int id, boolean read, VoidCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * Coalescing is only correct if the last call makes the earlier ones
+ * redundant, like an <code>UPDATE ... SET</code> to a given value or an
+ * <code>INSERT OR REPLACE</code>. Write-behind service methods must use the
+ * {@link VoidCallback}. See also {@link DataService#flushWrites(VoidCallback)}.
+ * </p>
+ * 
  * <h3>SQL dialect</h3>
  * 
  * <p>
@@ -110,4 +161,27 @@ public @interface Update {
    * iterate. This attribute is optional.
    */
   String foreach() default "";
+
+  /**
+   * Represents the maximum number of {@link #foreach()} items inserted by a
+   * single multi-row <code>INSERT</code> statement. This attribute is
+   * optional; the default (<code>0</code>) executes one statement per item.
+   */
+  int batchSize() default 0;
+
+  /**
+   * If <code>true</code>, the calls of the service method are queued and
+   * flushed in a single transaction with the other queued calls. This
+   * attribute is optional; the default (<code>false</code>) executes each call
+   * in its own transaction.
+   */
+  boolean writeBehind() default false;
+
+  /**
+   * Represents an expression over the service method parameters, whose value
+   * identifies the queued calls which replace each other. Requires
+   * {@link #writeBehind()}. This attribute is optional; by default no calls
+   * are coalesced.
+   */
+  String coalesce() default "";
 }
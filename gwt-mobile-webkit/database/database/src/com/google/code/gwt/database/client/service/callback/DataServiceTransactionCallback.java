@@ -17,12 +17,19 @@
 package com.google.code.gwt.database.client.service.callback;
 
 import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLResultSet;
 import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.TransactionCallback;
 import com.google.code.gwt.database.client.service.Callback;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.code.gwt.database.client.service.ResultCache;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 
 /**
  * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
@@ -47,6 +54,23 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
   private String errMessage;
   private String sql;
   private Object[] params;
+  private JavaScriptObject values;
+
+  // Context values for the ResultCache:
+  private int captured = -1;
+  private StatementCallback<?> capturedCallback;
+  private ResultCache resultCache;
+  private String cacheKey;
+  private String[] cacheTables;
+  private int cacheVersion;
+
+  // Context values for the DataServiceMonitor:
+  private DataServiceMonitor monitor;
+
+  // The single statement executed by onTransactionStart(), if specified:
+  private String statement;
+  private Object[] statementParams;
+  private String serviceMethodName;
 
   /**
    * Creates a new TransactionCallback with the specified DataService callback.
@@ -55,6 +79,41 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
     this.callback = callback;
   }
 
+  /**
+   * Creates a new TransactionCallback with the specified DataService callback,
+   * which executes the specified statement. Service methods executing a single
+   * statement thus share the same TransactionCallback type, instead of each
+   * generating a subclass of its own.
+   * 
+   * @param statement the SQL statement, with a '?' for each parameter
+   * @param params the statement parameters, or <code>null</code>
+   * @param serviceMethodName the name of the service method, see
+   *          {@link #getServiceMethodName()}
+   */
+  public DataServiceTransactionCallback(C callback, String statement,
+      Object[] params, String serviceMethodName) {
+    this(callback);
+    this.statement = statement;
+    this.statementParams = params;
+    this.serviceMethodName = serviceMethodName;
+  }
+
+  /**
+   * Executes the statement specified at construction, with the
+   * StatementCallback returned by {@link #createStatementCallback()}. The
+   * Generator overrides this method for service methods which execute other
+   * statements.
+   */
+  public void onTransactionStart(SQLTransaction tx) {
+    exec(tx, statement, statementParams, createStatementCallback());
+  }
+
+  /**
+   * Returns a new StatementCallback which stores the result of a statement in
+   * this TransactionCallback.
+   */
+  protected abstract StatementCallback<?> createStatementCallback();
+
   /**
    * Wraps a call to {@link SQLTransaction#executeSql(String, Object[])} and
    * stores the SQL statement and parameters for failure events.
@@ -63,7 +122,32 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
       StatementCallback<?> callback) {
     this.sql = sql;
     this.params = params;
-    tx.executeSql(sql, params, callback);
+    this.values = null;
+    if (captured >= 0) {
+      // Determining the statement for the ResultCache; don't execute it:
+      captured++;
+      capturedCallback = callback;
+    } else {
+      tx.executeSql(sql, params, wrap(callback));
+    }
+  }
+
+  /**
+   * Wraps a call to
+   * {@link SQLTransaction#executeSqlValues(String, JavaScriptObject, StatementCallback)}
+   * and stores the SQL statement and values for failure events.
+   */
+  protected void execValues(SQLTransaction tx, String sql,
+      JavaScriptObject values, StatementCallback<?> callback) {
+    this.sql = sql;
+    this.params = null;
+    this.values = values;
+    if (captured >= 0) {
+      captured++;
+      capturedCallback = callback;
+    } else {
+      tx.executeSqlValues(sql, values, wrap(callback));
+    }
   }
 
   /**
@@ -74,7 +158,115 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
   protected void exec(SQLTransaction tx, String sql, Object[] params) {
     this.sql = sql;
     this.params = params;
-    tx.executeSql(sql, params);
+    if (captured >= 0) {
+      captured++;
+    } else if (monitor != null) {
+      tx.executeSql(sql, params, monitorResult(null));
+    } else {
+      tx.executeSql(sql, params);
+    }
+  }
+
+  /**
+   * Relays the resultset cached for the statement of this TransactionCallback
+   * to the statement and DataService callbacks (asynchronously), if available
+   * in the specified cache.
+   * 
+   * <p>
+   * The statement is determined by invoking
+   * {@link #onTransactionStart(SQLTransaction)} with a <code>null</code>
+   * transaction, which only records the statement. If the resultset is not
+   * cached, it is stored in the cache once the recorded statement is executed
+   * by the {@link #getTransactionCallback()}. A
+   * relayed resultset is reported to the {@link DataServiceMonitor} (if set).
+   * </p>
+   * 
+   * @param cache the cache to use
+   * @param tables the (lowercase) names of the tables the statement selects
+   *          from
+   * @return <code>true</code> if the cached resultset is relayed,
+   *         <code>false</code> if the statement must be executed
+   */
+  public boolean relayCachedResult(ResultCache cache, String[] tables) {
+    final SQLResultSet<?> resultSet = getCachedResult(cache, tables);
+    if (resultSet == null) {
+      return false;
+    }
+    if (monitor != null) {
+      monitor.onCacheHit(getServiceMethodName(), sql,
+          resultSet.getRows().getLength(), Duration.currentTimeMillis());
+    }
+    // Relay asynchronously, like the database does:
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      public void execute() {
+        relay(capturedCallback, resultSet);
+        onTransactionSuccess();
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Returns the resultset cached for the statement of this TransactionCallback
+   * in the specified cache, or <code>null</code> if not available. In the
+   * latter case, the resultset is stored in the cache once the statement is
+   * executed by the {@link #getTransactionCallback()}.
+   * 
+   * @param cache the cache to use
+   * @param tables the (lowercase) names of the tables the statement selects
+   *          from
+   */
+  public SQLResultSet<?> getCachedResult(ResultCache cache, String[] tables) {
+    captured = 0;
+    try {
+      onTransactionStart(null);
+    } finally {
+      if (captured != 1) {
+        // Only a single statement can be cached:
+        capturedCallback = null;
+      }
+      captured = -1;
+    }
+    if (capturedCallback == null) {
+      return null;
+    }
+    cacheKey = ResultCache.getKey(sql, params);
+    SQLResultSet<?> resultSet = cache.get(cacheKey);
+    if (resultSet == null) {
+      resultCache = cache;
+      cacheTables = tables;
+      cacheVersion = cache.getVersion();
+    } else {
+      cacheKey = null;
+    }
+    return resultSet;
+  }
+
+  /**
+   * Returns the TransactionCallback to execute for this
+   * DataServiceTransactionCallback. If {@link #getCachedResult} recorded a
+   * statement which is not cached, the returned TransactionCallback executes
+   * the recorded statement, so that its SQL and parameters are not determined
+   * a second time. Returns <code>this</code> otherwise.
+   */
+  public TransactionCallback getTransactionCallback() {
+    if (cacheKey == null) {
+      return this;
+    }
+    final String recordedSql = sql;
+    final Object[] recordedParams = params;
+    final StatementCallback<?> recordedCallback = capturedCallback;
+    return new TransactionCallback() {
+      public void onTransactionStart(SQLTransaction tx) {
+        exec(tx, recordedSql, recordedParams, recordedCallback);
+      }
+      public void onTransactionSuccess() {
+        DataServiceTransactionCallback.this.onTransactionSuccess();
+      }
+      public void onTransactionFailure(SQLError error) {
+        DataServiceTransactionCallback.this.onTransactionFailure(error);
+      }
+    };
   }
 
   /**
@@ -99,7 +291,7 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
       // Use the SQLError details from the
       // StatementCallback.onFailure callback:
       callback.onFailure(new DataServiceException(errMessage, errCode, sql,
-          params));
+          values != null ? toParams(values) : params));
     } else {
       // Use the SQLError details from the
       // TransactionCallback.onFailure callback:
@@ -107,10 +299,117 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
     }
   }
 
+  /**
+   * Sets the monitor to notify of the statements executed by this
+   * TransactionCallback.
+   * 
+   * @param monitor the monitor, or <code>null</code>
+   */
+  public void setMonitor(DataServiceMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+  /**
+   * Returns the name of the service method which created this
+   * TransactionCallback, as reported to the {@link DataServiceMonitor}. The
+   * Generator implements this method, unless the name is specified at
+   * construction.
+   */
+  public String getServiceMethodName() {
+    return serviceMethodName;
+  }
+
   /**
    * Returns the DataService callback associated with this transaction.
    */
   public C getCallback() {
     return callback;
   }
+
+  /**
+   * Wraps the specified StatementCallback to store its resultset in the
+   * ResultCache and to notify the monitor, as far as these are set.
+   */
+  private <T extends JavaScriptObject> StatementCallback<T> wrap(
+      StatementCallback<T> callback) {
+    if (cacheKey != null) {
+      callback = cacheResult(callback);
+    }
+    if (monitor != null) {
+      callback = monitorResult(callback);
+    }
+    return callback;
+  }
+
+  /**
+   * Returns the specified JavaScript array of values as strings, for the
+   * {@link DataServiceException}.
+   */
+  private static Object[] toParams(JavaScriptObject values) {
+    Object[] params = new Object[getLength(values)];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = getString(values, i);
+    }
+    return params;
+  }
+
+  private static native int getLength(JavaScriptObject values) /*-{
+    return values.length;
+  }-*/;
+
+  private static native String getString(JavaScriptObject values, int i) /*-{
+    return values[i] == null ? null : String(values[i]);
+  }-*/;
+
+  /**
+   * Returns a StatementCallback which stores the resultset in the ResultCache
+   * before delegating to the specified callback.
+   */
+  private <T extends JavaScriptObject> StatementCallback<T> cacheResult(
+      final StatementCallback<T> delegate) {
+    return new StatementCallback<T>() {
+      public void onSuccess(SQLTransaction transaction,
+          SQLResultSet<T> resultSet) {
+        resultCache.put(cacheKey, cacheTables, cacheVersion, resultSet);
+        delegate.onSuccess(transaction, resultSet);
+      }
+      public boolean onFailure(SQLTransaction transaction, SQLError error) {
+        return delegate.onFailure(transaction, error);
+      }
+    };
+  }
+
+  /**
+   * Returns a StatementCallback which notifies the monitor of the statement
+   * result before delegating to the specified callback (if any).
+   */
+  private <T extends JavaScriptObject> StatementCallback<T> monitorResult(
+      final StatementCallback<T> delegate) {
+    final String method = getServiceMethodName();
+    final String stmt = sql;
+    final double dispatchTime = Duration.currentTimeMillis();
+    monitor.onStatementDispatch(method, stmt, dispatchTime);
+    return new StatementCallback<T>() {
+      public void onSuccess(SQLTransaction transaction,
+          SQLResultSet<T> resultSet) {
+        monitor.onStatementResult(method, stmt, resultSet.getRows().getLength()
+            + resultSet.getRowsAffected(), dispatchTime,
+            Duration.currentTimeMillis());
+        if (delegate != null) {
+          delegate.onSuccess(transaction, resultSet);
+        }
+      }
+      public boolean onFailure(SQLTransaction transaction, SQLError error) {
+        monitor.onStatementResult(method, stmt, -1, dispatchTime,
+            Duration.currentTimeMillis());
+        return delegate == null || delegate.onFailure(transaction, error);
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends JavaScriptObject> void relay(
+      StatementCallback<T> callback, SQLResultSet<?> resultSet) {
+    callback.onSuccess(null, (SQLResultSet<T>) resultSet);
+  }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.cursor;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.StatementCallback;
+import com.google.code.gwt.database.client.impl.SQLResultSetRowListJso;
+import com.google.code.gwt.database.client.service.CursorCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public class TransactionCallbackCursorCallback<T extends JavaScriptObject>
+    extends DataServiceTransactionCallback<CursorCallback<T>> {
+
+  private SQLResultSetRowListJso<T> rows;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Cursor
+   * callback.
+   */
+  public TransactionCallbackCursorCallback(CursorCallback<T> callback) {
+    super(callback);
+  }
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Cursor
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackCursorCallback(CursorCallback<T> callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackCursorCallback<T>(this);
+  }
+
+  /**
+   * Store the rows of the resultSet for later retrieval when the transaction
+   * has ended.
+   */
+  protected void storeResultSet(SQLResultSet<T> resultSet) {
+    rows = getRows(resultSet);
+  }
+
+  /**
+   * Invokes the DataService' {@link CursorCallback#onRow(JavaScriptObject)}
+   * callback method for each row stored at
+   * {@link #storeResultSet(SQLResultSet)}, until it returns <code>false</code>.
+   * Next, {@link CursorCallback#onSuccess()} is invoked.
+   */
+  public void onTransactionSuccess() {
+    CursorCallback<T> callback = getCallback();
+    int length = rows == null ? 0 : rows.getLength();
+    for (int i = 0; i < length; i++) {
+      if (!callback.onRow(rows.getItem(i))) {
+        break;
+      }
+    }
+    callback.onSuccess();
+  }
+
+  /**
+   * Returns the rows of the resultSet without wrapping them in a
+   * {@link com.google.code.gwt.database.client.SQLResultSetRowList}.
+   */
+  private static native <T extends JavaScriptObject> SQLResultSetRowListJso<T> getRows(
+      SQLResultSet<T> resultSet) /*-{
+    return resultSet.rows;
+  }-*/;
+}
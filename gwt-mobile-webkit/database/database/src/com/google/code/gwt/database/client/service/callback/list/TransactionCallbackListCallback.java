@@ -17,6 +17,7 @@
 package com.google.code.gwt.database.client.service.callback.list;
 
 import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.service.ListCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
@@ -27,12 +28,14 @@ import com.google.gwt.core.client.JavaScriptObject;
  * code.
  * 
  * <p>
- * The Generator implements the onTransactionStart() method body.
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
  * </p>
  * 
  * @author bguijt
  */
-public abstract class TransactionCallbackListCallback<T extends JavaScriptObject>
+public class TransactionCallbackListCallback<T extends JavaScriptObject>
     extends DataServiceTransactionCallback<ListCallback<T>> {
 
   private ResultSetList<T> store;
@@ -45,6 +48,19 @@ public abstract class TransactionCallbackListCallback<T extends JavaScriptObject
     super(callback);
   }
 
+  /**
+   * Creates a new TransactionCallback with the specified DataService' List
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackListCallback(ListCallback<T> callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackListCallback<T>(this);
+  }
+
   /**
    * Store the resultSet for later retrieval when the transaction has ended.
    */
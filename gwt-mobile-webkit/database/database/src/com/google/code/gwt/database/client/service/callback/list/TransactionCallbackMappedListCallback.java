@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.callback.list;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.SQLResultSetRowList;
+import com.google.code.gwt.database.client.StatementCallback;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * This TransactionCallback is applied to {@link ListCallback} service methods
+ * whose row type is a plain Java class (not a {@link JavaScriptObject}). Each
+ * row is converted exactly once by {@link #mapRow(JavaScriptObject)}.
+ * </p>
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() and mapRow() method
+ * bodies. The onTransactionStart() method is not generated if the service
+ * method executes a single statement, which is then specified at
+ * construction.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public abstract class TransactionCallbackMappedListCallback<T> extends
+    DataServiceTransactionCallback<ListCallback<T>> {
+
+  private List<T> store;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' List
+   * callback.
+   */
+  public TransactionCallbackMappedListCallback(ListCallback<T> callback) {
+    super(callback);
+  }
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' List
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackMappedListCallback(ListCallback<T> callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackMappedListCallback(this);
+  }
+
+  /**
+   * Converts each row of the resultSet to a new <code>T</code> instance, and
+   * stores them for later retrieval when the transaction has ended.
+   */
+  protected void storeResultSet(SQLResultSet<JavaScriptObject> resultSet) {
+    SQLResultSetRowList<JavaScriptObject> rows = resultSet.getRows();
+    int length = rows.getLength();
+    store = new ArrayList<T>(length);
+    for (int i = 0; i < length; i++) {
+      store.add(mapRow(rows.getItem(i)));
+    }
+  }
+
+  /**
+   * Returns a new <code>T</code> instance holding the column values of the
+   * specified row.
+   */
+  protected abstract T mapRow(JavaScriptObject row);
+
+  /**
+   * Invokes the DataService' {@link ListCallback#onSuccess(List)} callback
+   * method with the rows converted at {@link #storeResultSet(SQLResultSet)}.
+   */
+  public void onTransactionSuccess() {
+    getCallback().onSuccess(store);
+  }
+}
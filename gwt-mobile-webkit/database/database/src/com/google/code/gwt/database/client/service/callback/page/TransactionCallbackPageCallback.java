@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service.callback.page;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.StatementCallback;
+import com.google.code.gwt.database.client.service.PageCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.client.service.callback.list.ResultSetList;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public class TransactionCallbackPageCallback<T extends JavaScriptObject>
+    extends DataServiceTransactionCallback<PageCallback<T>> {
+
+  private int pageSize;
+  private ResultSetList<T> store;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Page
+   * callback.
+   * 
+   * @param pageSize the maximum number of rows to relay to the callback. The
+   *          SQL statement selects one more row to detect whether a next page
+   *          is available.
+   */
+  public TransactionCallbackPageCallback(PageCallback<T> callback, int pageSize) {
+    super(callback);
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Page
+   * callback, which executes the specified statement.
+   * 
+   * @param pageSize the maximum number of rows to relay to the callback
+   */
+  public TransactionCallbackPageCallback(PageCallback<T> callback,
+      int pageSize, String statement, Object[] params,
+      String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+    this.pageSize = pageSize;
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackPageCallback<T>(this);
+  }
+
+  /**
+   * Store the resultSet for later retrieval when the transaction has ended.
+   */
+  protected void storeResultSet(SQLResultSet<T> resultSet) {
+    store = new ResultSetList<T>(resultSet);
+  }
+
+  /**
+   * Invokes the DataService'
+   * {@link PageCallback#onSuccess(java.util.List, boolean)} callback method
+   * with (at most <code>pageSize</code> rows of) the value stored at
+   * {@link #storeResultSet(SQLResultSet)}.
+   */
+  public void onTransactionSuccess() {
+    boolean hasNextPage = store.size() > pageSize;
+    List<T> page = hasNextPage ? store.subList(0, pageSize) : store;
+    getCallback().onSuccess(page, hasNextPage);
+  }
+}
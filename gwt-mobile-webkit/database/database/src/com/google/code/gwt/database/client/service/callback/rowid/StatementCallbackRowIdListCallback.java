@@ -38,6 +38,7 @@ public class StatementCallbackRowIdListCallback extends
     DataServiceStatementCallback<GenericRow> {
 
   private TransactionCallbackRowIdListCallback txCallback;
+  private boolean batched;
 
   /**
    * Creates a new TransactionCallback with the specified DataService' ROWIDs
@@ -45,7 +46,21 @@ public class StatementCallbackRowIdListCallback extends
    */
   public StatementCallbackRowIdListCallback(
       TransactionCallbackRowIdListCallback txCallback) {
+    this(txCallback, false);
+  }
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' ROWIDs
+   * callback.
+   * 
+   * @param batched <code>true</code> if the statements are multi-row INSERT
+   *          statements, inserting {@link SQLResultSet#getRowsAffected()} rows
+   *          each
+   */
+  public StatementCallbackRowIdListCallback(
+      TransactionCallbackRowIdListCallback txCallback, boolean batched) {
     this.txCallback = txCallback;
+    this.batched = batched;
   }
 
   @Override
@@ -60,6 +75,11 @@ public class StatementCallbackRowIdListCallback extends
    */
   public void onSuccess(SQLTransaction transaction,
       SQLResultSet<GenericRow> resultSet) {
-    txCallback.addRowId(resultSet.getInsertId());
+    if (batched) {
+      txCallback.addRowIds(resultSet.getInsertId(),
+          resultSet.getRowsAffected());
+    } else {
+      txCallback.addRowId(resultSet.getInsertId());
+    }
   }
 }
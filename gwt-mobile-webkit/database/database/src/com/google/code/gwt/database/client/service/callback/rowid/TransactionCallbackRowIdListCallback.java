@@ -19,6 +19,7 @@ package com.google.code.gwt.database.client.service.callback.rowid;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.service.RowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
@@ -28,12 +29,14 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  * code.
  * 
  * <p>
- * The Generator implements the onTransactionStart() method body.
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
  * </p>
  * 
  * @author bguijt
  */
-public abstract class TransactionCallbackRowIdListCallback extends
+public class TransactionCallbackRowIdListCallback extends
     DataServiceTransactionCallback<RowIdListCallback> {
 
   private List<Integer> rowIds = new ArrayList<Integer>();
@@ -46,6 +49,19 @@ public abstract class TransactionCallbackRowIdListCallback extends
     super(callback);
   }
 
+  /**
+   * Creates a new TransactionCallback with the specified DataService' ROWIDs
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackRowIdListCallback(RowIdListCallback callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackRowIdListCallback(this);
+  }
+
   /**
    * Store the resultSet for later retrieval when the transaction has ended.
    */
@@ -53,6 +69,19 @@ public abstract class TransactionCallbackRowIdListCallback extends
     rowIds.add(rowId);
   }
 
+  /**
+   * Store the ROWID's of a multi-row INSERT statement for later retrieval when
+   * the transaction has ended.
+   * 
+   * @param lastRowId the ROWID of the last inserted row
+   * @param count the number of rows inserted by the statement
+   */
+  protected void addRowIds(int lastRowId, int count) {
+    for (int rowId = lastRowId - count + 1; rowId <= lastRowId; rowId++) {
+      rowIds.add(rowId);
+    }
+  }
+
   /**
    * Invokes the DataService' {@link RowIdListCallback#onSuccess(List)} callback
    * method with the List accumulated at {@link #addRowId(Integer)}.
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.callback.scalar;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.StatementCallback;
+import com.google.code.gwt.database.client.service.LongCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class TransactionCallbackLongCallback extends
+    DataServiceTransactionCallback<LongCallback> {
+
+  private long store;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' long
+   * callback.
+   */
+  public TransactionCallbackLongCallback(LongCallback callback) {
+    super(callback);
+  }
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' long
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackLongCallback(LongCallback callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new DataServiceStatementCallback<JavaScriptObject>() {
+      public void onSuccess(SQLTransaction transaction,
+          SQLResultSet<JavaScriptObject> resultSet) {
+        storeValue((long) DataServiceUtils.getScalarValue(resultSet));
+      }
+      protected void storeError(int code, String message) {
+        storeStatementError(code, message);
+      }
+    };
+  }
+
+  /**
+   * Invokes the DataService' {@link LongCallback#onSuccess(long)} callback method
+   * with the value stored at {@link #storeValue(long)}.
+   */
+  public void onTransactionSuccess() {
+    getCallback().onSuccess(store);
+  }
+
+  /**
+   * Store the value for later retrieval when the transaction has ended.
+   */
+  protected void storeValue(long value) {
+    store = value;
+  }
+}
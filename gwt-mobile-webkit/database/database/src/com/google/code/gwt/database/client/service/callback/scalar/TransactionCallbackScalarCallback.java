@@ -25,7 +25,9 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  * code.
  * 
  * <p>
- * The Generator implements the onTransactionStart() method body.
+ * The Generator implements the onTransactionStart() method body, or only the
+ * createStatementCallback() method body if the service method executes a
+ * single statement, which is then specified at construction.
  * </p>
  * 
  * @param <T> represents the type for the scalar value
@@ -45,6 +47,15 @@ public abstract class TransactionCallbackScalarCallback<T> extends
     super(callback);
   }
 
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Scalar
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackScalarCallback(ScalarCallback<T> callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
   /**
    * Invokes the DataService' {@link ScalarCallback#onSuccess(Object)} callback
    * method with the value stored at {@link #storeValue(Object)}.
@@ -16,6 +16,7 @@
 
 package com.google.code.gwt.database.client.service.callback.voyd;
 
+import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
@@ -25,12 +26,14 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  * code.
  * 
  * <p>
- * The Generator implements the onTransactionStart() method body.
+ * The Generator implements the onTransactionStart() method body, unless the
+ * service method executes a single statement, which is then specified at
+ * construction.
  * </p>
  * 
  * @author bguijt
  */
-public abstract class TransactionCallbackVoidCallback extends
+public class TransactionCallbackVoidCallback extends
     DataServiceTransactionCallback<VoidCallback> {
 
   /**
@@ -41,6 +44,19 @@ public abstract class TransactionCallbackVoidCallback extends
     super(callback);
   }
 
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Void
+   * callback, which executes the specified statement.
+   */
+  public TransactionCallbackVoidCallback(VoidCallback callback,
+      String statement, Object[] params, String serviceMethodName) {
+    super(callback, statement, params, serviceMethodName);
+  }
+
+  protected StatementCallback<?> createStatementCallback() {
+    return new StatementCallbackVoidCallback(this);
+  }
+
   /**
    * Invokes the DataService' {@link VoidCallback#onSuccess()} callback method.
    */
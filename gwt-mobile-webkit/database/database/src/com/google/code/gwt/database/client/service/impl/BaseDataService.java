@@ -16,12 +16,29 @@
 
 package com.google.code.gwt.database.client.service.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.google.code.gwt.database.client.Database;
 import com.google.code.gwt.database.client.DatabaseException;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.BulkImport;
+import com.google.code.gwt.database.client.service.BulkImportCallback;
 import com.google.code.gwt.database.client.service.Callback;
 import com.google.code.gwt.database.client.service.DataService;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.code.gwt.database.client.service.ResultCache;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 
 /**
  * Base class for all generated {@link DataService} implementations using the
@@ -33,17 +50,76 @@ public abstract class BaseDataService implements DataService {
 
   private static final String ERR_MSG = "Unable to open Web Database ";
 
-  private static Database database = null;
+  /**
+   * Holds the Database connection of each database name. The transactions of
+   * a Database are serialized, so DataServices connecting to different
+   * databases can run their transactions in parallel.
+   */
+  private static Map<String, Database> databases = new HashMap<String, Database>();
+
+  /**
+   * Holds the ResultCache of each database name.
+   */
+  private static Map<String, ResultCache> resultCaches = new HashMap<String, ResultCache>();
+
+  /**
+   * Holds the DatabaseMigrator of each database name, so that a database is
+   * migrated only once, even if several DataServices connect to it.
+   */
+  private static Map<String, DatabaseMigrator> migrators = new HashMap<String, DatabaseMigrator>();
+
+  /**
+   * The Database connection of this DataService, obtained from
+   * {@link #databases}.
+   */
+  private Database database = null;
+
+  /**
+   * The ResultCache of this DataService, obtained from {@link #resultCaches}.
+   */
+  private ResultCache resultCache = null;
+
+  /**
+   * Collects the transactions of the service method calls between
+   * {@link #beginBatch()} and {@link #commitBatch(VoidCallback)}.
+   */
+  private TransactionBatch batch = null;
+
+  /**
+   * Migrates the database schema, if the DataService specifies migrations.
+   * Obtained from {@link #migrators}.
+   */
+  private DatabaseMigrator migrator = null;
+
+  /**
+   * Holds the write-behind service method calls until they are flushed.
+   */
+  private WriteBehindQueue writeBehind = null;
+
+  /**
+   * Is notified of the transactions and statements, if set.
+   */
+  private DataServiceMonitor monitor = null;
+
+  /**
+   * Whether the service methods are invoked by {@link #prefetch}.
+   */
+  private boolean prefetching = false;
+
+  private int writeBehindDelay = WriteBehindQueue.DEFAULT_DELAY;
+  private int writeBehindMaxQueued = WriteBehindQueue.DEFAULT_MAX_QUEUED;
 
   /**
-   * Returns the Database connection singleton.
+   * Returns the Database connection, which is shared by all DataServices with
+   * the same database name.
    */
   public final Database getDatabase() {
     return getDatabase(null);
   }
 
   /**
-   * Returns the Database connection singleton.
+   * Returns the Database connection, which is shared by all DataServices with
+   * the same database name.
    * 
    * @param callback if not <code>null</code>, any initialization errors go to
    *          its {@link Callback#onFailure(DataServiceException)} callback
@@ -51,6 +127,9 @@ public abstract class BaseDataService implements DataService {
    * @return a Database instance, or <code>null</code> if something went wrong.
    */
   protected final Database getDatabase(Callback callback) {
+    if (database == null) {
+      database = databases.get(getDatabaseName());
+    }
     if (database == null) {
       if (!Database.isSupported()) {
         callFailure(callback, ERR_MSG + "- API is NOT supported");
@@ -61,12 +140,26 @@ public abstract class BaseDataService implements DataService {
         if (database == null) {
           callFailure(callback, ERR_MSG + getDatabaseDetails()
               + ": openDatabase() returned null (hostedmode?)");
+        } else {
+          databases.put(getDatabaseName(), database);
         }
       } catch (DatabaseException e) {
         callFailure(callback, ERR_MSG + getDatabaseDetails() + ": "
             + e.getMessage());
       }
     }
+    if (database != null && getMigrationVersions() != null) {
+      if (migrator == null) {
+        migrator = migrators.get(getDatabaseName());
+        if (migrator == null) {
+          migrator = new DatabaseMigrator(getMigrationVersions(),
+              getMigrationStatements());
+          migrators.put(getDatabaseName(), migrator);
+        }
+      }
+      // Starts (or retries) the migration, unless it is done or in progress:
+      migrator.migrate(database);
+    }
     return database;
   }
 
@@ -80,12 +173,61 @@ public abstract class BaseDataService implements DataService {
    */
   protected abstract Database openDatabase() throws DatabaseException;
 
+  /**
+   * Returns the version of each migration of the database schema, in order, or
+   * <code>null</code> if the DataService specifies no migrations.
+   */
+  protected String[] getMigrationVersions() {
+    return null;
+  }
+
+  /**
+   * Returns the SQL statements of each migration of the database schema, in
+   * order, or <code>null</code> if the DataService specifies no migrations.
+   */
+  protected String[][] getMigrationStatements() {
+    return null;
+  }
+
   /**
    * Returns a String identifying the Database for e.g. constructing an error
    * message.
    */
   protected abstract String getDatabaseDetails();
 
+  /**
+   * Returns the name of the Database, by which its connection and ResultCache
+   * are shared with other DataServices.
+   */
+  protected abstract String getDatabaseName();
+
+  /**
+   * Returns the ResultCache, which is shared by all DataServices with the same
+   * database name.
+   */
+  public final ResultCache getResultCache() {
+    if (resultCache == null) {
+      resultCache = resultCaches.get(getDatabaseName());
+      if (resultCache == null) {
+        resultCache = new ResultCache(ResultCache.DEFAULT_MAX_ROWS);
+        resultCaches.put(getDatabaseName(), resultCache);
+      }
+    }
+    return resultCache;
+  }
+
+  /**
+   * Holds back the specified TransactionCallback while the database schema is
+   * migrated.
+   * 
+   * @return <code>true</code> if the TransactionCallback is held back (or
+   *         failed), <code>false</code> if it can be invoked right away
+   */
+  private boolean holdForMigration(TransactionCallback txCallback,
+      boolean readOnly) {
+    return migrator != null && migrator.hold(txCallback, readOnly);
+  }
+
   /**
    * Call the callback's onFailure() with the specified message.
    * 
@@ -103,9 +245,42 @@ public abstract class BaseDataService implements DataService {
    * {@link #getDatabase(Callback)} instance.
    */
   protected void transaction(DataServiceTransactionCallback<?> txCallback) {
+    if (batch != null) {
+      batch.add(txCallback, false);
+      return;
+    }
+    flushPendingWrites();
     Database db = getDatabase(txCallback.getCallback());
-    if (db != null) {
-      db.transaction(txCallback);
+    TransactionCallback monitored = monitor(txCallback);
+    if (db != null && !holdForMigration(monitored, false)) {
+      db.transaction(monitored);
+    }
+  }
+
+  /**
+   * Invokes a transaction in read/write mode on the
+   * {@link #getDatabase(Callback)} instance, and invalidates the cached
+   * resultsets selected from the specified tables.
+   * 
+   * <p>
+   * The resultsets are invalidated when the transaction is requested, and again
+   * when it commits: other DataServices sharing the ResultCache may cache
+   * resultsets in between, in particular when the transaction is part of a
+   * batch which is committed later on.
+   * </p>
+   * 
+   * @param tables the (lowercase) names of the tables modified by the
+   *          transaction, or <code>null</code> if unknown
+   */
+  protected void transaction(DataServiceTransactionCallback<?> txCallback,
+      String[] tables) {
+    getResultCache().invalidate(tables);
+    TransactionBatch toCommit = batch != null ? batch : new TransactionBatch();
+    toCommit.add(txCallback, false);
+    toCommit.invalidateOnCommit(getResultCache(), tables);
+    if (toCommit != batch) {
+      flushPendingWrites();
+      execute(toCommit);
     }
   }
 
@@ -114,9 +289,237 @@ public abstract class BaseDataService implements DataService {
    * {@link #getDatabase(Callback)} instance.
    */
   protected void readTransaction(DataServiceTransactionCallback<?> txCallback) {
+    if (batch != null) {
+      batch.add(txCallback, true);
+      return;
+    }
+    flushPendingWrites();
     Database db = getDatabase(txCallback.getCallback());
-    if (db != null) {
-      db.readTransaction(txCallback);
+    TransactionCallback monitored = monitor(txCallback);
+    if (db != null && !holdForMigration(monitored, true)) {
+      db.readTransaction(monitored);
+    }
+  }
+
+  /**
+   * Relays the cached resultset of the transaction, if available. Invokes a
+   * transaction in read-only mode on the {@link #getDatabase(Callback)}
+   * instance otherwise, and caches its resultset.
+   * 
+   * <p>
+   * The cache is bypassed within a batch.
+   * </p>
+   * 
+   * @param tables the (lowercase) names of the tables the transaction selects
+   *          from
+   */
+  protected void readTransaction(DataServiceTransactionCallback<?> txCallback,
+      String[] tables) {
+    if (prefetching) {
+      prefetchTransaction(txCallback, tables);
+      return;
+    }
+    txCallback.setMonitor(monitor);
+    if (batch == null && txCallback.relayCachedResult(getResultCache(), tables)) {
+      return;
+    }
+    readTransaction(txCallback);
+  }
+
+  /**
+   * Invokes a transaction in read-only mode which only stores the resultset of
+   * the transaction in the ResultCache, unless it is cached already. The
+   * DataService callback is not invoked.
+   */
+  private void prefetchTransaction(
+      final DataServiceTransactionCallback<?> txCallback, String[] tables) {
+    flushPendingWrites();
+    if (txCallback.getCachedResult(getResultCache(), tables) != null) {
+      return;
+    }
+    Database db = getDatabase(null);
+    final TransactionCallback statement = txCallback.getTransactionCallback();
+    TransactionCallback prefetch = new TransactionCallback() {
+      public void onTransactionStart(SQLTransaction transaction) {
+        statement.onTransactionStart(transaction);
+      }
+      public void onTransactionSuccess() {
+        // Just caching.
+      }
+      public void onTransactionFailure(SQLError error) {
+        // The service method call will fail again, if at all.
+      }
+    };
+    if (db != null && !holdForMigration(prefetch, true)) {
+      db.readTransaction(prefetch);
+    }
+  }
+
+  public void prefetch(final String hint, final Object... params) {
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      public void execute() {
+        prefetching = true;
+        try {
+          invokePrefetch(hint, params);
+        } finally {
+          prefetching = false;
+        }
+      }
+    });
+  }
+
+  /**
+   * Invokes the service methods having the specified {@link Select#prefetch()}
+   * hint and parameter count with the specified parameters. Implemented by the
+   * generated DataService.
+   */
+  protected void invokePrefetch(String hint, Object[] params) {
+  }
+
+  /**
+   * Queues the transaction of a write-behind service method call, which is
+   * flushed together with the other queued calls in a single read/write
+   * transaction. Within a batch, the transaction is added to the batch
+   * instead.
+   * 
+   * <p>
+   * The cached resultsets selected from the modified tables are invalidated
+   * when the call is queued, and again when the flush commits: the queue only
+   * holds the calls of this DataService, so other DataServices sharing the
+   * ResultCache may cache resultsets selected before the flush.
+   * </p>
+   * 
+   * @param tables the (lowercase) names of the tables modified by the
+   *          transaction, or <code>null</code> if unknown
+   * @param key the coalesce key of the call, or <code>null</code>
+   */
+  protected void writeBehind(DataServiceTransactionCallback<?> txCallback,
+      String[] tables, Object key) {
+    if (batch != null) {
+      transaction(txCallback, tables);
+      return;
+    }
+    getResultCache().invalidate(tables);
+    if (writeBehind == null) {
+      writeBehind = new WriteBehindQueue();
+      addPageHideHandler();
+    }
+    boolean first = writeBehind.isEmpty();
+    if (writeBehind.add(key, txCallback, tables) >= writeBehindMaxQueued) {
+      flushWrites(null);
+    } else if (first) {
+      Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+        public boolean execute() {
+          flushPendingWrites();
+          return false;
+        }
+      }, writeBehindDelay);
+    }
+  }
+
+  /**
+   * Flushes the write-behind queue if the page is hidden (e.g. unloaded).
+   */
+  private native void addPageHideHandler() /*-{
+    var self = this;
+    $wnd.addEventListener('pagehide', $entry(function() {
+      self.@com.google.code.gwt.database.client.service.impl.BaseDataService::flushPendingWrites()();
+    }), false);
+  }-*/;
+
+  /**
+   * Flushes the write-behind queue, if it holds any calls. This happens before
+   * any other transaction is requested, so that it observes the queued writes.
+   */
+  private void flushPendingWrites() {
+    if (writeBehind != null && !writeBehind.isEmpty()) {
+      flushWrites(null);
+    }
+  }
+
+  public void setWriteBehindPolicy(int delayMillis, int maxQueued) {
+    writeBehindDelay = delayMillis;
+    writeBehindMaxQueued = maxQueued;
+  }
+
+  public void flushWrites(VoidCallback callback) {
+    if (writeBehind == null || writeBehind.isEmpty()) {
+      if (callback != null) {
+        callback.onSuccess();
+      }
+      return;
+    }
+    execute(writeBehind.drain(getResultCache(), callback));
+  }
+
+  public void beginBatch() {
+    if (batch != null) {
+      throw new IllegalStateException("A batch is already started");
+    }
+    batch = new TransactionBatch();
+  }
+
+  public void commitBatch(VoidCallback callback) {
+    if (batch == null) {
+      throw new IllegalStateException("No batch is started");
+    }
+    TransactionBatch toCommit = batch;
+    batch = null;
+    toCommit.setCallback(callback);
+    if (toCommit.isEmpty()) {
+      if (callback != null) {
+        callback.onSuccess();
+      }
+      return;
+    }
+    flushPendingWrites();
+    execute(toCommit);
+  }
+
+  /**
+   * Executes the specified batch in a single transaction.
+   */
+  private void execute(TransactionBatch toCommit) {
+    Database db = getDatabase(toCommit);
+    TransactionCallback monitored = monitor == null ? toCommit
+        : new MonitoredTransaction(toCommit, monitor,
+            toCommit.setMonitor(monitor));
+    if (db != null && !holdForMigration(monitored, toCommit.isReadOnly())) {
+      if (toCommit.isReadOnly()) {
+        db.readTransaction(monitored);
+      } else {
+        db.transaction(monitored);
+      }
+    }
+  }
+
+  /**
+   * Returns the TransactionCallback to execute for the specified
+   * DataServiceTransactionCallback, wrapped to notify the {@link #monitor} (if
+   * set).
+   * 
+   * @see DataServiceTransactionCallback#getTransactionCallback()
+   */
+  private TransactionCallback monitor(
+      DataServiceTransactionCallback<?> txCallback) {
+    TransactionCallback transaction = txCallback.getTransactionCallback();
+    if (monitor == null) {
+      return transaction;
+    }
+    txCallback.setMonitor(monitor);
+    return new MonitoredTransaction(transaction, monitor,
+        new String[] {txCallback.getServiceMethodName()});
+  }
+
+  public void setMonitor(DataServiceMonitor monitor) {
+    this.monitor = monitor;
+  }
+
+  public void bulkImport(BulkImport bulkImport,
+      JsArray<? extends JavaScriptObject> rows, BulkImportCallback callback) {
+    if (batch != null) {
+      throw new IllegalStateException("A bulk import cannot be part of a batch");
     }
+    new BulkImporter(this, bulkImport, rows, callback).start();
   }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.BulkImport;
+import com.google.code.gwt.database.client.service.BulkImportCallback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.voyd.StatementCallbackVoidCallback;
+import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * Executes a {@link BulkImport}: inserts the rows in consecutive read/write
+ * transactions of the DataService, and reports the progress after each
+ * transaction. It is the {@link VoidCallback} of each transaction.
+ * 
+ * @author bguijt
+ */
+class BulkImporter implements VoidCallback {
+
+  private BaseDataService service;
+  private BulkImport bulkImport;
+  private JsArray<? extends JavaScriptObject> rows;
+  private BulkImportCallback callback;
+
+  private JsArrayString properties;
+  private String head;
+  private String row;
+  private String tail;
+  private int rowsPerStatement;
+  private String fullStatement;
+
+  private int imported = 0;
+  private int importing = 0;
+
+  BulkImporter(BaseDataService service, BulkImport bulkImport,
+      JsArray<? extends JavaScriptObject> rows, BulkImportCallback callback) {
+    this.service = service;
+    this.bulkImport = bulkImport;
+    this.rows = rows;
+    this.callback = callback;
+  }
+
+  /**
+   * Starts the import with the first transaction.
+   */
+  void start() {
+    if (rows.length() == 0) {
+      callback.onSuccess(0);
+      return;
+    }
+    String[] columns;
+    if (bulkImport.getColumns().isEmpty()) {
+      JsArrayString names = getPropertyNames(rows.get(0));
+      columns = new String[names.length()];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = names.get(i);
+      }
+      properties = names;
+    } else {
+      columns = bulkImport.getColumns().toArray(new String[0]);
+      properties = JavaScriptObject.createArray().cast();
+      for (String property : bulkImport.getProperties()) {
+        properties.push(property);
+      }
+    }
+    if (columns.length == 0) {
+      callback.onFailure(new DataServiceException("Unable to import into "
+          + bulkImport.getTable() + ": no columns"));
+      return;
+    }
+
+    StringBuilder sql = new StringBuilder(bulkImport.isReplace()
+        ? "INSERT OR REPLACE INTO " : "INSERT INTO ");
+    sql.append(quote(bulkImport.getTable())).append(" (");
+    for (int i = 0; i < columns.length; i++) {
+      sql.append(i > 0 ? ", " : "").append(quote(columns[i]));
+    }
+    head = sql.append(") VALUES ").toString();
+    sql = new StringBuilder("(");
+    DataServiceUtils.appendPlaceholders(sql, columns.length);
+    row = sql.append(")").toString();
+    tail = "";
+    rowsPerStatement = bulkImport.getRowsPerStatement(columns.length);
+    fullStatement = DataServiceUtils.getBatchSql(head, row, tail,
+        rowsPerStatement);
+
+    next();
+  }
+
+  /**
+   * Inserts the next {@link BulkImport#getRowsPerTransaction()} rows in a
+   * single transaction.
+   */
+  private void next() {
+    final int from = imported;
+    final int to = Math.min(rows.length(), from
+        + Math.max(1, bulkImport.getRowsPerTransaction()));
+    importing = to;
+    service.transaction(new TransactionCallbackVoidCallback(this) {
+      public void onTransactionStart(SQLTransaction tx) {
+        for (int i = from; i < to; i += rowsPerStatement) {
+          int count = Math.min(rowsPerStatement, to - i);
+          String sql = count == rowsPerStatement ? fullStatement
+              : DataServiceUtils.getBatchSql(head, row, tail, count);
+          execValues(tx, sql, getValues(rows, properties, i, count),
+              new StatementCallbackVoidCallback(this));
+        }
+      }
+      public String getServiceMethodName() {
+        return "DataService.bulkImport";
+      }
+    }, new String[] {bulkImport.getTable().toLowerCase()});
+  }
+
+  public void onSuccess() {
+    imported = importing;
+    callback.onProgress(imported, rows.length());
+    if (imported < rows.length()) {
+      next();
+    } else {
+      callback.onSuccess(imported);
+    }
+  }
+
+  public void onFailure(DataServiceException error) {
+    callback.onFailure(error);
+  }
+
+  private static String quote(String name) {
+    return "\"" + name.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * Returns the names of the own properties of the specified object.
+   */
+  private static native JsArrayString getPropertyNames(JavaScriptObject o) /*-{
+    var names = [];
+    for (var n in o) {
+      if (o.hasOwnProperty(n)) {
+        names.push(n);
+      }
+    }
+    return names;
+  }-*/;
+
+  /**
+   * Returns the values of the specified properties of the specified rows, in
+   * column order, as statement values: numbers and strings as they are,
+   * booleans as 1 or 0, objects as JSON text, and undefined as
+   * <code>null</code>.
+   */
+  private static native JavaScriptObject getValues(
+      JsArray<? extends JavaScriptObject> rows, JsArrayString properties,
+      int from, int count) /*-{
+    var values = [];
+    for (var i = from; i < from + count; i++) {
+      var r = rows[i];
+      for (var p = 0; p < properties.length; p++) {
+        var v = r[properties[p]];
+        if (v == null) {
+          v = null;
+        } else if (typeof v == 'boolean') {
+          v = v ? 1 : 0;
+        } else if (typeof v == 'object') {
+          v = JSON.stringify(v);
+        }
+        values.push(v);
+      }
+    }
+    return values;
+  }-*/;
+}
@@ -20,6 +20,7 @@ import java.util.AbstractSequentialList;
 import java.util.Collection;
 import java.util.List;
 
+import com.google.code.gwt.database.client.SQLResultSet;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
 
 /**
@@ -30,10 +31,25 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  */
 public class DataServiceUtils {
 
+  /**
+   * SQLite's default maximum number of parameters in a single statement
+   * (SQLITE_MAX_VARIABLE_NUMBER).
+   */
+  public static final int MAX_VARIABLE_NUMBER = 999;
+
+  /**
+   * SQLite's default maximum number of rows in a multi-row VALUES clause
+   * (SQLITE_MAX_COMPOUND_SELECT).
+   */
+  public static final int MAX_COMPOUND_ROWS = 500;
+
+  // The addParameter() methods append a '?' placeholder to the sql for each
+  // item, unless sql is null (the statement is obtained from a
+  // SqlStatementCache):
+
   public static int addParameter(StringBuilder sql, Object[] params, int offset, boolean[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -41,8 +57,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, byte[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -50,8 +65,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, short[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -59,8 +73,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, char[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -68,8 +81,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, int[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -77,8 +89,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, long[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -86,8 +97,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, float[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -95,8 +105,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, double[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -104,8 +113,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, Object[] array) {
     for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array[i];
     }
     return offset;
@@ -117,8 +125,7 @@ public class DataServiceUtils {
 
   public static int addParameter(StringBuilder sql, Object[] params, int offset, List<?> array) {
     for (int i=0; i<array.size(); i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > 0 ? ",?" : "?");
       params[offset++] = array.get(i);
     }
     return offset;
@@ -127,13 +134,62 @@ public class DataServiceUtils {
   public static int addParameter(StringBuilder sql, Object[] params, int offset, Iterable<?> array) {
     int i = offset;
     for (Object _ : array) {
-      if (i > offset) sql.append(",");
-      sql.append("?");
+      if (sql != null) sql.append(i > offset ? ",?" : "?");
       params[i++] = _;
     }
     return i;
   }
   
+  /**
+   * Appends <code>count</code> comma-separated '?' placeholders to the
+   * specified sql.
+   */
+  public static void appendPlaceholders(StringBuilder sql, int count) {
+    for (int i=0; i<count; i++) {
+      sql.append(i > 0 ? ",?" : "?");
+    }
+  }
+
+  /**
+   * Returns a multi-row INSERT statement, which repeats the <code>row</code>
+   * expression <code>rows</code> times (comma-separated) between the
+   * <code>head</code> and <code>tail</code> parts of the statement.
+   */
+  public static String getBatchSql(String head, String row, String tail, int rows) {
+    StringBuilder sql = new StringBuilder(head);
+    for (int i=0; i<rows; i++) {
+      if (i > 0) sql.append(",");
+      sql.append(row);
+    }
+    return sql.append(tail).toString();
+  }
+
+  /**
+   * Converts the specified (JavaScript) number to a <code>long</code>. Used by
+   * the generated row mappers, as JSNI code cannot create <code>long</code>
+   * values itself.
+   */
+  public static long toLong(double value) {
+    return (long) value;
+  }
+
+  /**
+   * Returns the first column of the first row of the specified resultSet as a
+   * number, or <code>0</code> if the resultSet is empty or the value is
+   * <code>NULL</code>. Used by the primitive scalar callbacks, which thus
+   * bypass the row and List types.
+   */
+  public static native double getScalarValue(SQLResultSet<?> resultSet) /*-{
+    var rows = resultSet.rows;
+    if (rows.length > 0) {
+      var row = rows.item(0);
+      for (var n in row) {
+        return row[n] == null ? 0 : Number(row[n]);
+      }
+    }
+    return 0;
+  }-*/;
+
   public static int getSize(Iterable<?> array) {
     if (array instanceof Collection<?>) {
       return ((Collection<?>) array).size();
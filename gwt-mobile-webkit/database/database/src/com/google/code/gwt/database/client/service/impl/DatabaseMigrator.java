@@ -0,0 +1,170 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.Migration;
+
+/**
+ * Migrates the schema of a Database to the version of the last
+ * {@link Migration}, in a single changeVersion transaction.
+ * 
+ * <p>
+ * While the migration is in progress, the transactions of the DataServices are
+ * held back; they are invoked once the migration succeeds, or failed if it
+ * fails. A failed migration is attempted again at the next transaction.
+ * </p>
+ * 
+ * <p>
+ * A single DatabaseMigrator is shared by all DataServices with the same
+ * database name, so that a Database is never migrated twice at the same time.
+ * </p>
+ * 
+ * @author bguijt
+ */
+class DatabaseMigrator implements TransactionCallback {
+
+  /**
+   * The error code of a database version mismatch.
+   */
+  private static final int VERSION_ERR = 2;
+
+  private String[] versions;
+  private String[][] statements;
+  private Database database;
+  private int first;
+  private boolean pending = false;
+  private boolean migrated = false;
+  private SQLError failure = null;
+  private List<TransactionCallback> txCallbacks = new ArrayList<TransactionCallback>();
+  private List<Boolean> readOnly = new ArrayList<Boolean>();
+
+  /**
+   * Creates a new DatabaseMigrator.
+   * 
+   * @param versions the version of each migration, in order
+   * @param statements the SQL statements of each migration, in order
+   */
+  public DatabaseMigrator(String[] versions, String[][] statements) {
+    this.versions = versions;
+    this.statements = statements;
+  }
+
+  /**
+   * Starts the migration of the specified Database, unless it is migrated
+   * already, is being migrated, or its version is already current.
+   */
+  public void migrate(Database db) {
+    if (pending || migrated) {
+      return;
+    }
+    failure = null;
+    String target = versions[versions.length - 1];
+    String current = db.getVersion() == null ? "" : db.getVersion();
+    if (current.equals(target)) {
+      migrated = true;
+      return;
+    }
+    first = 0;
+    if (current.length() > 0) {
+      while (first < versions.length && !versions[first].equals(current)) {
+        first++;
+      }
+      if (first == versions.length) {
+        failure = createError(VERSION_ERR, "Unable to migrate database from "
+            + "unknown version '" + current + "' to version '" + target + "'");
+        return;
+      }
+      first++;
+    }
+    database = db;
+    pending = true;
+    db.changeVersion(current, target, this);
+  }
+
+  /**
+   * Invokes the specified TransactionCallback when the migration has
+   * succeeded, or invokes its failure callback when the migration has failed,
+   * or cannot be started because the version of the Database is unknown.
+   * 
+   * @return <code>true</code> if the TransactionCallback is taken care of,
+   *         <code>false</code> if it must be invoked right away
+   */
+  public boolean hold(TransactionCallback txCallback, boolean readOnly) {
+    if (failure != null) {
+      txCallback.onTransactionFailure(failure);
+      return true;
+    }
+    if (pending) {
+      txCallbacks.add(txCallback);
+      this.readOnly.add(readOnly);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Executes the SQL statements of each migration after the current version.
+   */
+  public void onTransactionStart(SQLTransaction transaction) {
+    for (int i = first; i < statements.length; i++) {
+      for (String sql : statements[i]) {
+        transaction.executeSql(sql, null);
+      }
+    }
+  }
+
+  /**
+   * Invokes the transactions held back during the migration.
+   */
+  public void onTransactionSuccess() {
+    pending = false;
+    migrated = true;
+    for (int i = 0; i < txCallbacks.size(); i++) {
+      if (readOnly.get(i)) {
+        database.readTransaction(txCallbacks.get(i));
+      } else {
+        database.transaction(txCallbacks.get(i));
+      }
+    }
+    txCallbacks.clear();
+    readOnly.clear();
+  }
+
+  /**
+   * Invokes the failure callback of the transactions held back during the
+   * migration. The migration is attempted again by the next
+   * {@link #migrate(Database)} call.
+   */
+  public void onTransactionFailure(SQLError error) {
+    pending = false;
+    for (TransactionCallback txCallback : txCallbacks) {
+      txCallback.onTransactionFailure(error);
+    }
+    txCallbacks.clear();
+    readOnly.clear();
+  }
+
+  private static native SQLError createError(int code, String message) /*-{
+    return {code: code, message: message};
+  }-*/;
+}
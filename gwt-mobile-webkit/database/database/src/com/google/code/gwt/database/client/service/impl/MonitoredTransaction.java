@@ -0,0 +1,78 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Notifies a {@link DataServiceMonitor} of the start and end of a transaction,
+ * on behalf of each service method executing statements in it.
+ * 
+ * @author bguijt
+ */
+class MonitoredTransaction implements TransactionCallback {
+
+  private TransactionCallback delegate;
+  private DataServiceMonitor monitor;
+  private String[] methods;
+  private double requestTime;
+
+  /**
+   * Creates a new TransactionCallback which notifies the specified monitor
+   * before delegating to the specified TransactionCallback.
+   * 
+   * @param methods the names of the service methods executing statements in
+   *          the transaction
+   */
+  public MonitoredTransaction(TransactionCallback delegate,
+      DataServiceMonitor monitor, String[] methods) {
+    this.delegate = delegate;
+    this.monitor = monitor;
+    this.methods = methods;
+    this.requestTime = Duration.currentTimeMillis();
+  }
+
+  public void onTransactionStart(SQLTransaction transaction) {
+    double time = Duration.currentTimeMillis();
+    for (String method : methods) {
+      monitor.onTransactionStart(method, requestTime, time);
+    }
+    delegate.onTransactionStart(transaction);
+  }
+
+  public void onTransactionSuccess() {
+    notifyEnd(true);
+    delegate.onTransactionSuccess();
+  }
+
+  public void onTransactionFailure(SQLError error) {
+    notifyEnd(false);
+    delegate.onTransactionFailure(error);
+  }
+
+  private void notifyEnd(boolean committed) {
+    double time = Duration.currentTimeMillis();
+    for (String method : methods) {
+      monitor.onTransactionEnd(method, committed, requestTime, time);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+
+/**
+ * Caches the SQL statements of a single service method generated by the
+ * {@link DataServiceGenerator}.
+ * 
+ * <p>
+ * A SQL statement with dynamic list(s) of parameters (e.g. <code>IN()</code>
+ * statements) has a different shape for each size of the list(s). The
+ * generated code builds each shape only once, and keeps it here, keyed by the
+ * size(s) of the list(s).
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class SqlStatementCache {
+
+  /**
+   * The maximum number of statements kept; the cache is cleared when it is
+   * full, to keep rarely used list sizes from piling up.
+   */
+  private static final int MAX_SIZE = 32;
+
+  private Map<String, String> statements = new HashMap<String, String>();
+
+  /**
+   * Returns the SQL statement associated with the specified key, or
+   * <code>null</code> if it is not cached (yet).
+   */
+  public String get(String key) {
+    return statements.get(key);
+  }
+
+  /**
+   * Caches the specified SQL statement.
+   * 
+   * @return the specified <code>sql</code>
+   */
+  public String put(String key, String sql) {
+    if (statements.size() >= MAX_SIZE) {
+      statements.clear();
+    }
+    statements.put(key, sql);
+    return sql;
+  }
+}
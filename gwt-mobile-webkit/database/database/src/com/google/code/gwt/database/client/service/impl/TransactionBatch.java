@@ -0,0 +1,171 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.code.gwt.database.client.service.ResultCache;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+
+/**
+ * Collects the transactions of several service method calls, and executes all
+ * of them in a single database transaction.
+ * 
+ * <p>
+ * Each collected TransactionCallback still relays its own (typed) result to
+ * its own DataService callback. If the transaction fails, every collected
+ * callback is notified of the failure.
+ * </p>
+ * 
+ * <p>
+ * A batch also executes single read/write calls, which invalidate the cached
+ * resultsets of the tables they modify once they commit.
+ * </p>
+ * 
+ * @author bguijt
+ */
+class TransactionBatch implements TransactionCallback, Callback {
+
+  private List<DataServiceTransactionCallback<?>> txCallbacks = new ArrayList<DataServiceTransactionCallback<?>>();
+  private boolean readOnly = true;
+  private VoidCallback callback;
+  private ResultCache resultCache;
+  private List<String[]> modifiedTables = new ArrayList<String[]>();
+
+  /**
+   * Adds the specified TransactionCallback to this batch.
+   * 
+   * @param readOnly <code>true</code> if the TransactionCallback can be
+   *          executed in a read-only transaction
+   */
+  public void add(DataServiceTransactionCallback<?> txCallback,
+      boolean readOnly) {
+    txCallbacks.add(txCallback);
+    this.readOnly &= readOnly;
+  }
+
+  /**
+   * Invalidates the resultsets selected from the specified tables in the
+   * specified cache once this batch commits. The cache may be shared with
+   * other DataServices, which may cache resultsets selected before the commit.
+   * 
+   * @param tables the (lowercase) names of the modified tables, or
+   *          <code>null</code> to invalidate all resultsets
+   */
+  public void invalidateOnCommit(ResultCache cache, String[] tables) {
+    resultCache = cache;
+    modifiedTables.add(tables);
+  }
+
+  /**
+   * Returns <code>true</code> if no TransactionCallbacks are added to this
+   * batch.
+   */
+  public boolean isEmpty() {
+    return txCallbacks.isEmpty();
+  }
+
+  /**
+   * Returns <code>true</code> if all TransactionCallbacks in this batch can be
+   * executed in a read-only transaction.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Sets the monitor to notify of the statements executed by the collected
+   * TransactionCallbacks.
+   * 
+   * @return the names of the service methods of the collected
+   *         TransactionCallbacks
+   */
+  public String[] setMonitor(DataServiceMonitor monitor) {
+    String[] methods = new String[txCallbacks.size()];
+    for (int i = 0; i < methods.length; i++) {
+      txCallbacks.get(i).setMonitor(monitor);
+      methods[i] = txCallbacks.get(i).getServiceMethodName();
+    }
+    return methods;
+  }
+
+  /**
+   * Sets the callback to invoke after the collected callbacks are notified.
+   * 
+   * @param callback the callback, or <code>null</code>
+   */
+  public void setCallback(VoidCallback callback) {
+    this.callback = callback;
+  }
+
+  /**
+   * Executes the SQL statements of all collected TransactionCallbacks, in the
+   * order in which they were added.
+   */
+  public void onTransactionStart(SQLTransaction transaction) {
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      txCallback.onTransactionStart(transaction);
+    }
+  }
+
+  /**
+   * Invokes the success callback of all collected TransactionCallbacks.
+   */
+  public void onTransactionSuccess() {
+    for (String[] tables : modifiedTables) {
+      resultCache.invalidate(tables);
+    }
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      txCallback.onTransactionSuccess();
+    }
+    if (callback != null) {
+      callback.onSuccess();
+    }
+  }
+
+  /**
+   * Invokes the failure callback of all collected TransactionCallbacks.
+   */
+  public void onTransactionFailure(SQLError error) {
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      txCallback.onTransactionFailure(error);
+    }
+    if (callback != null) {
+      callback.onFailure(new DataServiceException(error));
+    }
+  }
+
+  /**
+   * Invokes the DataService callback of all collected TransactionCallbacks
+   * with the specified error, e.g. if the Database cannot be opened.
+   */
+  public void onFailure(DataServiceException error) {
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      txCallback.getCallback().onFailure(error);
+    }
+    if (callback != null) {
+      callback.onFailure(error);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ResultCache;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+
+/**
+ * Holds the {@link Update#writeBehind() write-behind} service method calls of
+ * a DataService until they are flushed in a single {@link TransactionBatch}.
+ * 
+ * <p>
+ * A call queued with the same coalesce key as an earlier queued call replaces
+ * it: the earlier call is not executed, but its callback is still invoked
+ * when the flush transaction completes. The replacing call takes the position
+ * of the last call in the queue.
+ * </p>
+ * 
+ * @author bguijt
+ */
+class WriteBehindQueue {
+
+  /**
+   * The default number of milliseconds after which queued calls are flushed.
+   */
+  public static final int DEFAULT_DELAY = 250;
+
+  /**
+   * The default number of queued calls at which the queue is flushed.
+   */
+  public static final int DEFAULT_MAX_QUEUED = 100;
+
+  private Map<Object, DataServiceTransactionCallback<?>> queued = new LinkedHashMap<Object, DataServiceTransactionCallback<?>>();
+  private List<DataServiceTransactionCallback<?>> superseded = new ArrayList<DataServiceTransactionCallback<?>>();
+  private List<String[]> modifiedTables = new ArrayList<String[]>();
+  private int sequence = 0;
+
+  /**
+   * Queues the specified TransactionCallback.
+   * 
+   * @param key the coalesce key, or <code>null</code> if the call cannot be
+   *          coalesced
+   * @param tables the (lowercase) names of the tables modified by the call,
+   *          or <code>null</code> if unknown
+   * @return the number of calls in the queue
+   */
+  public int add(Object key, DataServiceTransactionCallback<?> txCallback,
+      String[] tables) {
+    modifiedTables.add(tables);
+    if (key == null) {
+      key = Integer.valueOf(sequence++);
+    }
+    DataServiceTransactionCallback<?> previous = queued.remove(key);
+    if (previous != null) {
+      superseded.add(previous);
+    }
+    queued.put(key, txCallback);
+    return queued.size();
+  }
+
+  /**
+   * Returns <code>true</code> if no calls are queued.
+   */
+  public boolean isEmpty() {
+    return queued.isEmpty();
+  }
+
+  /**
+   * Empties the queue into a TransactionBatch, which invalidates the
+   * resultsets selected from the modified tables once it commits.
+   * 
+   * @param cache the ResultCache of the DataService
+   * @param callback invoked after the callbacks of the queued calls are
+   *          invoked. May be <code>null</code>.
+   */
+  public TransactionBatch drain(ResultCache cache,
+      final VoidCallback callback) {
+    TransactionBatch batch = new TransactionBatch();
+    for (DataServiceTransactionCallback<?> txCallback : queued.values()) {
+      batch.add(txCallback, false);
+    }
+    for (String[] tables : modifiedTables) {
+      batch.invalidateOnCommit(cache, tables);
+    }
+    final List<DataServiceTransactionCallback<?>> coalesced = superseded;
+    batch.setCallback(new VoidCallback() {
+      public void onSuccess() {
+        for (DataServiceTransactionCallback<?> txCallback : coalesced) {
+          txCallback.onTransactionSuccess();
+        }
+        if (callback != null) {
+          callback.onSuccess();
+        }
+      }
+
+      public void onFailure(DataServiceException error) {
+        for (DataServiceTransactionCallback<?> txCallback : coalesced) {
+          txCallback.getCallback().onFailure(error);
+        }
+        if (callback != null) {
+          callback.onFailure(error);
+        }
+      }
+    });
+    queued = new LinkedHashMap<Object, DataServiceTransactionCallback<?>>();
+    superseded = new ArrayList<DataServiceTransactionCallback<?>>();
+    modifiedTables = new ArrayList<String[]>();
+    return batch;
+  }
+}
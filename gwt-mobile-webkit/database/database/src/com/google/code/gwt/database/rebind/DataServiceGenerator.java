@@ -46,6 +46,17 @@ import com.google.gwt.core.ext.typeinfo.TypeOracle;
  * Generator.
  * </p>
  * 
+ * <p>
+ * The Generator reports SELECT, UPDATE and DELETE statements which are likely
+ * to scan a full table or to sort using a temporary B-tree at the INFO level,
+ * see {@link QueryPlanAnalyzer}. Add the following to your module to turn
+ * these reports into errors:
+ * </p>
+ * 
+ * <pre>
+ * &lt;set-configuration-property name="gwt.database.strict" value="true" /&gt;
+ * </pre>
+ * 
  * @see DataService
  * 
  * @author bguijt
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.rebind;
+
+import com.google.code.gwt.database.client.service.FullTextSearch;
+import com.google.gwt.core.ext.UnableToCompleteException;
+
+/**
+ * Represents a ServiceMethodCreator for a {@link FullTextSearch} service
+ * method which creates the index. It executes each of the
+ * {@link FullTextSearchSql#getIndexStatements(FullTextSearch) index
+ * statements} in a single transaction.
+ * 
+ * @author bguijt
+ */
+public class FullTextIndexCreator extends ServiceMethodCreatorVoidCallback {
+
+  private String[] statements;
+
+  public FullTextIndexCreator(String[] statements) {
+    this.statements = statements;
+  }
+
+  @Override
+  protected boolean isShareable() {
+    return false;
+  }
+
+  @Override
+  public void generateOnTransactionStartBody() throws UnableToCompleteException {
+    for (String statement : statements) {
+      sql = statement;
+      generateExecuteSqlStatement();
+    }
+    sql = statements[0];
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.rebind;
+
+import java.util.regex.Pattern;
+
+import com.google.code.gwt.database.client.service.FullTextSearch;
+
+/**
+ * Creates the SQL statements of the service methods annotated with
+ * {@link FullTextSearch}.
+ * 
+ * @author bguijt
+ */
+public class FullTextSearchSql {
+
+  private static final Pattern NAME = Pattern.compile("[A-Za-z_][\\w$]*");
+
+  private static final String INDEX_SUFFIX = "_fts";
+
+  /**
+   * Returns <code>true</code> if the specified name can be used unquoted as a
+   * table or column name in the generated statements.
+   */
+  public static boolean isName(String name) {
+    return name != null && NAME.matcher(name).matches();
+  }
+
+  /**
+   * Returns the name of the virtual table holding the index of the specified
+   * table.
+   */
+  public static String getIndexTable(FullTextSearch fts) {
+    return fts.table() + INDEX_SUFFIX;
+  }
+
+  /**
+   * Returns the statements which create the index and its triggers, and which
+   * add the rows not yet indexed. The statements are idempotent.
+   */
+  public static String[] getIndexStatements(FullTextSearch fts) {
+    String table = fts.table();
+    String index = getIndexTable(fts);
+    String columns = join(fts.columns(), "", ", ");
+    String insert = "INSERT INTO " + index + " (docid, " + columns
+        + ") VALUES (new.rowid, " + join(fts.columns(), "new.", ", ")
+        + "); ";
+    String delete = "DELETE FROM " + index + " WHERE docid = old.rowid; ";
+
+    StringBuilder changed = new StringBuilder("old.rowid IS NOT new.rowid");
+    for (String column : fts.columns()) {
+      changed.append(" OR old.").append(column).append(" IS NOT new.").append(
+          column);
+    }
+
+    return new String[] {
+        "CREATE VIRTUAL TABLE IF NOT EXISTS " + index + " USING "
+            + fts.module() + "(" + columns + ")",
+        "CREATE TRIGGER IF NOT EXISTS " + index + "_insert AFTER INSERT ON "
+            + table + " BEGIN " + insert + "END",
+        "CREATE TRIGGER IF NOT EXISTS " + index + "_update AFTER UPDATE ON "
+            + table + " WHEN " + changed + " BEGIN " + delete + insert + "END",
+        "CREATE TRIGGER IF NOT EXISTS " + index + "_delete AFTER DELETE ON "
+            + table + " BEGIN " + delete + "END",
+        "INSERT INTO " + index + " (docid, " + columns + ") SELECT rowid, "
+            + columns + " FROM " + table + " WHERE rowid NOT IN (SELECT docid"
+            + " FROM " + index + ")"};
+  }
+
+  /**
+   * Returns the statement which selects the rows of the indexed table matching
+   * the specified parameter, best matching rows first.
+   * 
+   * @param param the name of the service method parameter holding the
+   *          <code>MATCH</code> expression
+   */
+  public static String getSearchStatement(FullTextSearch fts, String param) {
+    String table = fts.table();
+    String index = getIndexTable(fts);
+    // offsets() returns four space-separated integers per matched term:
+    return "SELECT " + table + ".* FROM " + table + " JOIN (SELECT docid, "
+        + "(length(o) - length(replace(o, ' ', '')) + 1) / 4 AS score FROM "
+        + "(SELECT docid, offsets(" + index + ") AS o FROM " + index
+        + " WHERE " + index + " MATCH {" + param + "})) AS fts_match ON "
+        + table + ".rowid = fts_match.docid ORDER BY fts_match.score DESC"
+        + (fts.limit() > 0 ? " LIMIT " + fts.limit() : "");
+  }
+
+  private static String join(String[] names, String prefix, String separator) {
+    StringBuilder s = new StringBuilder();
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        s.append(separator);
+      }
+      s.append(prefix).append(names[i]);
+    }
+    return s.toString();
+  }
+}
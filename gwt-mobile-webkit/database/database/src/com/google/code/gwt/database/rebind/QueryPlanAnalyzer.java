@@ -0,0 +1,436 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.rebind;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.Migration;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.util.StringUtils;
+import com.google.gwt.core.ext.BadPropertyValueException;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+
+/**
+ * Inspects the {@link Select} statements, and the <code>UPDATE</code> and
+ * <code>DELETE</code> statements of the {@link Update}s, of a DataService for
+ * query plans which are likely to perform badly on large tables: full table
+ * scans and temporary B-trees for sorting.
+ * 
+ * <p>
+ * There is no SQLite engine available at compile time, so the query plan is
+ * estimated from the schema: a statement is suspect if none of the columns in
+ * its <code>WHERE</code> clause is the leading column of an index (or the
+ * ROWID), or if its <code>ORDER BY</code> or <code>GROUP BY</code> clause does
+ * not start with such a column. The schema is read from the
+ * <code>CREATE TABLE</code> and <code>CREATE INDEX</code> statements of the
+ * DataService's {@link Update} annotations and {@link Migration}s, and from
+ * the optional schema
+ * resource named by the <code>gwt.database.schema</code> configuration
+ * property.
+ * </p>
+ * 
+ * <p>
+ * Since the estimate is speculative, suspect statements are only reported at
+ * the INFO level, unless the <code>gwt.database.strict</code> configuration
+ * property is <code>true</code>: then they are reported as errors. Statements
+ * selecting from multiple tables, or from tables not in the schema, are not
+ * inspected.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class QueryPlanAnalyzer {
+
+  /**
+   * The configuration property naming a classpath resource with additional
+   * (semicolon-separated) <code>CREATE</code> statements.
+   */
+  public static final String SCHEMA_PROPERTY = "gwt.database.schema";
+
+  /**
+   * The configuration property which turns suspect statements into errors.
+   */
+  public static final String STRICT_PROPERTY = "gwt.database.strict";
+
+  private static final String NAME = "(?:\"[^\"]+\"|\\[[^\\]]+\\]|`[^`]+`|[\\w$]+)";
+
+  private static final Pattern CREATE_TABLE = Pattern.compile(
+      "^\\s*CREATE\\s+(?:TEMP(?:ORARY)?\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?"
+          + "(" + NAME + "(?:\\s*\\.\\s*" + NAME + ")?)\\s*\\((.*)\\)",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private static final Pattern CREATE_INDEX = Pattern.compile(
+      "^\\s*CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?"
+          + NAME + "(?:\\s*\\.\\s*" + NAME + ")?\\s+ON\\s+(" + NAME
+          + ")\\s*\\(\\s*(" + NAME + ")", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern TABLE_CONSTRAINT = Pattern.compile(
+      "^(?:CONSTRAINT\\s+" + NAME + "\\s+)?(?:PRIMARY\\s+KEY|UNIQUE)\\s*\\(\\s*("
+          + NAME + ")", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern COLUMN_DEF = Pattern.compile("^(" + NAME
+      + ")(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private static final Pattern INDEXED_COLUMN_CONSTRAINT = Pattern.compile(
+      "\\b(?:PRIMARY\\s+KEY|UNIQUE)\\b", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern CLAUSE_END = Pattern.compile(
+      "\\b(?:GROUP\\s+BY|ORDER\\s+BY|LIMIT|HAVING|UNION|EXCEPT|INTERSECT)\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern WHERE_COLUMN = Pattern.compile("(?:" + NAME
+      + "\\s*\\.\\s*)?(" + NAME + ")\\s*(?:[=<>!]|\\bIN\\b|\\bBETWEEN\\b|"
+      + "\\bIS\\b|\\bLIKE\\b|\\bGLOB\\b)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern FIRST_COLUMN = Pattern.compile("^\\s*(?:"
+      + NAME + "\\s*\\.\\s*)?(" + NAME + ")\\s*(?:,|\\bASC\\b|\\bDESC\\b|"
+      + "\\bCOLLATE\\b|$)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern UPDATE_OR_DELETE = Pattern.compile(
+      "^\\s*(?:UPDATE|DELETE)\\b", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern NOT_A_COLUMN = Pattern.compile(
+      "\\d.*|and|or|not", Pattern.CASE_INSENSITIVE);
+
+  private static final String[] ROWID_NAMES = {"rowid", "oid", "_rowid_"};
+
+  private TreeLogger logger;
+  private GeneratorContext context;
+
+  /**
+   * Holds the leading columns of all indexes (including the ROWID alias) per
+   * table.
+   */
+  private Map<String, Set<String>> indexedColumns = new HashMap<String, Set<String>>();
+
+  public QueryPlanAnalyzer(TreeLogger logger, GeneratorContext context) {
+    this.logger = logger;
+    this.context = context;
+  }
+
+  /**
+   * Inspects the {@link Select} statements, and the <code>UPDATE</code> and
+   * <code>DELETE</code> statements of the {@link Update}s, of the methods
+   * declared by the specified DataService.
+   * 
+   * @throws UnableToCompleteException if a statement is suspect in strict
+   *           mode, or if the schema resource cannot be read
+   */
+  public void analyze(JClassType dataService) throws UnableToCompleteException {
+    for (String stmt : getSchemaStatements()) {
+      addSchemaStatement(stmt);
+    }
+    for (JClassType type = dataService; type != null;) {
+      Connection con = type.getAnnotation(Connection.class);
+      if (con != null) {
+        for (Migration migration : con.migrations()) {
+          for (String stmt : migration.sql()) {
+            addSchemaStatement(stmt);
+          }
+        }
+      }
+      JClassType[] implemented = type.getImplementedInterfaces();
+      type = implemented.length > 0 ? implemented[0] : null;
+    }
+    for (JMethod method : dataService.getOverridableMethods()) {
+      Update update = method.getAnnotation(Update.class);
+      if (update != null) {
+        addSchemaStatement(getFlattenedSql(StringUtils.isEmpty(update.value())
+            ? update.sql() : update.value()));
+      }
+    }
+
+    boolean suspect = false;
+    for (JMethod method : dataService.getMethods()) {
+      Select select = method.getAnnotation(Select.class);
+      Update update = method.getAnnotation(Update.class);
+      String sql = null;
+      if (select != null) {
+        sql = StringUtils.isEmpty(select.value()) ? select.sql()
+            : select.value();
+      } else if (update != null) {
+        sql = StringUtils.isEmpty(update.value()) ? update.sql()
+            : update.value();
+        if (!UPDATE_OR_DELETE.matcher(sql).find()) {
+          sql = null;
+        }
+      }
+      if (sql != null) {
+        suspect |= reportStatement(method.getName(), getFlattenedSql(sql));
+      }
+    }
+    if (suspect && isStrict()) {
+      throw new UnableToCompleteException();
+    }
+  }
+
+  /**
+   * Logs the suspect parts of the query plan of the specified statement at the
+   * INFO level, or as errors in strict mode.
+   * 
+   * @return <code>true</code> if the statement is suspect
+   */
+  boolean reportStatement(String methodName, String sql) {
+    boolean strict = isStrict();
+    List<String> problems = analyzeStatement(sql);
+    for (String problem : problems) {
+      logger.log(strict ? TreeLogger.ERROR : TreeLogger.INFO, "Method "
+          + methodName + ": " + problem + ". Consider adding an index (SQL: "
+          + sql + ")");
+    }
+    return !problems.isEmpty();
+  }
+
+  /**
+   * Returns the descriptions of the suspect parts of the query plan of the
+   * specified SELECT, UPDATE or DELETE statement. Only the
+   * <code>WHERE</code> clause of an UPDATE or DELETE statement is inspected.
+   */
+  List<String> analyzeStatement(String sql) {
+    List<String> problems = new ArrayList<String>();
+    boolean write = UPDATE_OR_DELETE.matcher(sql).find();
+    String[] tables = write ? new String[] {
+        TableNameParser.getModifiedTable(sql)}
+        : TableNameParser.getSelectedTables(sql);
+    if (tables.length != 1 || !indexedColumns.containsKey(tables[0])) {
+      logger.log(TreeLogger.DEBUG, "Not inspecting the query plan of " + sql);
+      return problems;
+    }
+    String table = tables[0];
+    Set<String> indexed = indexedColumns.get(table);
+
+    String where = getClause(sql, "WHERE");
+    if (where != null) {
+      List<String> columns = new ArrayList<String>();
+      Matcher m = WHERE_COLUMN.matcher(where);
+      boolean usesIndex = false;
+      while (m.find()) {
+        String column = normalize(m.group(1));
+        if (!NOT_A_COLUMN.matcher(column).matches()) {
+          columns.add(column);
+          usesIndex |= indexed.contains(column);
+        }
+      }
+      if (!usesIndex && columns.size() > 0) {
+        problems.add("probably scans the full table '" + table
+            + "', since none of the columns in the WHERE clause " + columns
+            + " is the leading column of an index");
+      }
+    }
+
+    if (write) {
+      return problems;
+    }
+    for (String clause : new String[] {"ORDER BY", "GROUP BY"}) {
+      String list = getClause(sql, clause);
+      Matcher m = list == null ? null : FIRST_COLUMN.matcher(list);
+      if (m != null && m.find() && !indexed.contains(normalize(m.group(1)))) {
+        problems.add("probably uses a temporary B-tree for " + clause
+            + " on table '" + table + "', since column '"
+            + normalize(m.group(1)) + "' is not the leading column of an index");
+      }
+    }
+    return problems;
+  }
+
+  /**
+   * Registers the table or index created by the specified statement, if any.
+   */
+  void addSchemaStatement(String stmt) {
+    Matcher m = CREATE_TABLE.matcher(stmt);
+    if (m.find()) {
+      Set<String> indexed = getIndexedColumns(normalize(m.group(1)));
+      for (String def : splitTopLevel(m.group(2))) {
+        Matcher constraint = TABLE_CONSTRAINT.matcher(def);
+        if (constraint.find()) {
+          indexed.add(normalize(constraint.group(1)));
+          continue;
+        }
+        Matcher column = COLUMN_DEF.matcher(def);
+        if (column.find()
+            && INDEXED_COLUMN_CONSTRAINT.matcher(column.group(2)).find()) {
+          indexed.add(normalize(column.group(1)));
+        }
+      }
+      return;
+    }
+    m = CREATE_INDEX.matcher(stmt);
+    if (m.find()) {
+      getIndexedColumns(normalize(m.group(1))).add(normalize(m.group(2)));
+    }
+  }
+
+  private Set<String> getIndexedColumns(String table) {
+    Set<String> indexed = indexedColumns.get(table);
+    if (indexed == null) {
+      indexed = new HashSet<String>();
+      for (String rowid : ROWID_NAMES) {
+        indexed.add(rowid);
+      }
+      indexedColumns.put(table, indexed);
+    }
+    return indexed;
+  }
+
+  /**
+   * Returns the statements in the schema resource, if configured.
+   */
+  private List<String> getSchemaStatements() throws UnableToCompleteException {
+    List<String> statements = new ArrayList<String>();
+    String resource = getConfigurationProperty(SCHEMA_PROPERTY);
+    if (StringUtils.isEmpty(resource)) {
+      return statements;
+    }
+    InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(
+        resource);
+    if (in == null) {
+      logger.log(TreeLogger.ERROR, "Cannot find the schema resource '"
+          + resource + "' specified by the " + SCHEMA_PROPERTY
+          + " configuration property");
+      throw new UnableToCompleteException();
+    }
+    StringBuilder schema = new StringBuilder();
+    try {
+      Reader reader = new InputStreamReader(in, "UTF-8");
+      char[] buf = new char[4096];
+      for (int n = reader.read(buf); n >= 0; n = reader.read(buf)) {
+        schema.append(buf, 0, n);
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Cannot read the schema resource '"
+          + resource + "'", e);
+      throw new UnableToCompleteException();
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+    for (String stmt : schema.toString().split(";")) {
+      if (stmt.trim().length() > 0) {
+        statements.add(stmt.trim());
+      }
+    }
+    return statements;
+  }
+
+  private boolean isStrict() {
+    return "true".equalsIgnoreCase(getConfigurationProperty(STRICT_PROPERTY));
+  }
+
+  /**
+   * Returns the (single) value of the specified configuration property, or
+   * <code>null</code> if it is not defined.
+   */
+  private String getConfigurationProperty(String name) {
+    try {
+      List<String> values = context.getPropertyOracle().getConfigurationProperty(
+          name).getValues();
+      return values.isEmpty() ? null : values.get(0);
+    } catch (BadPropertyValueException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the text following the specified keyword up to the next clause,
+   * or <code>null</code> if the statement has no such clause.
+   */
+  private static String getClause(String sql, String keyword) {
+    Matcher m = Pattern.compile("\\b" + keyword.replace(" ", "\\s+") + "\\b",
+        Pattern.CASE_INSENSITIVE).matcher(sql);
+    if (!m.find()) {
+      return null;
+    }
+    String clause = sql.substring(m.end());
+    Matcher end = CLAUSE_END.matcher(clause);
+    return end.find() ? clause.substring(0, end.start()) : clause;
+  }
+
+  /**
+   * Splits the specified text at the commas which are not within parentheses.
+   */
+  private static List<String> splitTopLevel(String text) {
+    List<String> parts = new ArrayList<String>();
+    int depth = 0;
+    int begin = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '(') {
+        depth++;
+      } else if (ch == ')') {
+        depth--;
+      } else if (ch == ',' && depth == 0) {
+        parts.add(text.substring(begin, i).trim());
+        begin = i + 1;
+      }
+    }
+    parts.add(text.substring(begin).trim());
+    return parts;
+  }
+
+  /**
+   * Returns the SQL statement with each {...} parameter substituted for a '?'
+   * character.
+   */
+  private static String getFlattenedSql(String sql) {
+    StringBuilder flat = new StringBuilder();
+    int depth = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char ch = sql.charAt(i);
+      if (ch == '{') {
+        if (depth++ == 0) {
+          flat.append('?');
+        }
+      } else if (ch == '}') {
+        depth--;
+      } else if (depth == 0) {
+        flat.append(ch);
+      }
+    }
+    return flat.toString();
+  }
+
+  /**
+   * Returns the specified (qualified) name in lowercase, without quotes and
+   * database prefix.
+   */
+  private static String normalize(String name) {
+    name = name.substring(name.lastIndexOf('.') + 1).trim();
+    if (name.length() > 1 && "\"[`".indexOf(name.charAt(0)) >= 0) {
+      name = name.substring(1, name.length() - 1);
+    }
+    return name.toLowerCase();
+  }
+}
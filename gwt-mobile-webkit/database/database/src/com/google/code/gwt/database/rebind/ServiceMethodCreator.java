@@ -19,12 +19,16 @@ package com.google.code.gwt.database.rebind;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.TransactionCallback;
 import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.Select;
 import com.google.code.gwt.database.client.service.Update;
 import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.service.impl.SqlStatementCache;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.TreeLogger;
@@ -33,6 +37,7 @@ import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JParameter;
 import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.user.rebind.SourceWriter;
+import com.google.gwt.user.rebind.StringSourceWriter;
 
 /**
  * Base class representing a tx.executeSql(..) call creator for each type of
@@ -42,6 +47,11 @@ import com.google.gwt.user.rebind.SourceWriter;
  */
 public abstract class ServiceMethodCreator {
 
+  /**
+   * Marks the position of a parameter in a flattened SQL statement.
+   */
+  private static final char PARAM_MARKER = '\u0000';
+
   protected GeneratorContext context;
   protected TreeLogger logger;
   protected SourceWriter sw;
@@ -54,6 +64,14 @@ public abstract class ServiceMethodCreator {
   protected JParameter callback;
   protected String txVarName;
 
+  private String sqlCacheName;
+
+  /**
+   * The name of the shared TransactionCallback class used by this service
+   * method, or <code>null</code> if it generates an anonymous class.
+   */
+  private String sharedCallbackName;
+
   /**
    * Sets the context for generating the Transaction Callback.
    */
@@ -73,21 +91,283 @@ public abstract class ServiceMethodCreator {
         service.getParameters());
   }
 
+  /**
+   * Sets the name of the static field holding the SQL cache of this service
+   * method.
+   */
+  public void setSqlCacheName(String sqlCacheName) {
+    this.sqlCacheName = sqlCacheName;
+  }
+
   /**
    * Generates the actual service method body.
    */
   public void generateServiceMethodBody() throws UnableToCompleteException {
-    String txMethodName = query.annotationType().equals(Update.class)
-        ? "transaction" : "readTransaction";
+    boolean readOnly = isReadOnly();
+    String txMethodName = readOnly ? "readTransaction" : "transaction";
+    String txArguments = getTablesArgument(readOnly);
+    if (query instanceof Update && ((Update) query).writeBehind()) {
+      txMethodName = "writeBehind";
+      txArguments += ", " + getCoalesceKey();
+    }
+    if (sharedCallbackName != null) {
+      sw.println(txMethodName + "(new " + sharedCallbackName + "("
+          + getTransactionCallbackArguments() + ", "
+          + getSharedStatementArguments() + ", "
+          + getServiceMethodNameLiteral() + ")" + txArguments + ");");
+      return;
+    }
     sw.println(txMethodName + "(new " + getTransactionCallbackClassName() + "("
-        + callback.getName() + ") {");
+        + getTransactionCallbackArguments() + ") {");
     sw.indent();
 
     generateTransactionCallbackBody();
+    generateGetServiceMethodName();
 
     // ends new TransactionCallback() and (read)transaction() call
     sw.outdent();
-    sw.println("});");
+    sw.println("}" + txArguments + ");");
+  }
+
+  /**
+   * Generates the getServiceMethodName() method of the TransactionCallback,
+   * which identifies the service method to a DataServiceMonitor.
+   */
+  private void generateGetServiceMethodName() {
+    sw.println("public String getServiceMethodName() {");
+    sw.indentln("return " + getServiceMethodNameLiteral() + ";");
+    sw.println("}");
+  }
+
+  private String getServiceMethodNameLiteral() {
+    return StringUtils.getEscapedString(
+        service.getEnclosingType().getSimpleSourceName() + "."
+            + service.getName());
+  }
+
+  /**
+   * Determines the TransactionCallback class shared by the service methods
+   * executing a single statement with the same callback type. Such a service
+   * method only instantiates the shared class with its statement, parameters
+   * and name, instead of generating an anonymous TransactionCallback class of
+   * its own.
+   * 
+   * <p>
+   * The shared class is the TransactionCallback class itself, unless
+   * {@link #generateSharedTransactionCallbackBody()} generates members. In
+   * that case a subclass is generated, once for each distinct body.
+   * </p>
+   * 
+   * @param sharedCallbacks maps the shape (superclass and body) of each
+   *          shared TransactionCallback class generated so far to its name
+   * @param memberNames the names of the static members generated so far
+   */
+  public void generateSharedTransactionCallback(
+      Map<String, String> sharedCallbacks, Set<String> memberNames)
+      throws UnableToCompleteException {
+    if (!isShareable()) {
+      return;
+    }
+    String className = getTransactionCallbackClassName();
+
+    SourceWriter methodWriter = sw;
+    StringSourceWriter bodyWriter = new StringSourceWriter();
+    sw = bodyWriter;
+    try {
+      generateSharedTransactionCallbackBody();
+    } finally {
+      sw = methodWriter;
+    }
+    String body = bodyWriter.toString();
+    if (body.trim().length() == 0) {
+      sharedCallbackName = className;
+      return;
+    }
+    if (!callback.getName().equals(getTransactionCallbackArguments())) {
+      // The generated constructor only passes the callback:
+      return;
+    }
+
+    String shape = className + "\n" + body;
+    sharedCallbackName = sharedCallbacks.get(shape);
+    if (sharedCallbackName != null) {
+      return;
+    }
+    sharedCallbackName = "SharedCallback" + sharedCallbacks.size();
+    for (int i = 2; !memberNames.add(sharedCallbackName); i++) {
+      sharedCallbackName = "SharedCallback" + sharedCallbacks.size() + "_" + i;
+    }
+    sharedCallbacks.put(shape, sharedCallbackName);
+
+    sw.beginJavaDocComment();
+    sw.print("Shared by the service methods executing a single statement "
+        + "with the same callback type.");
+    sw.endJavaDocComment();
+    sw.println("private static class " + sharedCallbackName + " extends "
+        + className + " {");
+    sw.indent();
+    sw.println(sharedCallbackName + "("
+        + genUtils.getClassName(callback.getType()) + " callback, "
+        + "String statement, Object[] params, String serviceMethodName) {");
+    sw.indentln("super(callback, statement, params, serviceMethodName);");
+    sw.println("}");
+    for (String line : body.split("\n")) {
+      sw.println(line);
+    }
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns <code>true</code> if the service method can use a shared
+   * TransactionCallback class, which is the case if it executes a single
+   * statement without dynamic list(s) of parameters.
+   */
+  protected boolean isShareable() throws UnableToCompleteException {
+    return StringUtils.isEmpty(foreach) && !needsSqlCache();
+  }
+
+  /**
+   * Generates the members which a shared TransactionCallback class needs in
+   * addition to those of the TransactionCallback class. By default nothing is
+   * generated, so that the TransactionCallback class itself is shared.
+   */
+  protected void generateSharedTransactionCallbackBody()
+      throws UnableToCompleteException {
+  }
+
+  /**
+   * Returns the SQL statement and parameters arguments of the shared
+   * TransactionCallback class: a String literal with a '?' for each
+   * parameter, and an array of the parameter expressions (or
+   * <code>null</code>).
+   */
+  private String getSharedStatementArguments()
+      throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    if (tokenizedStmt.size() == 1) {
+      return StringUtils.getEscapedString(tokenizedStmt.get(0)) + ", null";
+    }
+    StringBuilder sqlLiteral = new StringBuilder();
+    StringBuilder params = new StringBuilder("new Object[] {");
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      if ((i % 2) == 0) {
+        sqlLiteral.append(tokenizedStmt.get(i));
+      } else {
+        sqlLiteral.append("?");
+        if (i > 1) {
+          params.append(", ");
+        }
+        params.append(tokenizedStmt.get(i));
+      }
+    }
+    return StringUtils.getEscapedString(sqlLiteral.toString()) + ", "
+        + params.append("}");
+  }
+
+  /**
+   * Returns the expression of the key by which the calls of a write-behind
+   * service method are coalesced, or <code>null</code> if they are not
+   * coalesced. The key is prefixed with the SQL statement, so that calls of
+   * different service methods never coalesce.
+   */
+  private String getCoalesceKey() throws UnableToCompleteException {
+    String coalesce = ((Update) query).coalesce();
+    if (StringUtils.isEmpty(coalesce)) {
+      return "null";
+    }
+    return StringUtils.getEscapedString(getFlattenedSql() + "#") + " + ("
+        + coalesce + ")";
+  }
+
+  /**
+   * Returns <code>true</code> if the service method can be executed in a
+   * read-only transaction, which may run concurrently with other read-only
+   * transactions.
+   * 
+   * <p>
+   * This is inferred from the SQL statement rather than the annotation: an
+   * {@link Update} statement which only reads is executed in a read-only
+   * transaction, and a {@link Select} statement which writes is executed in a
+   * read/write transaction (with a warning).
+   * </p>
+   */
+  protected boolean isReadOnly() throws UnableToCompleteException {
+    boolean readOnly = TableNameParser.isReadOnly(getFlattenedSql());
+    if (query instanceof Select) {
+      if (!readOnly && StringUtils.isNotEmpty(((Select) query).prefetch())) {
+        logger.log(TreeLogger.ERROR, "The @Select statement of method "
+            + service.getName() + " does not only read from the database; "
+            + "it cannot be prefetched");
+        throw new UnableToCompleteException();
+      }
+      if (!readOnly) {
+        logger.log(TreeLogger.WARN, "The @Select statement of method "
+            + service.getName() + " does not only read from the database; "
+            + "it is executed in a read/write transaction. Use the @Update "
+            + "annotation instead");
+      }
+      return readOnly;
+    }
+    if (readOnly && query instanceof Update
+        && ((Update) query).writeBehind()) {
+      return false;
+    }
+    if (readOnly && query instanceof Update) {
+      logger.log(TreeLogger.DEBUG, "The @Update statement only reads from "
+          + "the database; it is executed in a read-only transaction");
+    }
+    return readOnly;
+  }
+
+  /**
+   * Returns the tables argument of the (read)transaction() call, which is
+   * used to maintain the ResultCache.
+   * 
+   * <p>
+   * For a read/write transaction, it is the name of the table modified by the
+   * statement (or <code>null</code> if unknown). For a cached {@link Select}
+   * (or prefetched) statement, it is the names of the tables it selects from. It is omitted
+   * for other read-only transactions.
+   * </p>
+   */
+  private String getTablesArgument(boolean readOnly)
+      throws UnableToCompleteException {
+    if (!readOnly) {
+      String table = TableNameParser.getModifiedTable(getFlattenedSql());
+      if (table == null) {
+        logger.log(TreeLogger.DEBUG, "Unable to determine the table modified "
+            + "by the SQL statement; it invalidates all cached resultsets");
+        return ", null";
+      }
+      return ", new String[] {" + StringUtils.getEscapedString(table) + "}";
+    }
+    if (query instanceof Select && (((Select) query).cached()
+        || StringUtils.isNotEmpty(((Select) query).prefetch()))) {
+      StringBuilder tables = new StringBuilder(", new String[] {");
+      String[] names = TableNameParser.getSelectedTables(getFlattenedSql());
+      for (int i = 0; i < names.length; i++) {
+        if (i > 0) {
+          tables.append(", ");
+        }
+        tables.append(StringUtils.getEscapedString(names[i]));
+      }
+      return tables.append("}").toString();
+    }
+    return "";
+  }
+
+  /**
+   * Returns the SQL statement with each parameter substituted for a '?'
+   * character.
+   */
+  private String getFlattenedSql() throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    StringBuilder flat = new StringBuilder();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      flat.append((i % 2) == 0 ? tokenizedStmt.get(i) : "?");
+    }
+    return flat.toString();
   }
 
   /**
@@ -128,6 +408,16 @@ public abstract class ServiceMethodCreator {
   protected abstract String getTransactionCallbackClassName()
       throws UnableToCompleteException;
 
+  /**
+   * Returns the constructor arguments of the TransactionCallback
+   * implementation. By default it is just the callback parameter of the service
+   * method.
+   */
+  protected String getTransactionCallbackArguments()
+      throws UnableToCompleteException {
+    return callback.getName();
+  }
+
   /**
    * Generates an iterating <code>tx.executeSql(...);</code> call statement.
    * 
@@ -166,6 +456,11 @@ public abstract class ServiceMethodCreator {
         forEachType = "Object";
       }
 
+      if (isBatched()) {
+        generateExecuteBatchedSqlStatements(collection, forEachType);
+        return;
+      }
+
       sw.println("for (" + forEachType + " _ : " + foreach + ") {");
       sw.indent();
       generateExecuteSqlStatement();
@@ -174,9 +469,200 @@ public abstract class ServiceMethodCreator {
     }
   }
 
+  /**
+   * Returns <code>true</code> if the iterated statements must be collapsed
+   * into multi-row INSERT statements.
+   * 
+   * @throws UnableToCompleteException if the <code>batchSize</code> attribute
+   *           is used without the <code>foreach</code> attribute
+   */
+  protected boolean isBatched() throws UnableToCompleteException {
+    if (!(query instanceof Update) || ((Update) query).batchSize() <= 0) {
+      return false;
+    }
+    if (StringUtils.isEmpty(foreach)) {
+      logger.log(TreeLogger.ERROR, "The 'batchSize' attribute of the @Update "
+          + "annotation can only be used with the 'foreach' attribute");
+      throw new UnableToCompleteException();
+    }
+    return true;
+  }
+
+  /**
+   * Generates code which loops over the <code>foreach</code> collection and
+   * executes a multi-row <code>INSERT ... VALUES (...),(...)</code> statement
+   * for each chunk of items.
+   * 
+   * <p>
+   * The chunk size is the <code>batchSize</code> attribute, limited by
+   * SQLite's maximum number of parameters and compound rows.
+   * </p>
+   * 
+   * @throws UnableToCompleteException
+   */
+  private void generateExecuteBatchedSqlStatements(JType collection,
+      String forEachType) throws UnableToCompleteException {
+    // Split the statement in a head, a VALUES tuple and a tail:
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    StringBuilder flat = new StringBuilder();
+    List<String> rowParams = new ArrayList<String>();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      if ((i % 2) == 0) {
+        flat.append(tokenizedStmt.get(i));
+      } else {
+        String expression = tokenizedStmt.get(i);
+        if (isDynamicParameter(expression)) {
+          logger.log(TreeLogger.ERROR, "The expression in the SQL statement '"
+              + expression + "' is a collection, which cannot be used in a "
+              + "batched (multi-row) INSERT statement");
+          throw new UnableToCompleteException();
+        }
+        flat.append(PARAM_MARKER);
+        rowParams.add(expression);
+      }
+    }
+    int[] tuple = findValuesTuple(flat.toString());
+    if (tuple == null) {
+      logger.log(TreeLogger.ERROR, "The 'batchSize' attribute of the @Update "
+          + "annotation can only be used with a single-row "
+          + "'INSERT ... VALUES (...)' statement");
+      throw new UnableToCompleteException();
+    }
+    String head = flat.substring(0, tuple[0]);
+    String row = flat.substring(tuple[0], tuple[1]).replace(PARAM_MARKER, '?');
+    String tail = flat.substring(tuple[1]);
+    if (head.indexOf(PARAM_MARKER) >= 0 || tail.indexOf(PARAM_MARKER) >= 0) {
+      logger.log(TreeLogger.ERROR, "Parameters of a batched (multi-row) "
+          + "INSERT statement must be specified within the VALUES (...) "
+          + "clause");
+      throw new UnableToCompleteException();
+    }
+
+    int paramsPerRow = rowParams.size();
+    int chunkSize = Math.min(((Update) query).batchSize(),
+        DataServiceUtils.MAX_COMPOUND_ROWS);
+    if (paramsPerRow > 0) {
+      chunkSize = Math.min(chunkSize, DataServiceUtils.MAX_VARIABLE_NUMBER
+          / paramsPerRow);
+    }
+    logger.log(TreeLogger.DEBUG, "Inserting at most " + chunkSize
+        + " rows per statement");
+
+    String paramsVarName = GeneratorUtils.getVariableName("params",
+        service.getParameters());
+    String rowsVarName = GeneratorUtils.getVariableName("rows",
+        service.getParameters());
+    String remainingVarName = GeneratorUtils.getVariableName("remaining",
+        service.getParameters());
+
+    if (collection != null && collection.isArray() != null) {
+      sw.println("int " + remainingVarName + " = " + foreach + ".length;");
+    } else {
+      sw.println("int " + remainingVarName + " = "
+          + genUtils.getClassName(DataServiceUtils.class) + ".getSize("
+          + foreach + ");");
+    }
+    sw.println("int " + rowsVarName + " = 0;");
+    sw.println("Object[] " + paramsVarName + " = null;");
+    sw.println("for (" + forEachType + " _ : " + foreach + ") {");
+    sw.indent();
+    sw.println("if (" + rowsVarName + " == 0) {");
+    sw.indentln(paramsVarName + " = new Object[Math.min(" + remainingVarName
+        + ", " + chunkSize + ") * " + paramsPerRow + "];");
+    sw.println("}");
+    for (int i = 0; i < paramsPerRow; i++) {
+      sw.println(paramsVarName + "[" + rowsVarName + " * " + paramsPerRow
+          + " + " + i + "] = " + rowParams.get(i) + ";");
+    }
+    sw.println(rowsVarName + "++;");
+    sw.println(remainingVarName + "--;");
+    sw.println("if (" + rowsVarName + " == " + chunkSize + " || "
+        + remainingVarName + " == 0) {");
+    sw.indent();
+    sw.print("exec(" + txVarName + ", "
+        + genUtils.getClassName(DataServiceUtils.class) + ".getBatchSql("
+        + StringUtils.getEscapedString(head) + ", "
+        + StringUtils.getEscapedString(row) + ", "
+        + StringUtils.getEscapedString(tail) + ", " + rowsVarName + "), "
+        + paramsVarName);
+    generateStatementCallbackParameter();
+    sw.println(");");
+    sw.println(rowsVarName + " = 0;");
+    sw.outdent();
+    sw.println("}");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns the begin (inclusive) and end (exclusive) index of the
+   * parenthesized tuple following the <code>VALUES</code> keyword of an
+   * <code>INSERT</code> (or <code>REPLACE</code>) statement, or
+   * <code>null</code> if the statement has no such tuple.
+   */
+  static int[] findValuesTuple(String stmt) {
+    String upper = stmt.toUpperCase();
+    String trimmed = upper.trim();
+    if (!trimmed.startsWith("INSERT") && !trimmed.startsWith("REPLACE")) {
+      return null;
+    }
+    // Skip identifiers like 'my_values' or 'values$2':
+    int index = upper.indexOf("VALUES");
+    while (index >= 0 && (isIdentifierPart(upper, index - 1)
+        || isIdentifierPart(upper, index + "VALUES".length()))) {
+      index = upper.indexOf("VALUES", index + 1);
+    }
+    if (index < 0) {
+      return null;
+    }
+    int begin = index + "VALUES".length();
+    while (begin < stmt.length() && Character.isWhitespace(stmt.charAt(begin))) {
+      begin++;
+    }
+    if (begin == stmt.length() || stmt.charAt(begin) != '(') {
+      return null;
+    }
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = begin; i < stmt.length(); i++) {
+      char ch = stmt.charAt(i);
+      if (ch == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && ch == '(') {
+        depth++;
+      } else if (!quoted && ch == ')') {
+        depth--;
+        if (depth == 0) {
+          return new int[] {begin, i + 1};
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns <code>true</code> if the character at the specified index is part
+   * of a SQL identifier.
+   */
+  private static boolean isIdentifierPart(String stmt, int index) {
+    if (index < 0 || index >= stmt.length()) {
+      return false;
+    }
+    char ch = stmt.charAt(index);
+    return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+  }
+
   /**
    * Generates a <code>tx.executeSql(...);</code> call statement.
    * 
+   * <p>
+   * If the statement incorporates dynamic list(s) of parameters (e.g.
+   * <code>IN()</code> statements), the SQL string depends on the size of each
+   * list. The generated code then looks up the SQL string in the
+   * {@link #getSqlCacheName() SQL cache} of the service method, so that it is
+   * built only once for each distinct combination of list sizes.
+   * </p>
+   * 
    * @throws UnableToCompleteException
    */
   protected void generateExecuteSqlStatement() throws UnableToCompleteException {
@@ -200,9 +686,10 @@ public abstract class ServiceMethodCreator {
           paramsVarName).append(" = {");
       StringBuilder prepParamsArrayDynamic = new StringBuilder("Object[] ").append(
           paramsVarName).append(" = new Object[");
+      StringBuilder sqlCacheKey = new StringBuilder();
       // Determine amount of parameters (to size the array) and whether dynamic
       // parameters are applied:
-      boolean hasDynamics = false;
+      List<String> sizeVarNames = new ArrayList<String>();
       for (int i = 0; i < tokenizedStmt.size(); i++) {
         if ((i % 2) == 0) {
           // SQL token:
@@ -217,15 +704,24 @@ public abstract class ServiceMethodCreator {
           if (isDynamicParameter(expression)) {
             // Aha! We have a collection or array used as input parameter.
             // This means some different statement builder code!
-            hasDynamics = true;
+            String sizeVarName = GeneratorUtils.getVariableName("size"
+                + sizeVarNames.size(), service.getParameters());
             JType type = GeneratorUtils.findType(expression,
                 service.getParameters());
             if (type.isArray() != null) {
-              prepParamsArrayDynamic.append(expression + ".length");
+              sw.println("int " + sizeVarName + " = " + expression
+                  + ".length;");
             } else {
-              prepParamsArrayDynamic.append(genUtils.getClassName(DataServiceUtils.class)
-                  + ".getSize(" + expression + ")");
+              sw.println("int " + sizeVarName + " = "
+                  + genUtils.getClassName(DataServiceUtils.class)
+                  + ".getSize(" + expression + ");");
+            }
+            sizeVarNames.add(sizeVarName);
+            prepParamsArrayDynamic.append(sizeVarName);
+            if (sqlCacheKey.length() > 0) {
+              sqlCacheKey.append(" + \",\" + ");
             }
+            sqlCacheKey.append(sizeVarName);
           } else {
             prepParamsArrayDynamic.append("1");
             prepParamsArrayStatic.append(expression);
@@ -236,6 +732,7 @@ public abstract class ServiceMethodCreator {
       // Now we determined whether the SQL statement to generate incorporates
       // dynamic list(s) of parameters (e.g. IN() statements).
       // This greatly influences the Java code to generate:
+      boolean hasDynamics = sizeVarNames.size() > 0;
       String sqlVarName = GeneratorUtils.getVariableName("sql",
           service.getParameters());
       String indexVarName = GeneratorUtils.getVariableName("i",
@@ -243,8 +740,9 @@ public abstract class ServiceMethodCreator {
       if (hasDynamics) {
         prepParamsArrayDynamic.append("];");
         sw.println(prepParamsArrayDynamic.toString());
+        generateCachedSqlStatement(tokenizedStmt, sizeVarNames,
+            sqlCacheKey.toString(), sqlVarName);
         sw.println("int " + indexVarName + " = 0;");
-        sw.println("StringBuilder " + sqlVarName + " = new StringBuilder();");
       } else {
         prepParamsArrayStatic.append("};");
         sw.println(prepParamsArrayStatic.toString());
@@ -260,13 +758,9 @@ public abstract class ServiceMethodCreator {
         } else {
           // Parameter token:
           if (isDynamicParameter(token)) {
-            sw.println(sqlVarName + ".append("
-                + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
-            sqlLiteral = new StringBuilder();
-
             sw.println(indexVarName + " = "
                 + genUtils.getClassName(DataServiceUtils.class)
-                + ".addParameter(" + sqlVarName + ", " + paramsVarName + ", "
+                + ".addParameter(null, " + paramsVarName + ", "
                 + indexVarName + ", " + token + ");");
           } else {
             sqlLiteral.append("?");
@@ -279,13 +773,8 @@ public abstract class ServiceMethodCreator {
       }
 
       if (hasDynamics) {
-        if (sqlLiteral.length() > 0) {
-          sw.println(sqlVarName + ".append("
-              + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
-        }
-
-        // Invoke the actual executeSql method:
-        sw.print("exec(" + txVarName + ", " + sqlVarName + ".toString(), "
+        // Invoke the actual executeSql method with the cached statement:
+        sw.print("exec(" + txVarName + ", " + sqlVarName + ", "
             + paramsVarName);
       } else {
         // Invoke the actual executeSql method with a String literal:
@@ -300,6 +789,106 @@ public abstract class ServiceMethodCreator {
     sw.println(");");
   }
 
+  /**
+   * Generates code which obtains the SQL statement with dynamic list(s) of
+   * parameters from the SQL cache, and builds (and caches) the statement if it
+   * is not available yet.
+   * 
+   * @param tokenizedStmt the tokenized SQL statement
+   * @param sizeVarNames the names of the variables holding the size of each
+   *          dynamic parameter, in order of appearance
+   * @param sqlCacheKey the expression which evaluates to the cache key
+   * @param sqlVarName the name of the String variable to hold the statement
+   */
+  private void generateCachedSqlStatement(List<String> tokenizedStmt,
+      List<String> sizeVarNames, String sqlCacheKey, String sqlVarName)
+      throws UnableToCompleteException {
+    String keyVarName = GeneratorUtils.getVariableName("sqlKey",
+        service.getParameters());
+    String builderVarName = GeneratorUtils.getVariableName("sqlBuilder",
+        service.getParameters());
+    if (sizeVarNames.size() == 1) {
+      sqlCacheKey = "String.valueOf(" + sqlCacheKey + ")";
+    }
+    sw.println("String " + keyVarName + " = " + sqlCacheKey + ";");
+    sw.println("String " + sqlVarName + " = " + getSqlCacheName() + ".get("
+        + keyVarName + ");");
+    sw.println("if (" + sqlVarName + " == null) {");
+    sw.indent();
+    sw.println("StringBuilder " + builderVarName + " = new StringBuilder();");
+    StringBuilder sqlLiteral = new StringBuilder();
+    int dynamicIndex = 0;
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      String token = tokenizedStmt.get(i);
+      if ((i % 2) == 0) {
+        sqlLiteral.append(token);
+      } else if (isDynamicParameter(token)) {
+        sw.println(builderVarName + ".append("
+            + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
+        sqlLiteral = new StringBuilder();
+        sw.println(genUtils.getClassName(DataServiceUtils.class)
+            + ".appendPlaceholders(" + builderVarName + ", "
+            + sizeVarNames.get(dynamicIndex++) + ");");
+      } else {
+        sqlLiteral.append("?");
+      }
+    }
+    if (sqlLiteral.length() > 0) {
+      sw.println(builderVarName + ".append("
+          + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
+    }
+    sw.println(sqlVarName + " = " + getSqlCacheName() + ".put(" + keyVarName
+        + ", " + builderVarName + ".toString());");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns <code>true</code> if the SQL statement of this service method
+   * applies dynamic list(s) of parameters, which means that it needs a SQL
+   * cache.
+   */
+  public boolean needsSqlCache() throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      if (isDynamicParameter(tokenizedStmt.get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Generates the static field holding the SQL cache of this service method.
+   */
+  public void generateSqlCacheField() {
+    sw.println();
+    sw.println("private static final "
+        + genUtils.getClassName(SqlStatementCache.class) + " "
+        + getSqlCacheName() + " = new "
+        + genUtils.getClassName(SqlStatementCache.class) + "();");
+  }
+
+  /**
+   * Generates additional static members of the proxy class this service method
+   * depends on. By default nothing is generated.
+   * 
+   * @param memberNames the names of the static members generated so far. Any
+   *          member generated must be added; a member already present must not
+   *          be generated again.
+   */
+  public void generateProxyMembers(Set<String> memberNames)
+      throws UnableToCompleteException {
+  }
+
+  /**
+   * Returns the name of the static field holding the SQL cache of this service
+   * method.
+   */
+  protected String getSqlCacheName() {
+    return sqlCacheName;
+  }
+
   /**
    * generates the callback parameter expression (to <code>sw</code>).
    * 
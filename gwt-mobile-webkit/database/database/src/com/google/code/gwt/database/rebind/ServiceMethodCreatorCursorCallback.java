@@ -0,0 +1,45 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import com.google.code.gwt.database.client.service.CursorCallback;
+import com.google.code.gwt.database.client.service.callback.cursor.StatementCallbackCursorCallback;
+import com.google.code.gwt.database.client.service.callback.cursor.TransactionCallbackCursorCallback;
+import com.google.gwt.core.ext.UnableToCompleteException;
+
+/**
+ * Represents a ServiceMethodCreator for the {@link CursorCallback} type.
+ * 
+ * @author bguijt
+ */
+public class ServiceMethodCreatorCursorCallback extends ServiceMethodCreator {
+
+  @Override
+  protected String getTransactionCallbackClassName()
+      throws UnableToCompleteException {
+    return genUtils.getClassName(TransactionCallbackCursorCallback.class) + "<"
+        + genUtils.getTypeParameter(callback.getType()) + ">";
+  }
+
+  @Override
+  protected void generateStatementCallbackParameter()
+      throws UnableToCompleteException {
+    sw.print(", new "
+        + genUtils.getClassName(StatementCallbackCursorCallback.class) + "<"
+        + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+  }
+}
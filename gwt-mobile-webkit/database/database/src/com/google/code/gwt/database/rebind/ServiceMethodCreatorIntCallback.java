@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.rebind;
+
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackIntCallback;
+
+/**
+ * Represents a ServiceMethodCreator for the {@link IntCallback} type. The
+ * StatementCallback is provided by {@link TransactionCallbackIntCallback}.
+ * 
+ * @author bguijt
+ */
+public class ServiceMethodCreatorIntCallback extends ServiceMethodCreator {
+
+  @Override
+  protected String getTransactionCallbackClassName() {
+    return genUtils.getClassName(TransactionCallbackIntCallback.class);
+  }
+
+  @Override
+  protected void generateStatementCallbackParameter() {
+    sw.print(", createStatementCallback()");
+  }
+}
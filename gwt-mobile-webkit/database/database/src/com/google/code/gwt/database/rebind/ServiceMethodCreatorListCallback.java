@@ -14,16 +14,39 @@
  * the License.
  */
 
+
 package com.google.code.gwt.database.rebind;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
 import com.google.code.gwt.database.client.service.ListCallback;
 import com.google.code.gwt.database.client.service.callback.list.StatementCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.StatementCallbackMappedListCallback;
 import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackMappedListCallback;
+import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.util.StringUtils;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.UnsafeNativeLong;
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JField;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JType;
 
 /**
  * Represents a ServiceMethodCreator for the {@link ListCallback} type.
  * 
+ * <p>
+ * If the row type of the ListCallback is not a {@link JavaScriptObject}, a
+ * static JSNI row mapper method is generated for it, which copies each column
+ * directly into the field with the same name.
+ * </p>
+ * 
  * @author bguijt
  */
 public class ServiceMethodCreatorListCallback extends ServiceMethodCreator {
@@ -31,14 +54,195 @@ public class ServiceMethodCreatorListCallback extends ServiceMethodCreator {
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
-    return genUtils.getClassName(TransactionCallbackListCallback.class) + "<"
+    Class<?> clazz = isMapped() ? TransactionCallbackMappedListCallback.class
+        : TransactionCallbackListCallback.class;
+    return genUtils.getClassName(clazz) + "<"
         + genUtils.getTypeParameter(callback.getType()) + ">";
   }
 
   @Override
   protected void generateStatementCallbackParameter() throws UnableToCompleteException {
-    sw.print(", new "
-        + genUtils.getClassName(StatementCallbackListCallback.class) + "<"
-        + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+    if (isMapped()) {
+      sw.print(", new "
+          + genUtils.getClassName(StatementCallbackMappedListCallback.class)
+          + "(this)");
+    } else {
+      sw.print(", new "
+          + genUtils.getClassName(StatementCallbackListCallback.class) + "<"
+          + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+    }
+  }
+
+  @Override
+  protected void generateTransactionCallbackBody()
+      throws UnableToCompleteException {
+    super.generateTransactionCallbackBody();
+    generateSharedTransactionCallbackBody();
+  }
+
+  /**
+   * Generates the mapRow() method of a mapped row type, which invokes the
+   * static row mapper method.
+   */
+  @Override
+  protected void generateSharedTransactionCallbackBody() {
+    if (isMapped()) {
+      sw.println("protected " + genUtils.getClassName(getRowType())
+          + " mapRow(" + genUtils.getClassName(JavaScriptObject.class)
+          + " row) {");
+      sw.indentln("return " + getRowMapperName() + "(row);");
+      sw.println("}");
+    }
+  }
+
+  /**
+   * Generates the static JSNI row mapper method, unless it was already
+   * generated for another service method with the same row type.
+   */
+  @Override
+  public void generateProxyMembers(Set<String> memberNames)
+      throws UnableToCompleteException {
+    if (!isMapped() || !memberNames.add(getRowMapperName())) {
+      return;
+    }
+
+    JClassType rowType = getRowType();
+    String rowTypeName = rowType.getQualifiedSourceName();
+
+    // Assertions:
+    if (rowType.isClass() == null || rowType.isAbstract()
+        || (rowType.isMemberType() && !rowType.isStatic())) {
+      logger.log(TreeLogger.ERROR, "The type parameter of "
+          + genUtils.getClassName(ListCallback.class) + " ('" + rowTypeName
+          + "') must be either a JavaScriptObject or a concrete, static class");
+      throw new UnableToCompleteException();
+    }
+    if (rowType.findConstructor(new JType[0]) == null) {
+      logger.log(TreeLogger.ERROR, "The type parameter of "
+          + genUtils.getClassName(ListCallback.class) + " ('" + rowTypeName
+          + "') must have a no-argument constructor");
+      throw new UnableToCompleteException();
+    }
+
+    // Generate the assignment of each mappable field:
+    List<String> assignments = new ArrayList<String>();
+    boolean needsLong = false;
+    for (JClassType type = rowType; type != null
+        && !GeneratorUtils.isType(type, Object.class); type = type.getSuperclass()) {
+      for (JField field : type.getFields()) {
+        if (field.isStatic() || field.isFinal() || field.isTransient()) {
+          continue;
+        }
+        String value = getFieldValueExpression(field.getType());
+        if (value == null) {
+          logger.log(TreeLogger.WARN, "Field '" + field.getName() + "' of "
+              + rowTypeName + " has an unsupported type ("
+              + field.getType().getQualifiedSourceName()
+              + ") and is not mapped");
+          continue;
+        }
+        needsLong |= value.contains("::toLong(");
+        assignments.add("v = row[" + StringUtils.getEscapedString(field.getName())
+            + "];");
+        assignments.add("if (v !== undefined) o.@"
+            + type.getQualifiedSourceName() + "::" + field.getName() + " = "
+            + value + ";");
+      }
+    }
+
+    sw.println();
+    sw.beginJavaDocComment();
+    sw.print("Returns a new " + rowTypeName + " holding the columns of the row.");
+    sw.endJavaDocComment();
+    if (needsLong) {
+      sw.println("@" + UnsafeNativeLong.class.getCanonicalName());
+    }
+    sw.println("private static native " + genUtils.getClassName(rowType) + " "
+        + getRowMapperName() + "("
+        + genUtils.getClassName(JavaScriptObject.class) + " row) /*-{");
+    sw.indent();
+    sw.println("var o = @" + rowTypeName + "::new()();");
+    sw.println("var v;");
+    for (String assignment : assignments) {
+      sw.println(assignment);
+    }
+    sw.println("return o;");
+    sw.outdent();
+    sw.println("}-*/;");
+  }
+
+  /**
+   * Returns the JSNI expression converting the column value <code>v</code> to
+   * the specified field type, or <code>null</code> if the type is unsupported.
+   * 
+   * <p>
+   * SQLite may return a number, a String or <code>null</code> for any column
+   * (e.g. a REAL value, or a TEXT value like "12"), so numbers are converted
+   * (and truncated) like a Java cast would.
+   * </p>
+   */
+  private String getFieldValueExpression(JType type) {
+    String toLong = "@" + DataServiceUtils.class.getCanonicalName()
+        + "::toLong(D)(+v)";
+    String toBoolean = "v != null && +v != 0";
+    String toInt = "v | 0";
+    String toShort = "(v << 16) >> 16";
+    String toByte = "(v << 24) >> 24";
+    String toDouble = "v == null ? 0 : +v";
+    JPrimitiveType primitive = type.isPrimitive();
+    if (primitive == JPrimitiveType.BOOLEAN) {
+      return toBoolean;
+    } else if (primitive == JPrimitiveType.LONG) {
+      return "v == null ? " + toLong.replace("(+v)", "(0)") + " : " + toLong;
+    } else if (primitive == JPrimitiveType.INT) {
+      return toInt;
+    } else if (primitive == JPrimitiveType.SHORT) {
+      return toShort;
+    } else if (primitive == JPrimitiveType.BYTE) {
+      return toByte;
+    } else if (primitive == JPrimitiveType.DOUBLE
+        || primitive == JPrimitiveType.FLOAT) {
+      return toDouble;
+    } else if (primitive != null) {
+      return null;
+    } else if (GeneratorUtils.isType(type, String.class)) {
+      return "v == null ? null : String(v)";
+    } else if (GeneratorUtils.isType(type, Boolean.class)) {
+      return "v == null ? null : @java.lang.Boolean::valueOf(Z)(+v != 0)";
+    } else if (GeneratorUtils.isType(type, Long.class)) {
+      return "v == null ? null : @java.lang.Long::valueOf(J)(" + toLong + ")";
+    } else if (GeneratorUtils.isType(type, Date.class)) {
+      return "v == null ? null : @java.util.Date::new(J)(" + toLong + ")";
+    }
+    String[][] wrappers = {
+        {"Integer", "I", toInt}, {"Short", "S", toShort},
+        {"Byte", "B", toByte}, {"Double", "D", "+v"}, {"Float", "F", "+v"}};
+    for (String[] wrapper : wrappers) {
+      if (type.getQualifiedSourceName().equals("java.lang." + wrapper[0])) {
+        return "v == null ? null : @java.lang." + wrapper[0] + "::valueOf("
+            + wrapper[1] + ")(" + wrapper[2] + ")";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns <code>true</code> if the row type is not a JavaScriptObject, and
+   * must be mapped.
+   */
+  private boolean isMapped() {
+    return !genUtils.isAssignableToType(getRowType(), JavaScriptObject.class);
+  }
+
+  private JClassType getRowType() {
+    return callback.getType().isParameterized().getTypeArgs()[0];
+  }
+
+  /**
+   * Returns the name of the static row mapper method of the row type.
+   */
+  private String getRowMapperName() {
+    return "mapRow_"
+        + getRowType().getQualifiedSourceName().replace('.', '_');
   }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.rebind;
+
+import com.google.code.gwt.database.client.service.LongCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackLongCallback;
+
+/**
+ * Represents a ServiceMethodCreator for the {@link LongCallback} type. The
+ * StatementCallback is provided by {@link TransactionCallbackLongCallback}.
+ * 
+ * @author bguijt
+ */
+public class ServiceMethodCreatorLongCallback extends ServiceMethodCreator {
+
+  @Override
+  protected String getTransactionCallbackClassName() {
+    return genUtils.getClassName(TransactionCallbackLongCallback.class);
+  }
+
+  @Override
+  protected void generateStatementCallbackParameter() {
+    sw.print(", createStatementCallback()");
+  }
+}
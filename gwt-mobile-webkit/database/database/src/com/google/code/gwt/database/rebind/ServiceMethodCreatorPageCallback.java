@@ -0,0 +1,129 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.rebind;
+
+import java.lang.annotation.Annotation;
+import java.util.regex.Pattern;
+
+import com.google.code.gwt.database.client.service.PageCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.callback.page.StatementCallbackPageCallback;
+import com.google.code.gwt.database.client.service.callback.page.TransactionCallbackPageCallback;
+import com.google.code.gwt.database.client.util.StringUtils;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.user.rebind.SourceWriter;
+
+/**
+ * Represents a ServiceMethodCreator for the {@link PageCallback} type.
+ * 
+ * <p>
+ * The SQL statement is extended with a <code>LIMIT</code> clause which
+ * selects one more row than the {@link Select#pageSize()}, followed by an
+ * <code>OFFSET</code> clause if the {@link Select#page()} attribute is
+ * specified.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class ServiceMethodCreatorPageCallback extends ServiceMethodCreator {
+
+  private static final Pattern LIMIT_PATTERN = Pattern.compile(
+      "\\bLIMIT\\b", Pattern.CASE_INSENSITIVE);
+
+  private int pageSize;
+  private String page;
+
+  @Override
+  public void setContext(GeneratorContext context, TreeLogger logger,
+      SourceWriter sw, JMethod service, String sql, String foreach,
+      Annotation query, GeneratorUtils genUtils) {
+    if (query instanceof Select) {
+      pageSize = ((Select) query).pageSize();
+      page = ((Select) query).page();
+    }
+    super.setContext(context, logger, sw, service, getPagedSql(sql), foreach,
+        query, genUtils);
+  }
+
+  @Override
+  public void generateServiceMethodBody() throws UnableToCompleteException {
+    if (!(query instanceof Select) || pageSize <= 0) {
+      logger.log(TreeLogger.ERROR, "The " + PageCallback.class.getSimpleName()
+          + " can only be used with the 'pageSize' attribute of the @Select "
+          + "annotation");
+      throw new UnableToCompleteException();
+    }
+    if (LIMIT_PATTERN.matcher(((Select) query).value()
+        + ((Select) query).sql()).find()) {
+      logger.log(TreeLogger.ERROR, "The SQL statement may not specify a "
+          + "LIMIT clause when the 'pageSize' attribute is specified");
+      throw new UnableToCompleteException();
+    }
+    if (StringUtils.isNotEmpty(page)) {
+      JType type = GeneratorUtils.findType(page, service.getParameters());
+      if (type == null || !("int".equals(type.getQualifiedSourceName())
+          || Integer.class.getName().equals(type.getQualifiedSourceName()))) {
+        logger.log(TreeLogger.ERROR, "The 'page' attribute of the @Select "
+            + "annotation must name an int parameter of the service method");
+        throw new UnableToCompleteException();
+      }
+    }
+    super.generateServiceMethodBody();
+  }
+
+  /**
+   * Returns the specified SQL statement with the LIMIT and OFFSET clauses
+   * appended to it.
+   */
+  private String getPagedSql(String sql) {
+    if (pageSize <= 0) {
+      return sql;
+    }
+    String paged = sql.trim();
+    if (paged.endsWith(";")) {
+      paged = paged.substring(0, paged.length() - 1);
+    }
+    paged += " LIMIT " + (pageSize + 1);
+    if (StringUtils.isNotEmpty(page)) {
+      paged += " OFFSET {" + page + " * " + pageSize + "}";
+    }
+    return paged;
+  }
+
+  @Override
+  protected String getTransactionCallbackClassName()
+      throws UnableToCompleteException {
+    return genUtils.getClassName(TransactionCallbackPageCallback.class) + "<"
+        + genUtils.getTypeParameter(callback.getType()) + ">";
+  }
+
+  @Override
+  protected String getTransactionCallbackArguments()
+      throws UnableToCompleteException {
+    return callback.getName() + ", " + pageSize;
+  }
+
+  @Override
+  protected void generateStatementCallbackParameter() throws UnableToCompleteException {
+    sw.print(", new "
+        + genUtils.getClassName(StatementCallbackPageCallback.class) + "<"
+        + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+  }
+}
@@ -16,10 +16,13 @@
 
 package com.google.code.gwt.database.rebind;
 
+import java.util.regex.Pattern;
+
 import com.google.code.gwt.database.client.service.RowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.StatementCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.TransactionCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.util.StringUtils;
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 
 /**
@@ -29,6 +32,33 @@ import com.google.gwt.core.ext.UnableToCompleteException;
  */
 public class ServiceMethodCreatorRowIdListCallback extends ServiceMethodCreator {
 
+  /**
+   * Matches the statements which may skip or replace rows, and thus break the
+   * consecutive ROWIDs of a multi-row INSERT statement.
+   */
+  private static final Pattern CONFLICT_RESOLUTION = Pattern.compile(
+      "^\\s*(?:REPLACE|INSERT\\s+OR\\s+(?:IGNORE|REPLACE))\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The ROWIDs of a batched INSERT statement are derived from the ROWID of its
+   * last row, which requires every row to be inserted.
+   */
+  @Override
+  protected boolean isBatched() throws UnableToCompleteException {
+    if (!super.isBatched()) {
+      return false;
+    }
+    if (CONFLICT_RESOLUTION.matcher(sql).find()) {
+      logger.log(TreeLogger.ERROR, "The 'batchSize' attribute of the @Update "
+          + "annotation cannot be used with an 'INSERT OR IGNORE' or "
+          + "'REPLACE' statement and a RowIdListCallback, since the ROWIDs of "
+          + "the skipped or replaced rows cannot be determined");
+      throw new UnableToCompleteException();
+    }
+    return true;
+  }
+
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
@@ -45,8 +75,10 @@ public class ServiceMethodCreatorRowIdListCallback extends ServiceMethodCreator
     String callbackInstanceName = GeneratorUtils.getVariableName(
         "rowIdListCallback", service.getParameters());
 
+    // Multi-row INSERT statements report the ROWID of the last row only:
     sw.println("final " + stmtCallbackName + " " + callbackInstanceName
-        + " = new " + stmtCallbackName + "(this);");
+        + " = new " + stmtCallbackName + "(this" + (isBatched() ? ", true" : "")
+        + ");");
 
     if (StringUtils.isNotEmpty(foreach)) {
       generateExecuteIteratedSqlStatements();
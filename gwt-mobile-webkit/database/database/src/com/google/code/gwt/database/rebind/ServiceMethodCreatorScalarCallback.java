@@ -18,6 +18,7 @@ package com.google.code.gwt.database.rebind;
 
 import com.google.code.gwt.database.client.SQLResultSet;
 import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.service.ScalarCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
 import com.google.code.gwt.database.client.service.callback.scalar.ScalarRow;
@@ -64,38 +65,59 @@ public class ServiceMethodCreatorScalarCallback extends ServiceMethodCreator {
   }
 
   @Override
-  protected void generateStatementCallbackParameter()
+  protected void generateStatementCallbackParameter() {
+    sw.print(", createStatementCallback()");
+  }
+
+  @Override
+  protected void generateTransactionCallbackBody()
       throws UnableToCompleteException {
-    String rowType = genUtils.getClassName(ScalarRow.class) + "<"
-        + genUtils.getClassName(getScalarType()) + ">";
-    String rsVarName = GeneratorUtils.getVariableName("resultSet",
-        service.getParameters());
-    String txVarName = GeneratorUtils.getVariableName("transaction",
-        service.getParameters());
-    String ecVarName = GeneratorUtils.getVariableName("code",
-        service.getParameters());
-    String emVarName = GeneratorUtils.getVariableName("message",
-        service.getParameters());
+    super.generateTransactionCallbackBody();
+    generateCreateStatementCallbackMethod();
+  }
 
-    sw.println(", new "
+  @Override
+  protected void generateSharedTransactionCallbackBody() {
+    generateCreateStatementCallbackMethod();
+  }
+
+  /**
+   * Generates the createStatementCallback() method, which returns a
+   * StatementCallback storing the scalar value of the resultSet.
+   */
+  private void generateCreateStatementCallbackMethod() {
+    String rowType = getRowType();
+    sw.println("protected " + genUtils.getClassName(StatementCallback.class)
+        + "<?> createStatementCallback() {");
+    sw.indent();
+    sw.println("return new "
         + genUtils.getClassName(DataServiceStatementCallback.class) + "<"
         + rowType + ">() {");
     sw.indent();
     sw.println("public void onSuccess("
-        + genUtils.getClassName(SQLTransaction.class) + " " + txVarName + ", "
-        + genUtils.getClassName(SQLResultSet.class) + "<" + rowType + "> "
-        + rsVarName + ") {");
-    sw.indentln("storeValue(" + rsVarName + ".getRows().getItem(0).get"
+        + genUtils.getClassName(SQLTransaction.class) + " transaction, "
+        + genUtils.getClassName(SQLResultSet.class) + "<" + rowType
+        + "> resultSet) {");
+    sw.indentln("storeValue(resultSet.getRows().getItem(0).get"
         + genUtils.getClassName(getScalarType()) + "());");
     sw.println("}");
 
-    sw.println("protected void storeError(int " + ecVarName + ", String "
-        + emVarName + ") {");
-    sw.indentln("storeStatementError(" + ecVarName + ", " + emVarName + ");");
+    sw.println("protected void storeError(int code, String message) {");
+    sw.indentln("storeStatementError(code, message);");
     sw.println("}");
 
     sw.outdent();
-    sw.print("}");
+    sw.println("};");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns the row type of the resultSet handled by the StatementCallback.
+   */
+  private String getRowType() {
+    return genUtils.getClassName(ScalarRow.class) + "<"
+        + genUtils.getClassName(getScalarType()) + ">";
   }
 
   private JType getScalarType() {
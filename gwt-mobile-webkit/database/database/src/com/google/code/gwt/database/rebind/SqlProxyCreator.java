@@ -18,29 +18,50 @@ package com.google.code.gwt.database.rebind;
 
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.google.code.gwt.database.client.Database;
 import com.google.code.gwt.database.client.DatabaseException;
 import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.service.Callback;
 import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.CursorCallback;
 import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DoubleCallback;
+import com.google.code.gwt.database.client.service.FullTextSearch;
+import com.google.code.gwt.database.client.service.IntCallback;
 import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.LongCallback;
+import com.google.code.gwt.database.client.service.Migration;
+import com.google.code.gwt.database.client.service.PageCallback;
 import com.google.code.gwt.database.client.service.RowIdListCallback;
 import com.google.code.gwt.database.client.service.ScalarCallback;
 import com.google.code.gwt.database.client.service.Select;
 import com.google.code.gwt.database.client.service.Update;
 import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
+import com.google.code.gwt.database.client.service.callback.cursor.StatementCallbackCursorCallback;
+import com.google.code.gwt.database.client.service.callback.cursor.TransactionCallbackCursorCallback;
 import com.google.code.gwt.database.client.service.callback.list.StatementCallbackListCallback;
 import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.page.StatementCallbackPageCallback;
+import com.google.code.gwt.database.client.service.callback.page.TransactionCallbackPageCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.StatementCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.TransactionCallbackRowIdListCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackDoubleCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackIntCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackLongCallback;
 import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackScalarCallback;
 import com.google.code.gwt.database.client.service.callback.voyd.StatementCallbackVoidCallback;
 import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
 import com.google.code.gwt.database.client.service.impl.BaseDataService;
 import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.service.impl.SqlStatementCache;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
@@ -50,6 +71,8 @@ import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JPackage;
 import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.dev.util.Util;
 import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
 import com.google.gwt.user.rebind.SourceWriter;
@@ -71,18 +94,31 @@ public class SqlProxyCreator {
       Database.class.getCanonicalName(),
       SQLTransaction.class.getCanonicalName(), BaseDataService.class.getName(),
       DataServiceUtils.class.getCanonicalName(),
+      SqlStatementCache.class.getCanonicalName(),
       VoidCallback.class.getCanonicalName(),
       ListCallback.class.getCanonicalName(),
       ScalarCallback.class.getCanonicalName(),
+      IntCallback.class.getCanonicalName(),
+      LongCallback.class.getCanonicalName(),
+      DoubleCallback.class.getCanonicalName(),
       RowIdListCallback.class.getCanonicalName(),
+      CursorCallback.class.getCanonicalName(),
+      PageCallback.class.getCanonicalName(),
       DataServiceStatementCallback.class.getCanonicalName(),
       StatementCallbackVoidCallback.class.getCanonicalName(),
       StatementCallbackListCallback.class.getCanonicalName(),
       StatementCallbackRowIdListCallback.class.getCanonicalName(),
+      StatementCallbackCursorCallback.class.getCanonicalName(),
+      StatementCallbackPageCallback.class.getCanonicalName(),
       TransactionCallbackVoidCallback.class.getCanonicalName(),
       TransactionCallbackScalarCallback.class.getCanonicalName(),
+      TransactionCallbackIntCallback.class.getCanonicalName(),
+      TransactionCallbackLongCallback.class.getCanonicalName(),
+      TransactionCallbackDoubleCallback.class.getCanonicalName(),
       TransactionCallbackListCallback.class.getCanonicalName(),
       TransactionCallbackRowIdListCallback.class.getCanonicalName(),
+      TransactionCallbackCursorCallback.class.getCanonicalName(),
+      TransactionCallbackPageCallback.class.getCanonicalName(),
       DatabaseException.class.getCanonicalName()};
 
   private TreeLogger logger;
@@ -91,12 +127,24 @@ public class SqlProxyCreator {
   private JClassType dataService;
   private SourceWriter sw;
 
+  /**
+   * Holds the names of the static members (SQL cache fields, row mappers)
+   * generated so far.
+   */
+  private Set<String> memberNames = new HashSet<String>();
+
   /**
    * <code>true</code> if the dataService directly extends DataService,
    * <code>false</code> otherwise.
    */
   private boolean isBaseType;
 
+  /**
+   * Maps the shape of each shared TransactionCallback class generated so far
+   * to its name.
+   */
+  private Map<String, String> sharedCallbacks = new HashMap<String, String>();
+
   public SqlProxyCreator(TreeLogger logger, GeneratorContext context,
       JClassType dataService) {
     this.logger = logger;
@@ -112,16 +160,23 @@ public class SqlProxyCreator {
       return getProxyQualifiedName();
     }
 
+    new QueryPlanAnalyzer(logger.branch(TreeLogger.DEBUG,
+        "Inspecting the query plans of the SQL statements..."), context).analyze(
+        dataService);
+
     generateProxyConstructor();
     if (isBaseType) {
       generateProxyOpenDatabaseMethod();
       generateProxyGetDatabaseDetailsMethod();
+      generateProxyGetDatabaseNameMethod();
+      generateProxyMigrationMethods();
     }
 
     // Generate service methods for each defined interface method:
     for (JMethod method : dataService.getMethods()) {
       generateProxyServiceMethod(method);
     }
+    generateProxyInvokePrefetchMethod();
 
     sw.commit(logger);
 
@@ -144,6 +199,8 @@ public class SqlProxyCreator {
    */
   private void generateProxyOpenDatabaseMethod() {
     Connection con = dataService.getAnnotation(Connection.class);
+    // A migrated database is opened regardless of its version:
+    String version = con.migrations().length > 0 ? "" : con.version();
     sw.beginJavaDocComment();
     sw.print("Opens the '" + con.name() + "' Database version " + con.version());
     sw.endJavaDocComment();
@@ -152,7 +209,7 @@ public class SqlProxyCreator {
         + genUtils.getClassName(DatabaseException.class) + " {");
     sw.indentln("return " + genUtils.getClassName(Database.class)
         + ".openDatabase(\"" + Generator.escape(con.name()) + "\", \""
-        + Generator.escape(con.version()) + "\", \""
+        + Generator.escape(version) + "\", \""
         + Generator.escape(con.description()) + "\", " + con.maxsize() + ");");
     sw.println("}");
   }
@@ -172,6 +229,87 @@ public class SqlProxyCreator {
     sw.println("}");
   }
 
+  /**
+   * Generates the {@link BaseDataService#getDatabaseName()} method.
+   */
+  private void generateProxyGetDatabaseNameMethod() {
+    Connection con = dataService.getAnnotation(Connection.class);
+    sw.beginJavaDocComment();
+    sw.print("Returns the name of the '" + con.name() + "' Database.");
+    sw.endJavaDocComment();
+    sw.println("protected final String getDatabaseName() {");
+    sw.indentln("return \"" + Generator.escape(con.name()) + "\";");
+    sw.println("}");
+  }
+
+  /**
+   * Generates the {@link BaseDataService#getMigrationVersions()} and
+   * {@link BaseDataService#getMigrationStatements()} methods, if the
+   * {@link Connection} specifies migrations.
+   */
+  private void generateProxyMigrationMethods() throws UnableToCompleteException {
+    Connection con = dataService.getAnnotation(Connection.class);
+    Migration[] migrations = con.migrations();
+    if (migrations.length == 0) {
+      return;
+    }
+
+    // Assertions:
+    Set<String> versions = new HashSet<String>();
+    for (Migration migration : migrations) {
+      if (StringUtils.isEmpty(migration.version())
+          || !versions.add(migration.version())) {
+        logger.log(TreeLogger.ERROR, "Each @Migration must specify a unique, "
+            + "non-empty version");
+        throw new UnableToCompleteException();
+      }
+      if (migration.sql().length == 0) {
+        logger.log(TreeLogger.ERROR, "@Migration version '"
+            + migration.version() + "' has no SQL statements");
+        throw new UnableToCompleteException();
+      }
+    }
+    if (!migrations[migrations.length - 1].version().equals(con.version())) {
+      logger.log(TreeLogger.ERROR, "The last @Migration must specify the "
+          + "version of the @Connection ('" + con.version() + "')");
+      throw new UnableToCompleteException();
+    }
+
+    sw.beginJavaDocComment();
+    sw.print("Returns the version of each migration.");
+    sw.endJavaDocComment();
+    sw.println("protected final String[] getMigrationVersions() {");
+    sw.indent();
+    sw.print("return new String[] {");
+    for (int i = 0; i < migrations.length; i++) {
+      sw.print((i > 0 ? ", " : "")
+          + StringUtils.getEscapedString(migrations[i].version()));
+    }
+    sw.println("};");
+    sw.outdent();
+    sw.println("}");
+
+    sw.beginJavaDocComment();
+    sw.print("Returns the SQL statements of each migration.");
+    sw.endJavaDocComment();
+    sw.println("protected final String[][] getMigrationStatements() {");
+    sw.indent();
+    sw.println("return new String[][] {");
+    sw.indent();
+    for (int i = 0; i < migrations.length; i++) {
+      sw.print("{");
+      String[] sql = migrations[i].sql();
+      for (int j = 0; j < sql.length; j++) {
+        sw.print((j > 0 ? ", " : "") + StringUtils.getEscapedString(sql[j]));
+      }
+      sw.println(i < migrations.length - 1 ? "}," : "}");
+    }
+    sw.outdent();
+    sw.println("};");
+    sw.outdent();
+    sw.println("}");
+  }
+
   /**
    * Generates the proxy method implementing the specified service.
    */
@@ -179,14 +317,21 @@ public class SqlProxyCreator {
       throws UnableToCompleteException {
     Select select = service.getAnnotation(Select.class);
     Update update = service.getAnnotation(Update.class);
+    FullTextSearch fts = service.getAnnotation(FullTextSearch.class);
 
     // Assertions:
-    if (select == null && update == null) {
+    if (select == null && update == null && fts == null) {
       logger.log(TreeLogger.ERROR, service.getName()
-          + " has no @Select nor @Update annotation");
+          + " has no @Select, @Update nor @FullTextSearch annotation");
       throw new UnableToCompleteException();
     }
-    if ((select == null || StringUtils.isEmpty(getSql(select)))
+    if (fts != null && (select != null || update != null)) {
+      logger.log(TreeLogger.ERROR, service.getName()
+          + ": @FullTextSearch cannot be combined with @Select or @Update");
+      throw new UnableToCompleteException();
+    }
+    if (fts == null
+        && (select == null || StringUtils.isEmpty(getSql(select)))
         && (update == null || StringUtils.isEmpty(getSql(update)))) {
       logger.log(TreeLogger.ERROR, service.getName()
           + ": @Select or @Update annotation has no SQL statement");
@@ -205,6 +350,53 @@ public class SqlProxyCreator {
           + genUtils.getClassName(Callback.class));
       throw new UnableToCompleteException();
     }
+    if (select != null && select.pageSize() > 0
+        && !GeneratorUtils.isType(callback.getType(), PageCallback.class)) {
+      logger.log(TreeLogger.ERROR, "The 'pageSize' attribute of the @Select "
+          + "annotation of method " + service.getName() + " requires a "
+          + genUtils.getClassName(PageCallback.class) + " callback");
+      throw new UnableToCompleteException();
+    }
+    if (select != null && StringUtils.isNotEmpty(select.prefetch())
+        && select.pageSize() > 0) {
+      logger.log(TreeLogger.ERROR, "The 'prefetch' attribute of the @Select "
+          + "annotation of method " + service.getName() + " cannot be "
+          + "combined with the 'pageSize' attribute");
+      throw new UnableToCompleteException();
+    }
+
+    if (update != null && update.writeBehind()
+        && !GeneratorUtils.isType(callback.getType(), VoidCallback.class)) {
+      logger.log(TreeLogger.ERROR, "The 'writeBehind' attribute of the "
+          + "@Update annotation of method " + service.getName() + " requires a "
+          + genUtils.getClassName(VoidCallback.class) + " callback");
+      throw new UnableToCompleteException();
+    }
+    if (update != null && !update.writeBehind()
+        && StringUtils.isNotEmpty(update.coalesce())) {
+      logger.log(TreeLogger.ERROR, "The 'coalesce' attribute of the @Update "
+          + "annotation of method " + service.getName() + " requires the "
+          + "'writeBehind' attribute");
+      throw new UnableToCompleteException();
+    }
+
+    // Depending on the callback type, create a service method body:
+    ServiceMethodCreator creator;
+    if (fts != null) {
+      creator = createFullTextSearchCreator(service, fts);
+    } else if (update != null) {
+      creator = createExecuteSqlCreator(service, getSql(update),
+          update.foreach(), update);
+    } else {
+      creator = createExecuteSqlCreator(service, getSql(select), null, select);
+    }
+
+    if (creator.needsSqlCache()) {
+      creator.setSqlCacheName(getSqlCacheName(service));
+      creator.generateSqlCacheField();
+    }
+    creator.generateProxyMembers(memberNames);
+    creator.generateSharedTransactionCallback(sharedCallbacks, memberNames);
 
     generateProxyServiceMethodJavadoc(service);
 
@@ -219,11 +411,6 @@ public class SqlProxyCreator {
     sw.println(") {");
     sw.indent();
 
-    // Depending on the callback type, create a service method body:
-    ServiceMethodCreator creator = update != null ? createExecuteSqlCreator(
-        service, getSql(update), update.foreach(), update)
-        : createExecuteSqlCreator(service, getSql(select), null, select);
-
     creator.generateServiceMethodBody();
 
     // ends service method
@@ -231,6 +418,63 @@ public class SqlProxyCreator {
     sw.println("}");
   }
 
+  /**
+   * Generates the invokePrefetch() method, which invokes the service methods
+   * with a {@link Select#prefetch()} hint (without callback) when requested by
+   * {@link DataService#prefetch(String, Object...)}.
+   */
+  private void generateProxyInvokePrefetchMethod() {
+    List<JMethod> prefetched = new ArrayList<JMethod>();
+    for (JMethod method : dataService.getMethods()) {
+      Select select = method.getAnnotation(Select.class);
+      if (select != null && StringUtils.isNotEmpty(select.prefetch())) {
+        prefetched.add(method);
+      }
+    }
+    if (prefetched.isEmpty()) {
+      return;
+    }
+    sw.println();
+    sw.println("@SuppressWarnings(\"unchecked\")");
+    sw.println("protected void invokePrefetch(String hint, Object[] params) {");
+    sw.indent();
+    sw.println("super.invokePrefetch(hint, params);");
+    for (JMethod method : prefetched) {
+      JParameter[] params = method.getParameters();
+      int count = params.length - 1;
+      // Dispatch on the parameter types as well, as several service methods
+      // may have the same hint and parameter count:
+      String hint = method.getAnnotation(Select.class).prefetch();
+      StringBuilder condition = new StringBuilder(
+          StringUtils.getEscapedString(hint) + ".equals(hint) && params.length == "
+          + count);
+      StringBuilder args = new StringBuilder();
+      for (int i = 0; i < count; i++) {
+        JType type = params[i].getType();
+        JPrimitiveType primitive = type.isPrimitive();
+        if (primitive != null) {
+          // A null parameter cannot be unboxed:
+          condition.append(" && params[" + i + "] instanceof "
+              + primitive.getQualifiedBoxedSourceName());
+        } else {
+          condition.append(" && (params[" + i + "] == null || params[" + i
+              + "] instanceof " + type.getErasedType().getQualifiedSourceName()
+              + ")");
+        }
+        args.append("(" + (primitive != null
+            ? primitive.getQualifiedBoxedSourceName()
+            : genUtils.getClassName(type)) + ") params[" + i + "], ");
+      }
+      sw.println("if (" + condition + ") {");
+      sw.indent();
+      sw.println(method.getName() + "(" + args + "null);");
+      sw.outdent();
+      sw.println("}");
+    }
+    sw.outdent();
+    sw.println("}");
+  }
+
   /**
    * Generates the Javadoc for the specified service method. The usefulness of
    * this code is arguable low :-)
@@ -239,7 +483,23 @@ public class SqlProxyCreator {
       throws UnableToCompleteException {
     Select select = service.getAnnotation(Select.class);
     Update update = service.getAnnotation(Update.class);
+    FullTextSearch fts = service.getAnnotation(FullTextSearch.class);
     sw.beginJavaDocComment();
+    if (fts != null) {
+      sw.println("Executes the following SQL FullTextSearch statement(s):");
+      String[] stmts = isFullTextIndex(service)
+          ? FullTextSearchSql.getIndexStatements(fts)
+          : new String[] {FullTextSearchSql.getSearchStatement(fts,
+              service.getParameters()[0].getName())};
+      for (int i = 0; i < stmts.length; i++) {
+        if (i > 0) {
+          sw.println();
+        }
+        sw.print("<pre>" + Util.escapeXml(stmts[i]) + "</pre>");
+      }
+      sw.endJavaDocComment();
+      return;
+    }
     String stmt = null;
     sw.println("Executes the following SQL "
         + (update != null ? "Update" : "Select") + " statement:");
@@ -248,6 +508,19 @@ public class SqlProxyCreator {
     sw.endJavaDocComment();
   }
 
+  /**
+   * Returns a unique name for the static field holding the SQL cache of the
+   * specified service method.
+   */
+  private String getSqlCacheName(JMethod service) {
+    String name = service.getName() + "SqlCache";
+    for (int i = 2; memberNames.contains(name); i++) {
+      name = service.getName() + "SqlCache" + i;
+    }
+    memberNames.add(name);
+    return name;
+  }
+
   private String getSql(Select select) {
     return (StringUtils.isEmpty(select.value())) ? select.sql()
         : select.value();
@@ -258,6 +531,79 @@ public class SqlProxyCreator {
         : update.value();
   }
 
+  /**
+   * Returns <code>true</code> if the specified {@link FullTextSearch} service
+   * method creates the index, <code>false</code> if it searches the index.
+   */
+  private boolean isFullTextIndex(JMethod service) {
+    JParameter[] params = service.getParameters();
+    return GeneratorUtils.isType(params[params.length - 1].getType(),
+        VoidCallback.class);
+  }
+
+  /**
+   * Returns the creator of a {@link FullTextSearch} service method, which
+   * either creates the index (with a {@link VoidCallback}) or searches it (with
+   * a {@link ListCallback}).
+   */
+  private ServiceMethodCreator createFullTextSearchCreator(JMethod service,
+      FullTextSearch fts) throws UnableToCompleteException {
+    JParameter[] params = service.getParameters();
+    if (!FullTextSearchSql.isName(fts.table())) {
+      logger.log(TreeLogger.ERROR, service.getName() + ": '" + fts.table()
+          + "' is no valid table name for @FullTextSearch");
+      throw new UnableToCompleteException();
+    }
+    if (!"fts3".equals(fts.module()) && !"fts4".equals(fts.module())) {
+      logger.log(TreeLogger.ERROR, service.getName() + ": the 'module' "
+          + "attribute of @FullTextSearch must be either \"fts3\" or \"fts4\"");
+      throw new UnableToCompleteException();
+    }
+
+    if (isFullTextIndex(service)) {
+      if (fts.columns().length == 0) {
+        logger.log(TreeLogger.ERROR, service.getName() + ": the 'columns' "
+            + "attribute of @FullTextSearch is required to create the index");
+        throw new UnableToCompleteException();
+      }
+      for (String column : fts.columns()) {
+        if (!FullTextSearchSql.isName(column)) {
+          logger.log(TreeLogger.ERROR, service.getName() + ": '" + column
+              + "' is no valid column name for @FullTextSearch");
+          throw new UnableToCompleteException();
+        }
+      }
+      String[] statements = FullTextSearchSql.getIndexStatements(fts);
+      TreeLogger branchedLogger = logger.branch(TreeLogger.DEBUG,
+          "Generating service method '" + service.getName()
+              + "' creating the full-text index '"
+              + FullTextSearchSql.getIndexTable(fts) + "'");
+      ServiceMethodCreator creator = new FullTextIndexCreator(statements);
+      creator.setContext(context, branchedLogger, sw, service, statements[0],
+          null, fts, genUtils.branchWithLogger(branchedLogger));
+      return creator;
+    }
+
+    if (!GeneratorUtils.isType(params[params.length - 1].getType(),
+        ListCallback.class)) {
+      logger.log(TreeLogger.ERROR, service.getName() + ": a @FullTextSearch "
+          + "method requires either a "
+          + genUtils.getClassName(VoidCallback.class) + " or a "
+          + genUtils.getClassName(ListCallback.class) + " callback");
+      throw new UnableToCompleteException();
+    }
+    if (params.length != 2
+        || !genUtils.isAssignableToType(params[0].getType(), String.class)) {
+      logger.log(TreeLogger.ERROR, service.getName() + ": a @FullTextSearch "
+          + "search method must have a String (MATCH expression) parameter "
+          + "before the callback");
+      throw new UnableToCompleteException();
+    }
+    return createExecuteSqlCreator(service,
+        FullTextSearchSql.getSearchStatement(fts, params[0].getName()), null,
+        fts);
+  }
+
   private ServiceMethodCreator createExecuteSqlCreator(JMethod service,
       String sql, String foreach, Annotation query)
       throws UnableToCompleteException {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.code.gwt.database.rebind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Determines the names of the tables which are selected from, or modified by,
+ * a SQL statement, and whether a SQL statement only reads.
+ * 
+ * <p>
+ * This is no full SQL parser: it recognizes the table names following the
+ * <code>FROM</code> and <code>JOIN</code> keywords, and the target table of
+ * the common <code>INSERT</code>, <code>REPLACE</code>, <code>UPDATE</code>,
+ * <code>DELETE</code> and <code>CREATE</code>/<code>DROP</code>/
+ * <code>ALTER TABLE</code> statements. Table names are returned in lowercase,
+ * without quotes and database prefix.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class TableNameParser {
+
+  private static final String NAME = "(?:\"[^\"]+\"|\\[[^\\]]+\\]|`[^`]+`|[\\w$]+)";
+  private static final String QUALIFIED_NAME = NAME + "(?:\\s*\\.\\s*" + NAME
+      + ")?";
+  private static final String ALIAS = "(?:\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|"
+      + "INNER|LEFT|CROSS|NATURAL|OUTER|ON|USING|GROUP|ORDER|LIMIT|UNION|"
+      + "HAVING|EXCEPT|INTERSECT|INDEXED|NOT)\\b)" + NAME + ")?";
+
+  private static final Pattern SELECTED_TABLES = Pattern.compile(
+      "\\b(?:FROM|JOIN)\\s+(" + QUALIFIED_NAME + ALIAS + "(?:\\s*,\\s*"
+          + QUALIFIED_NAME + ALIAS + ")*)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern MODIFIED_TABLE = Pattern.compile(
+      "^\\s*(?:(?:INSERT|REPLACE)(?:\\s+OR\\s+\\w+)?\\s+INTO"
+          + "|UPDATE(?:\\s+OR\\s+\\w+)?"
+          + "|DELETE\\s+FROM"
+          + "|(?:CREATE(?:\\s+TEMP(?:ORARY)?)?|DROP|ALTER)\\s+TABLE"
+          + "(?:\\s+IF(?:\\s+NOT)?\\s+EXISTS)?)\\s+(" + QUALIFIED_NAME + ")",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern READ_ONLY = Pattern.compile(
+      "^\\s*(?:SELECT|VALUES|EXPLAIN|WITH|PRAGMA\\s+" + QUALIFIED_NAME
+          + "\\s*(?:;\\s*)?$)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern WRITE = Pattern.compile(
+      "\\b(?:INSERT|REPLACE|UPDATE|DELETE|CREATE|DROP|ALTER)\\b",
+      Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern NAME_PATTERN = Pattern.compile(QUALIFIED_NAME);
+
+  private static final Pattern SIMPLE_NAME = Pattern.compile(NAME);
+
+  private TableNameParser() {
+  }
+
+  /**
+   * Returns the names of the tables the specified statement selects from.
+   * Returns an empty array if no table names are found.
+   */
+  public static String[] getSelectedTables(String sql) {
+    List<String> tables = new ArrayList<String>();
+    Matcher m = SELECTED_TABLES.matcher(sql);
+    while (m.find()) {
+      for (String item : m.group(1).split(",")) {
+        Matcher name = NAME_PATTERN.matcher(item.trim());
+        if (name.lookingAt()) {
+          String table = normalize(name.group());
+          if (!tables.contains(table)) {
+            tables.add(table);
+          }
+        }
+      }
+    }
+    return tables.toArray(new String[tables.size()]);
+  }
+
+  /**
+   * Returns the name of the table the specified statement modifies, or
+   * <code>null</code> if it cannot be determined.
+   */
+  public static String getModifiedTable(String sql) {
+    Matcher m = MODIFIED_TABLE.matcher(sql);
+    return m.find() ? normalize(m.group(1)) : null;
+  }
+
+  /**
+   * Returns <code>true</code> if the specified statement only reads from the
+   * database: a <code>SELECT</code>, <code>VALUES</code> or
+   * <code>EXPLAIN</code> statement, a <code>WITH</code> statement without
+   * <code>INSERT</code>, <code>UPDATE</code> or <code>DELETE</code>, or a
+   * <code>PRAGMA name</code> query. Returns <code>false</code> if in doubt, so
+   * a <code>PRAGMA</code> with an argument (like the assignment
+   * <code>PRAGMA user_version(3)</code>) is not considered read-only.
+   */
+  public static boolean isReadOnly(String sql) {
+    // Disregard keywords in string literals:
+    String stmt = sql.replaceAll("'(?:[^']|'')*'", "''");
+    if (!READ_ONLY.matcher(stmt).find()) {
+      return false;
+    }
+    return !stmt.trim().toUpperCase().startsWith("WITH")
+        || !WRITE.matcher(stmt).find();
+  }
+
+  /**
+   * Returns the specified (qualified) name in lowercase, without quotes and
+   * database prefix.
+   */
+  private static String normalize(String qualifiedName) {
+    String name = qualifiedName;
+    Matcher m = SIMPLE_NAME.matcher(qualifiedName);
+    while (m.find()) {
+      name = m.group();
+    }
+    if (name.length() > 1 && "\"[`".indexOf(name.charAt(0)) >= 0) {
+      name = name.substring(1, name.length() - 1);
+    }
+    return name.toLowerCase();
+  }
+}
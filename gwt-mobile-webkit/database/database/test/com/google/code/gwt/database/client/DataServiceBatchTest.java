@@ -0,0 +1,172 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.DataServiceListCallbackTest.IdRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.ScalarCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService#beginBatch()} and
+ * {@link DataService#commitBatch(VoidCallback)} API.
+ * 
+ * @author bguijt
+ */
+public class DataServiceBatchTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestBatchDataService extends DataService {
+    
+    @Update("CREATE TABLE IF NOT EXISTS testtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "integervalue INTEGER, "
+        + "textvalue TEXT, "
+        + "numericvalue NUMERIC, "
+        + "realvalue REAL, "
+        + "nonevalue NONE)")
+    void create(VoidCallback callback);
+
+    @Update("INSERT INTO testtable (integervalue) VALUES ({value})")
+    void insert(int value, VoidCallback callback);
+
+    @Update("INSERT INTO testtable (nonexisting) VALUES ({value})")
+    void insertFails(int value, VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM testtable")
+    void getCount(ScalarCallback<Integer> callback);
+
+    @Select("SELECT id FROM testtable")
+    void getIds(ListCallback<IdRow> callback);
+  }
+
+  private TestBatchDataService service = null;
+  
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service  = GWT.create(TestBatchDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testCreate() throws Exception {
+    delayTestFinish(10000);
+    service.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        finishTest();
+      }
+    });
+  }
+
+  public void testBatch() throws Exception {
+    delayTestFinish(3000);
+    final int[] results = new int[3];
+    service.beginBatch();
+    service.getCount(new ScalarCallback<Integer>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain count! " + error);
+      }
+      public void onSuccess(Integer result) {
+        results[0] = result.intValue();
+      }
+    });
+    service.insert(1, new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to insert! " + error);
+      }
+      public void onSuccess() {
+        results[1] = 1;
+      }
+    });
+    service.getIds(new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(List<IdRow> result) {
+        results[2] = result.size();
+      }
+    });
+    service.commitBatch(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to commit batch! " + error);
+      }
+      public void onSuccess() {
+        assertEquals("Insert callback must be invoked!", 1, results[1]);
+        assertEquals("Statements must be executed in order!", results[0] + 1,
+            results[2]);
+        finishTest();
+      }
+    });
+  }
+
+  public void testBatchRollback() throws Exception {
+    delayTestFinish(3000);
+    final int[] failures = new int[1];
+    service.beginBatch();
+    service.insert(1, new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        failures[0]++;
+      }
+      public void onSuccess() {
+        fail("Insert must be rolled back!");
+      }
+    });
+    service.insertFails(1, new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        failures[0]++;
+      }
+      public void onSuccess() {
+        fail("Insert must fail!");
+      }
+    });
+    service.commitBatch(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        assertEquals("All callbacks must be notified!", 2, failures[0]);
+        finishTest();
+      }
+      public void onSuccess() {
+        fail("Batch must fail!");
+      }
+    });
+  }
+
+  public void testCommitWithoutBatch() throws Exception {
+    try {
+      service.commitBatch(null);
+      fail("Committing a batch which is not started must fail!");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
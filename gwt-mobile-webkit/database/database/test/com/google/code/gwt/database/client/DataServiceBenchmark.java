@@ -0,0 +1,325 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestListCallback;
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Measures the throughput of the {@link DataService} methods generated for
+ * the most common statement shapes: single inserts, <code>foreach</code>
+ * inserts, <code>IN</code>-list selects, large list materialization and scalar
+ * queries.
+ * 
+ * <p>
+ * This is no {@link com.google.gwt.benchmarks.client.Benchmark}, since those
+ * do not support asynchronous tests. Each test method instead times a fixed
+ * number of sequential service calls (after a warm-up call) and reports the
+ * result by failing with a single line of JSON, prefixed with
+ * <code>BENCHMARK</code>, as its message:
+ * </p>
+ * 
+ * <pre>
+ * BENCHMARK {"name":"singleInsert","calls":200,"rows":200,"millis":812.0,
+ *     "callsPerSecond":246.3,"rowsPerSecond":246.3}
+ * </pre>
+ * 
+ * <p>
+ * The failure message is the only output of a web mode test that makes it
+ * back into the JUnit report. Run with <code>ant benchmark</code> and
+ * <code>gwt.hosts.web.remote</code> or <code>gwt.hosts.web.selenium</code>
+ * set, which collects the lines in <code>benchmark.json</code> and fails on
+ * any other failure; the benchmarks are not part of the {@link DatabaseSuite}.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class DataServiceBenchmark extends GWTTestCase {
+
+  private static final int CALLS = 200;
+  private static final int ROWS = 1000;
+  private static final int IN_LIST_SIZE = 50;
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestBenchmarkDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS benchtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "value INTEGER, "
+        + "text TEXT)")
+    void create(VoidCallback callback);
+
+    @Update("DELETE FROM benchtable")
+    void clear(VoidCallback callback);
+
+    @Update("INSERT INTO benchtable (value, text) VALUES ({value}, {text})")
+    void insert(int value, String text, VoidCallback callback);
+
+    @Update(sql="INSERT INTO benchtable (value, text) VALUES ({_}, {text})",
+        foreach="values")
+    void insertAll(List<Integer> values, String text,
+        RowIdListCallback callback);
+
+    @Update(sql="INSERT INTO benchtable (value, text) VALUES ({_}, {text})",
+        foreach="values", batchSize=100)
+    void insertAllBatched(List<Integer> values, String text,
+        RowIdListCallback callback);
+
+    @Select("SELECT id, value, text FROM benchtable WHERE id IN ({ids})")
+    void getByIds(List<Integer> ids, ListCallback<GenericRow> callback);
+
+    @Select("SELECT id, value, text FROM benchtable")
+    void getAll(ListCallback<GenericRow> callback);
+
+    @Select("SELECT COUNT(*) FROM benchtable WHERE id >= {minId}")
+    void count(int minId, IntCallback callback);
+  }
+
+  /**
+   * Times a number of sequential service calls, each started when the
+   * previous one succeeded.
+   */
+  private abstract class Measurement {
+
+    private final String name;
+    private final int calls;
+    private final int rowsPerCall;
+    private double start;
+
+    Measurement(String name, int calls, int rowsPerCall) {
+      this.name = name;
+      this.calls = calls;
+      this.rowsPerCall = rowsPerCall;
+    }
+
+    /**
+     * Performs the specified call, and invokes <code>next</code> once
+     * successful.
+     */
+    abstract void call(int i, VoidCallback next);
+
+    void run() {
+      // The warm-up call opens the database and prepares the statement:
+      call(-1, new TestVoidCallback() {
+        public void onSuccess() {
+          start = Duration.currentTimeMillis();
+          next(0);
+        }
+      });
+    }
+
+    private void next(final int i) {
+      if (i == calls) {
+        report(Duration.currentTimeMillis() - start);
+        return;
+      }
+      call(i, new TestVoidCallback() {
+        public void onSuccess() {
+          next(i + 1);
+        }
+      });
+    }
+
+    /**
+     * Fails the test with the result as its message, from a deferred command
+     * so that the failure is not taken for an error of the last call.
+     */
+    private void report(double millis) {
+      int rows = calls * rowsPerCall;
+      final String json = "{\"name\":\"" + name + "\",\"calls\":" + calls
+          + ",\"rows\":" + rows + ",\"millis\":" + millis
+          + ",\"callsPerSecond\":" + perSecond(calls, millis)
+          + ",\"rowsPerSecond\":" + perSecond(rows, millis) + "}";
+      Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+        public void execute() {
+          fail("BENCHMARK " + json);
+        }
+      });
+    }
+  }
+
+  private TestBenchmarkDataService service = null;
+
+  /**
+   * The ROWID of the first row inserted by {@link #prepare}.
+   */
+  private int firstId;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestBenchmarkDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testSingleInsert() throws Exception {
+    delayTestFinish(60000);
+    prepare(0, new Measurement("singleInsert", CALLS, 1) {
+      void call(int i, VoidCallback next) {
+        service.insert(i, "single", next);
+      }
+    });
+  }
+
+  public void testForeachInsert() throws Exception {
+    delayTestFinish(60000);
+    prepare(0, new Measurement("foreachInsert", CALLS / 10, ROWS / 10) {
+      void call(int i, VoidCallback next) {
+        service.insertAll(getValues(ROWS / 10), "foreach", rowIds(next));
+      }
+    });
+  }
+
+  public void testForeachInsertBatched() throws Exception {
+    delayTestFinish(60000);
+    prepare(0, new Measurement("foreachInsertBatched", CALLS / 10,
+        ROWS / 10) {
+      void call(int i, VoidCallback next) {
+        service.insertAllBatched(getValues(ROWS / 10), "batched",
+            rowIds(next));
+      }
+    });
+  }
+
+  public void testInListSelect() throws Exception {
+    delayTestFinish(60000);
+    prepare(ROWS, new Measurement("inListSelect", CALLS, IN_LIST_SIZE) {
+      void call(int i, final VoidCallback next) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int id = 0; id < IN_LIST_SIZE; id++) {
+          ids.add(firstId + (i + 1) * IN_LIST_SIZE % ROWS + id);
+        }
+        service.getByIds(ids, new TestListCallback<GenericRow>() {
+          public void onSuccess(List<GenericRow> result) {
+            assertEquals(IN_LIST_SIZE, result.size());
+            next.onSuccess();
+          }
+        });
+      }
+    });
+  }
+
+  public void testListMaterialization() throws Exception {
+    delayTestFinish(60000);
+    prepare(ROWS, new Measurement("listMaterialization", CALLS / 10, ROWS) {
+      void call(int i, final VoidCallback next) {
+        service.getAll(new TestListCallback<GenericRow>() {
+          public void onSuccess(List<GenericRow> result) {
+            int sum = 0;
+            for (GenericRow row : result) {
+              sum += row.getInt("value");
+            }
+            assertTrue(sum > 0);
+            next.onSuccess();
+          }
+        });
+      }
+    });
+  }
+
+  public void testScalarQuery() throws Exception {
+    delayTestFinish(60000);
+    prepare(ROWS, new Measurement("scalarQuery", CALLS, 1) {
+      void call(int i, final VoidCallback next) {
+        service.count(i, new IntCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+          public void onSuccess(int result) {
+            next.onSuccess();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * (Re)creates the benchmark table with the specified number of rows, and
+   * runs the specified measurement.
+   */
+  private void prepare(final int rows, final Measurement measurement) {
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.clear(new TestVoidCallback() {
+          public void onSuccess() {
+            if (rows == 0) {
+              measurement.run();
+              return;
+            }
+            service.insertAllBatched(getValues(rows), "row",
+                new RowIdListCallback() {
+                  public void onFailure(DataServiceException error) {
+                    fail(error.toString());
+                  }
+                  public void onSuccess(List<Integer> rowIds) {
+                    firstId = rowIds.get(0);
+                    measurement.run();
+                  }
+                });
+          }
+        });
+      }
+    });
+  }
+
+  private static List<Integer> getValues(int count) {
+    List<Integer> values = new ArrayList<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(i + 1);
+    }
+    return values;
+  }
+
+  private static String perSecond(int count, double millis) {
+    return millis > 0 ? String.valueOf(Math.round(count * 10000.0 / millis)
+        / 10.0) : "null";
+  }
+
+  private RowIdListCallback rowIds(final VoidCallback next) {
+    return new RowIdListCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<Integer> rowIds) {
+        next.onSuccess();
+      }
+    };
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.BulkImport;
+import com.google.code.gwt.database.client.service.BulkImportCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the
+ * {@link DataService#bulkImport(BulkImport, JsArray, BulkImportCallback)}
+ * method.
+ * 
+ * @author bguijt
+ */
+public class DataServiceBulkImportTest extends GWTTestCase {
+
+  /**
+   * The plain Java row type.
+   */
+  public static class Item {
+    private int id;
+    private String name;
+    private int active;
+    private String tags;
+
+    private Item() {
+    }
+  }
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestBulkImportDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS importtable ("
+        + "id INTEGER PRIMARY KEY, name TEXT, active INTEGER, tags TEXT)")
+    void create(VoidCallback callback);
+
+    @Update("DELETE FROM importtable")
+    void clear(VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM importtable")
+    void count(IntCallback callback);
+
+    @Select("SELECT * FROM importtable WHERE id = {id}")
+    void getItem(int id, ListCallback<Item> callback);
+
+    @Update("CREATE TABLE IF NOT EXISTS importtypes ("
+        + "id INTEGER PRIMARY KEY, value)")
+    void createTypes(VoidCallback callback);
+
+    @Update("DELETE FROM importtypes")
+    void clearTypes(VoidCallback callback);
+
+    @Select("SELECT typeof(value) AS type FROM importtypes ORDER BY id")
+    void getTypes(ListCallback<GenericRow> callback);
+  }
+
+  private TestBulkImportDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestBulkImportDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testImportChunked() throws Exception {
+    delayTestFinish(20000);
+    final BulkImport items = new BulkImport("importtable");
+    items.setRowsPerStatement(40);
+    items.setRowsPerTransaction(100);
+    final List<Integer> progress = new ArrayList<Integer>();
+    clear(new Runnable() {
+      public void run() {
+        service.bulkImport(items, createRows(250),
+            new TestBulkImportCallback() {
+              public void onProgress(int imported, int total) {
+                assertEquals(250, total);
+                progress.add(imported);
+              }
+              public void onSuccess(int imported) {
+                assertEquals(250, imported);
+                assertEquals(Arrays.asList(100, 200, 250), progress);
+                assertCount(250);
+              }
+            });
+      }
+    });
+  }
+
+  public void testImportMapped() throws Exception {
+    delayTestFinish(10000);
+    final BulkImport items = new BulkImport("importtable");
+    items.addColumn("id", "itemId");
+    items.addColumn("name", "title");
+    items.addColumn("active", "enabled");
+    items.addColumn("tags", "labels");
+    clear(new Runnable() {
+      public void run() {
+        service.bulkImport(items, createMappedRows(),
+            new TestBulkImportCallback() {
+              public void onProgress(int imported, int total) {
+              }
+              public void onSuccess(int imported) {
+                assertEquals(2, imported);
+                assertItem(2, "second", 1, "[\"a\",\"b\"]");
+              }
+            });
+      }
+    });
+  }
+
+  public void testImportKeepsTypes() throws Exception {
+    delayTestFinish(10000);
+    final BulkImport values = new BulkImport("importtypes");
+    service.createTypes(new TestVoidCallback() {
+      public void onSuccess() {
+        service.clearTypes(new TestVoidCallback() {
+          public void onSuccess() {
+            service.bulkImport(values, createTypedRows(),
+                new TestBulkImportCallback() {
+                  public void onProgress(int imported, int total) {
+                  }
+                  public void onSuccess(int imported) {
+                    assertEquals(6, imported);
+                    assertTypes();
+                  }
+                });
+          }
+        });
+      }
+    });
+  }
+
+  public void testImportFailure() throws Exception {
+    delayTestFinish(10000);
+    final BulkImport items = new BulkImport("nosuchtable");
+    service.bulkImport(items, createRows(3), new TestBulkImportCallback() {
+      public void onProgress(int imported, int total) {
+        fail("No transaction may succeed");
+      }
+      public void onSuccess(int imported) {
+        fail("The import must fail");
+      }
+      @Override
+      public void onFailure(DataServiceException error) {
+        finishTest();
+      }
+    });
+  }
+
+  private void clear(final Runnable next) {
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.clear(new TestVoidCallback() {
+          public void onSuccess() {
+            next.run();
+          }
+        });
+      }
+    });
+  }
+
+  private void assertCount(final int expected) {
+    service.count(new IntCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(int result) {
+        assertEquals(expected, result);
+        assertItem(7, "item7", 0, null);
+      }
+    });
+  }
+
+  private void assertItem(int id, final String name, final int active,
+      final String tags) {
+    service.getItem(id, new ListCallback<Item>() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<Item> result) {
+        assertEquals(1, result.size());
+        assertEquals(name, result.get(0).name);
+        assertEquals(active, result.get(0).active);
+        assertEquals(tags, result.get(0).tags);
+        finishTest();
+      }
+    });
+  }
+
+  private void assertTypes() {
+    service.getTypes(new ListCallback<GenericRow>() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<GenericRow> result) {
+        // Browsers may bind any number as a double:
+        String[] expected = {"real", "real", "real", "text", "text", "null"};
+        assertEquals(expected.length, result.size());
+        for (int i = 0; i < expected.length; i++) {
+          assertEquals(expected[i], result.get(i).getString("type").replace(
+              "integer", "real"));
+        }
+        finishTest();
+      }
+    });
+  }
+
+  private static native JsArray<JavaScriptObject> createRows(int count) /*-{
+    var rows = [];
+    for (var i = 0; i < count; i++) {
+      rows.push({id: i, name: 'item' + i, active: i % 7 != 0});
+    }
+    return rows;
+  }-*/;
+
+  private static native JsArray<JavaScriptObject> createMappedRows() /*-{
+    return [
+      {itemId: 1, title: 'first', enabled: false},
+      {itemId: 2, title: 'second', enabled: true, labels: ['a', 'b'], other: 3}
+    ];
+  }-*/;
+
+  private static native JsArray<JavaScriptObject> createTypedRows() /*-{
+    return [
+      {id: 1, value: 3},
+      {id: 2, value: 2.5},
+      {id: 3, value: true},
+      {id: 4, value: '4'},
+      {id: 5, value: {a: 5}},
+      {id: 6}
+    ];
+  }-*/;
+
+  private abstract class TestBulkImportCallback implements BulkImportCallback {
+    public void onFailure(DataServiceException error) {
+      fail(error.toString());
+    }
+  }
+}
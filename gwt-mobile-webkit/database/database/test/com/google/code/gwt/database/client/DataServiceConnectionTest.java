@@ -0,0 +1,105 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API connecting to several databases.
+ * 
+ * @author bguijt
+ */
+public class DataServiceConnectionTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestFirstDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS connectiontable (id INTEGER)")
+    void create(VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM connectiontable")
+    void count(IntCallback callback);
+  }
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestSameDataService extends DataService {
+  }
+
+  @Connection(name="gh5dt2", version="1.0",
+      description="GwtHtml5DatabaseTest2", maxsize=5000)
+  public interface TestSecondDataService extends DataService {
+
+    @Select("SELECT COUNT(*) FROM connectiontable")
+    void count(IntCallback callback);
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  public void testSharedConnection() {
+    TestFirstDataService first = GWT.create(TestFirstDataService.class);
+    TestSameDataService same = GWT.create(TestSameDataService.class);
+    TestSecondDataService second = GWT.create(TestSecondDataService.class);
+
+    assertSame("DataServices with the same database name must share the "
+        + "connection", first.getDatabase(), same.getDatabase());
+    assertSame("DataServices with the same database name must share the "
+        + "ResultCache", first.getResultCache(), same.getResultCache());
+    assertNotSame("DataServices with different database names must not share "
+        + "the connection", first.getDatabase(), second.getDatabase());
+    assertNotSame("DataServices with different database names must not share "
+        + "the ResultCache", first.getResultCache(), second.getResultCache());
+  }
+
+  public void testSeparateDatabases() {
+    delayTestFinish(10000);
+    final TestFirstDataService first = GWT.create(TestFirstDataService.class);
+    final TestSecondDataService second = GWT.create(TestSecondDataService.class);
+    first.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+
+      public void onSuccess() {
+        second.count(new IntCallback() {
+          public void onFailure(DataServiceException error) {
+            // The table only exists in the first database:
+            finishTest();
+          }
+
+          public void onSuccess(int result) {
+            fail("The table of the first database must not exist in the "
+                + "second database");
+          }
+        });
+      }
+    });
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import com.google.code.gwt.database.client.DataServiceListCallbackTest.IdRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.CursorCallback;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ScalarCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with the {@link CursorCallback}.
+ * 
+ * @author bguijt
+ */
+public class DataServiceCursorCallbackTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestCursorCallbackDataService extends DataService {
+    
+    @Update("CREATE TABLE IF NOT EXISTS testtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "integervalue INTEGER, "
+        + "textvalue TEXT, "
+        + "numericvalue NUMERIC, "
+        + "realvalue REAL, "
+        + "nonevalue NONE)")
+    void create(VoidCallback callback);
+
+    @Update("INSERT INTO testtable (integervalue) VALUES ({value})")
+    void insert(int value, VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM testtable")
+    void getCount(ScalarCallback<Integer> callback);
+
+    @Select("SELECT id FROM testtable ORDER BY id")
+    void getIds(CursorCallback<IdRow> callback);
+  }
+
+  private TestCursorCallbackDataService service = null;
+  
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service  = GWT.create(TestCursorCallbackDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testCreate() throws Exception {
+    delayTestFinish(10000);
+    service.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        service.insert(1, new VoidCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+          public void onSuccess() {
+            service.insert(2, new VoidCallback() {
+              public void onFailure(DataServiceException error) {
+                fail(error.toString());
+              }
+              public void onSuccess() {
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testGetIdsAllRows() throws Exception {
+    delayTestFinish(3000);
+    service.getCount(new ScalarCallback<Integer>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain count! " + error);
+      }
+      public void onSuccess(final Integer count) {
+        service.getIds(new CursorCallback<IdRow>() {
+          private int rows = 0;
+          private int lastId = 0;
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain ID's! " + error);
+          }
+          public boolean onRow(IdRow row) {
+            assertNotNull("Row may never be null!", row);
+            assertTrue("Rows must be handed in order!", row.getId() > lastId);
+            lastId = row.getId();
+            rows++;
+            return true;
+          }
+          public void onSuccess() {
+            assertEquals("Number of rows must equal count!", count.intValue(),
+                rows);
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  public void testGetIdsStopAtFirstRow() throws Exception {
+    delayTestFinish(3000);
+    service.getIds(new CursorCallback<IdRow>() {
+      private int rows = 0;
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public boolean onRow(IdRow row) {
+        rows++;
+        return false;
+      }
+      public void onSuccess() {
+        assertEquals("Iteration must stop after the first row!", 1, rows);
+        finishTest();
+      }
+    });
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestListCallback;
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.FullTextSearch;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with the {@link FullTextSearch}
+ * annotation.
+ * 
+ * @author bguijt
+ */
+public class DataServiceFullTextSearchTest extends GWTTestCase {
+
+  /**
+   * The plain Java row type.
+   */
+  public static class Note {
+    private int id;
+    private String title;
+    private String body;
+
+    private Note() {
+    }
+  }
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestFullTextSearchDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS ftsnote ("
+        + "id INTEGER PRIMARY KEY, title TEXT, body TEXT)")
+    void create(VoidCallback callback);
+
+    @FullTextSearch(table="ftsnote", columns={"title", "body"})
+    void createIndex(VoidCallback callback);
+
+    @Update("DELETE FROM ftsnote")
+    void clear(VoidCallback callback);
+
+    @Update("INSERT INTO ftsnote (id, title, body) "
+        + "VALUES ({id}, {title}, {body})")
+    void insert(int id, String title, String body, VoidCallback callback);
+
+    @Update("UPDATE ftsnote SET body = {body} WHERE id = {id}")
+    void updateBody(int id, String body, VoidCallback callback);
+
+    @Update("DELETE FROM ftsnote WHERE id = {id}")
+    void delete(int id, VoidCallback callback);
+
+    @FullTextSearch(table="ftsnote")
+    void search(String query, ListCallback<Note> callback);
+
+    @FullTextSearch(table="ftsnote", limit=1)
+    void searchBest(String query, ListCallback<Note> callback);
+  }
+
+  private TestFullTextSearchDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestFullTextSearchDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testSearchRanked() throws Exception {
+    delayTestFinish(10000);
+    setUpNotes(new Runnable() {
+      public void run() {
+        service.search("gwt", new TestListCallback<Note>() {
+          public void onSuccess(List<Note> result) {
+            assertIds(new int[] {1, 2}, result);
+            assertEquals("gwt gwt gwt", result.get(0).body);
+            service.searchBest("gwt", new TestListCallback<Note>() {
+              public void onSuccess(List<Note> result) {
+                assertIds(new int[] {1}, result);
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Note 4 matches 'gwt' twice, but at large offsets, so its
+   * <code>offsets()</code> string is longer than the one of note 1.
+   */
+  public void testSearchRankedByMatchCount() throws Exception {
+    delayTestFinish(10000);
+    setUpNotes(new Runnable() {
+      public void run() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+          body.append('x');
+        }
+        body.append(" gwt gwt");
+        service.insert(4, "long", body.toString(), new TestVoidCallback() {
+          public void onSuccess() {
+            service.search("gwt", new TestListCallback<Note>() {
+              public void onSuccess(List<Note> result) {
+                assertIds(new int[] {1, 4, 2}, result);
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testTriggers() throws Exception {
+    delayTestFinish(10000);
+    setUpNotes(new Runnable() {
+      public void run() {
+        service.updateBody(3, "gwt or gwt", new TestVoidCallback() {
+          public void onSuccess() {
+          }
+        });
+        service.delete(1, new TestVoidCallback() {
+          public void onSuccess() {
+            service.search("gwt", new TestListCallback<Note>() {
+              public void onSuccess(List<Note> result) {
+                assertIds(new int[] {3, 2}, result);
+                service.search("other", new TestListCallback<Note>() {
+                  public void onSuccess(List<Note> result) {
+                    assertIds(new int[] {3}, result);
+                    finishTest();
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Creates the table and its index, and inserts the notes: note 1 matches
+   * 'gwt' three times, note 2 once and note 3 not.
+   */
+  private void setUpNotes(final Runnable next) {
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.createIndex(new TestVoidCallback() {
+          public void onSuccess() {
+          }
+        });
+        service.clear(new TestVoidCallback() {
+          public void onSuccess() {
+          }
+        });
+        service.insert(2, "gwt", "database", new TestVoidCallback() {
+          public void onSuccess() {
+          }
+        });
+        service.insert(1, "notes", "gwt gwt gwt", new TestVoidCallback() {
+          public void onSuccess() {
+          }
+        });
+        service.insert(3, "other", "text", new TestVoidCallback() {
+          public void onSuccess() {
+            next.run();
+          }
+        });
+      }
+    });
+  }
+
+  private void assertIds(int[] expected, List<Note> result) {
+    assertEquals("Number of notes", expected.length, result.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("Note " + i, expected[i], result.get(i).id);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.IndexAdvisor;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link IndexAdvisor} of the {@link DataService} API.
+ * 
+ * @author bguijt
+ */
+public class DataServiceIndexAdvisorTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestIndexAdvisorDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS advisortable ("
+        + "id INTEGER PRIMARY KEY, cat INTEGER, stamp INTEGER)")
+    void create(VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM advisortable WHERE cat = {cat} "
+        + "ORDER BY stamp")
+    void countByCat(int cat, IntCallback callback);
+
+    @Select("SELECT COUNT(*) FROM advisortable WHERE cat IN ({cats})")
+    void countByCats(List<Integer> cats, IntCallback callback);
+
+    @Select("SELECT COUNT(*) FROM advisortable WHERE id = {id}")
+    void countById(int id, IntCallback callback);
+  }
+
+  private TestIndexAdvisorDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestIndexAdvisorDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  @Override
+  protected void gwtTearDown() throws Exception {
+    service.setMonitor(null);
+  }
+
+  public void testRecommendations() throws Exception {
+    delayTestFinish(10000);
+    final IndexAdvisor advisor = new IndexAdvisor();
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setMonitor(advisor);
+        service.countByCat(1, new TestIntCallback());
+        service.countByCats(Arrays.asList(1), new TestIntCallback());
+        service.countByCats(Arrays.asList(1, 2, 3), new TestIntCallback());
+        service.countById(1, new TestIntCallback() {
+          @Override
+          public void onSuccess(int result) {
+            analyze(advisor);
+          }
+        });
+      }
+    });
+  }
+
+  private void analyze(final IndexAdvisor advisor) {
+    advisor.analyze(service.getDatabase(), new TestVoidCallback() {
+      public void onSuccess() {
+        List<String> recommendations = advisor.getRecommendations();
+        assertTrue(recommendations.toString(), recommendations.contains(
+            "CREATE INDEX IF NOT EXISTS advisortable_cat_stamp "
+                + "ON advisortable (cat, stamp)"));
+        assertTrue(recommendations.toString(), recommendations.contains(
+            "CREATE INDEX IF NOT EXISTS advisortable_cat "
+                + "ON advisortable (cat)"));
+        assertEquals(recommendations.toString(), 2, recommendations.size());
+        String report = advisor.getReport();
+        assertTrue("The IN lists must have the same shape: " + report,
+            report.contains("2x avg"));
+        finishTest();
+      }
+    });
+  }
+
+  private class TestIntCallback implements IntCallback {
+    public void onFailure(DataServiceException error) {
+      fail(error.toString());
+    }
+    public void onSuccess(int result) {
+    }
+  }
+}
@@ -77,6 +77,12 @@ public class DataServiceListCallbackTest extends GWTTestCase {
         + "nonevalue FROM testtable WHERE id IN ({ids})")
     void getRecordsByPrimitiveArray(int[] ids,
         ListCallback<GenericRow> callback);
+
+    @Select("SELECT integervalue, textvalue, numericvalue, realvalue, "
+        + "nonevalue FROM testtable WHERE id IN ({ids}) AND id > {minId} "
+        + "AND id NOT IN ({excluded})")
+    void getRecordsExcluding(List<Integer> ids, int minId, int[] excluded,
+        ListCallback<GenericRow> callback);
   }
 
   private TestListCallbackDataService service = null;
@@ -220,4 +226,45 @@ public class DataServiceListCallbackTest extends GWTTestCase {
       }
     });
   }
+
+  public void testGetIdsExcludingCachedSql() throws Exception {
+    delayTestFinish(3000);
+    service.getIds(new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(List<IdRow> result) {
+        assertTrue("Number of IDs must be larger than 1 for this test!",
+            result.size() > 1);
+        final List<Integer> ids = new ArrayList<Integer>();
+        for (IdRow id : result) {
+          ids.add(Integer.valueOf(id.getId()));
+        }
+        // Exclude the first ID:
+        final int[] excluded = {ids.get(0), -1};
+        service.getRecordsExcluding(ids, 0, excluded,
+            new ListCallback<GenericRow>() {
+          public void onSuccess(List<GenericRow> records) {
+            assertEquals("Number of records must match!", ids.size() - 1,
+                records.size());
+            // Same statement with different list sizes:
+            service.getRecordsExcluding(ids.subList(0, 2), 0, new int[] {-1},
+                new ListCallback<GenericRow>() {
+              public void onSuccess(List<GenericRow> records) {
+                assertEquals("Number of records must match!", 2,
+                    records.size());
+                finishTest();
+              }
+              public void onFailure(DataServiceException error) {
+                fail("Failed to obtain records! " + error);
+              }
+            });
+          }
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain records! " + error);
+          }
+        });
+      }
+    });
+  }
 }
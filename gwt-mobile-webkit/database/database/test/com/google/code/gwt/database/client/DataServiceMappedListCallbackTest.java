@@ -0,0 +1,204 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.Date;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with a {@link ListCallback} of plain Java
+ * objects.
+ * 
+ * @author bguijt
+ */
+public class DataServiceMappedListCallbackTest extends GWTTestCase {
+
+  /**
+   * The plain Java row type.
+   */
+  public static class Record {
+    private int id;
+    private String name;
+    private Double amount;
+    private long stamp;
+    private boolean active;
+    private Date created;
+    private String unselected = "default";
+    private transient String ignored;
+
+    private Record() {
+    }
+  }
+
+  /**
+   * A row type reading REAL and TEXT column values into integral fields.
+   */
+  public static class Converted {
+    private int fromReal;
+    private int fromText;
+    private Integer boxed;
+    private short wideShort;
+    private byte wideByte;
+    private boolean zeroText;
+    private boolean oneText;
+    private double fromDouble;
+  }
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestMappedListCallbackDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS mappedtable ("
+        + "id INTEGER PRIMARY KEY, name TEXT, amount REAL, stamp INTEGER, "
+        + "active INTEGER, created INTEGER)")
+    void create(VoidCallback callback);
+
+    @Update("DELETE FROM mappedtable")
+    void clear(VoidCallback callback);
+
+    @Update("INSERT INTO mappedtable (id, name, amount, stamp, active, created)"
+        + " VALUES ({id}, {name}, {amount}, {stamp}, {active}, {created})")
+    void insert(int id, String name, Double amount, double stamp,
+        boolean active, double created, VoidCallback callback);
+
+    @Select("SELECT id, name, amount, stamp, active, created FROM mappedtable "
+        + "ORDER BY id")
+    void getRecords(ListCallback<Record> callback);
+
+    @Select("SELECT id FROM mappedtable WHERE id = {id}")
+    void getRecord(int id, ListCallback<Record> callback);
+
+    @Select("SELECT 3.7 AS fromReal, '12' AS fromText, -2.5 AS boxed, "
+        + "70000 AS wideShort, 300 AS wideByte, '0' AS zeroText, "
+        + "'1' AS oneText, '1.25' AS fromDouble")
+    void getConverted(ListCallback<Converted> callback);
+  }
+
+  private static final double STAMP = 1262304000123.0;
+
+  private TestMappedListCallbackDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestMappedListCallbackDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testGetRecords() throws Exception {
+    delayTestFinish(10000);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.clear(new TestVoidCallback() {
+          public void onSuccess() {
+            service.insert(1, "one", 1.5, STAMP, true, STAMP,
+                new TestVoidCallback() {
+                  public void onSuccess() {
+                  }
+                });
+            service.insert(2, null, null, 0, false, 0,
+                new TestVoidCallback() {
+                  public void onSuccess() {
+                    assertRecords();
+                  }
+                });
+          }
+        });
+      }
+    });
+  }
+
+  private void assertRecords() {
+    service.getRecords(new ListCallback<Record>() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<Record> result) {
+        assertEquals("Number of records", 2, result.size());
+        Record one = result.get(0);
+        assertEquals(1, one.id);
+        assertEquals("one", one.name);
+        assertEquals(Double.valueOf(1.5), one.amount);
+        assertEquals((long) STAMP, one.stamp);
+        assertTrue(one.active);
+        assertEquals((long) STAMP, one.created.getTime());
+        assertEquals("Unselected field must retain its value", "default",
+            one.unselected);
+        assertNull("Transient field must not be mapped", one.ignored);
+
+        Record two = result.get(1);
+        assertEquals(2, two.id);
+        assertNull(two.name);
+        assertNull(two.amount);
+        assertFalse(two.active);
+        finishTest();
+      }
+    });
+  }
+
+  public void testGetEmptyList() throws Exception {
+    delayTestFinish(3000);
+    service.getRecord(-1, new ListCallback<Record>() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<Record> result) {
+        assertNotNull("Resultset may never be null!", result);
+        assertEquals(0, result.size());
+        finishTest();
+      }
+    });
+  }
+
+  public void testConvertedValues() throws Exception {
+    delayTestFinish(3000);
+    service.getConverted(new ListCallback<Converted>() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess(List<Converted> result) {
+        assertEquals(1, result.size());
+        Converted row = result.get(0);
+        assertEquals("REAL must be truncated", 3, row.fromReal);
+        assertEquals("TEXT must be parsed", 12, row.fromText);
+        assertEquals(Integer.valueOf(-2), row.boxed);
+        assertEquals((short) 70000, row.wideShort);
+        assertEquals((byte) 300, row.wideByte);
+        assertFalse("TEXT '0' must be false", row.zeroText);
+        assertTrue(row.oneText);
+        assertEquals(1.25, row.fromDouble, 0.0);
+        finishTest();
+      }
+    });
+  }
+}
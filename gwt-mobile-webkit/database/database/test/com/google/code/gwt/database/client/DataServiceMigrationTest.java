@@ -0,0 +1,223 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Migration;
+import com.google.code.gwt.database.client.service.ScalarCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with {@link Connection#migrations()}.
+ * 
+ * <p>
+ * Each test uses its own database, which is reset to a specific version
+ * before the DataService first accesses it.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class DataServiceMigrationTest extends GWTTestCase {
+
+  private static final String CREATE_V1 =
+      "CREATE TABLE migtable (id INTEGER PRIMARY KEY)";
+  private static final String ALTER_V2 =
+      "ALTER TABLE migtable ADD COLUMN name TEXT";
+  private static final String ALTER_V3 =
+      "ALTER TABLE migtable ADD COLUMN stamp INTEGER";
+
+  @Connection(name="gh5dtmig0", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000, migrations={
+        @Migration(version="1.0", sql={CREATE_V1})})
+  public interface TestMigrationDataService extends DataService {
+
+    @Select("SELECT COUNT(*) FROM migtable")
+    void getCount(ScalarCallback<Integer> callback);
+  }
+
+  @Connection(name="gh5dtmig1", version="3",
+      description="GwtHtml5DatabaseTest", maxsize=5000, migrations={
+        @Migration(version="1", sql={CREATE_V1}),
+        @Migration(version="2", sql={ALTER_V2}),
+        @Migration(version="3", sql={ALTER_V3})})
+  public interface TestMultiStepDataService extends DataService {
+
+    @Select("SELECT COUNT(*) FROM migtable WHERE name IS NULL AND stamp IS NULL")
+    void getCount(ScalarCallback<Integer> callback);
+  }
+
+  @Connection(name="gh5dtmig2", version="2",
+      description="GwtHtml5DatabaseTest", maxsize=5000, migrations={
+        @Migration(version="1", sql={CREATE_V1}),
+        @Migration(version="2", sql={ALTER_V2})})
+  public interface TestUnknownVersionDataService extends DataService {
+
+    @Select("SELECT COUNT(*) FROM migtable WHERE name IS NULL")
+    void getCount(ScalarCallback<Integer> callback);
+  }
+
+  @Connection(name="gh5dtmig3", version="2",
+      description="GwtHtml5DatabaseTest", maxsize=5000, migrations={
+        @Migration(version="1", sql={CREATE_V1}),
+        @Migration(version="2", sql={
+          ALTER_V2, "ALTER TABLE nosuchtable ADD COLUMN name TEXT"})})
+  public interface TestFailingStepDataService extends DataService {
+
+    @Select("SELECT COUNT(*) FROM migtable")
+    void getCount(ScalarCallback<Integer> callback);
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  public void testMigrated() throws Exception {
+    delayTestFinish(10000);
+    resetDatabase("gh5dtmig0", "", new ScheduledCommand() {
+      public void execute() {
+        final TestMigrationDataService service =
+            GWT.create(TestMigrationDataService.class);
+        service.getCount(new ScalarCallback<Integer>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to select from migrated table! " + error);
+          }
+          public void onSuccess(Integer result) {
+            assertEquals("Migrated table must be empty!", 0, result.intValue());
+            assertEquals("Database must be migrated to the current version!",
+                "1.0", service.getDatabase().getVersion());
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  public void testMultiStepUpgrade() throws Exception {
+    delayTestFinish(10000);
+    resetDatabase("gh5dtmig1", "1", new ScheduledCommand() {
+      public void execute() {
+        final TestMultiStepDataService service =
+            GWT.create(TestMultiStepDataService.class);
+        service.getCount(new ScalarCallback<Integer>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to migrate from version 1 to 3! " + error);
+          }
+          public void onSuccess(Integer result) {
+            assertEquals("Migrated table must be empty!", 0, result.intValue());
+            assertEquals("Database must be migrated to the current version!",
+                "3", service.getDatabase().getVersion());
+            finishTest();
+          }
+        });
+      }
+    }, CREATE_V1);
+  }
+
+  public void testUnknownVersion() throws Exception {
+    delayTestFinish(10000);
+    resetDatabase("gh5dtmig2", "9", new ScheduledCommand() {
+      public void execute() {
+        final TestUnknownVersionDataService service =
+            GWT.create(TestUnknownVersionDataService.class);
+        service.getCount(new ScalarCallback<Integer>() {
+          public void onFailure(DataServiceException error) {
+            assertEquals("Unknown version must stay untouched!", "9",
+                service.getDatabase().getVersion());
+            // Once the version is known, the migration is retried:
+            resetDatabase("gh5dtmig2", "1", new ScheduledCommand() {
+              public void execute() {
+                service.getCount(new ScalarCallback<Integer>() {
+                  public void onFailure(DataServiceException error) {
+                    fail("Failed to retry the migration! " + error);
+                  }
+                  public void onSuccess(Integer result) {
+                    assertEquals("Database must be migrated to the current "
+                        + "version!", "2", service.getDatabase().getVersion());
+                    finishTest();
+                  }
+                });
+              }
+            }, CREATE_V1);
+          }
+          public void onSuccess(Integer result) {
+            fail("Migrating from an unknown version must fail!");
+          }
+        });
+      }
+    });
+  }
+
+  public void testFailingStep() throws Exception {
+    delayTestFinish(10000);
+    resetDatabase("gh5dtmig3", "1", new ScheduledCommand() {
+      public void execute() {
+        final TestFailingStepDataService service =
+            GWT.create(TestFailingStepDataService.class);
+        service.getCount(new ScalarCallback<Integer>() {
+          public void onFailure(DataServiceException error) {
+            assertEquals("Failed migration must be rolled back!", "1",
+                service.getDatabase().getVersion());
+            // The next call attempts the migration again, and fails again:
+            service.getCount(new ScalarCallback<Integer>() {
+              public void onFailure(DataServiceException error) {
+                assertEquals("Failed migration must be rolled back!", "1",
+                    service.getDatabase().getVersion());
+                finishTest();
+              }
+              public void onSuccess(Integer result) {
+                fail("The retried migration must fail as well!");
+              }
+            });
+          }
+          public void onSuccess(Integer result) {
+            fail("The failing migration step must fail the call!");
+          }
+        });
+      }
+    }, CREATE_V1);
+  }
+
+  /**
+   * Drops the test table of the specified database, executes the specified
+   * statements and sets the version of the database to the specified version.
+   */
+  private void resetDatabase(String name, String version,
+      final ScheduledCommand next, final String... sql) {
+    Database db = Database.openDatabase(name, "", "GwtHtml5DatabaseTest", 5000);
+    String current = db.getVersion() == null ? "" : db.getVersion();
+    db.changeVersion(current, version, new TransactionCallback() {
+      public void onTransactionStart(SQLTransaction tx) {
+        tx.executeSql("DROP TABLE IF EXISTS migtable", null);
+        for (String statement : sql) {
+          tx.executeSql(statement, null);
+        }
+      }
+      public void onTransactionSuccess() {
+        next.execute();
+      }
+      public void onTransactionFailure(SQLError error) {
+        fail("Failed to reset the database! " + error.getMessage());
+      }
+    });
+  }
+}
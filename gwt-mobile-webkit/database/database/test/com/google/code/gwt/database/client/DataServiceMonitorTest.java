@@ -0,0 +1,200 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestIntCallback;
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.PercentileMonitor;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataServiceMonitor} of the {@link DataService} API.
+ * 
+ * @author bguijt
+ */
+public class DataServiceMonitorTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestMonitorDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS monitortable (id INTEGER)")
+    void create(VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM monitortable")
+    void count(IntCallback callback);
+
+    @Select(sql="SELECT COUNT(*) FROM monitortable", cached=true)
+    void countCached(IntCallback callback);
+  }
+
+  /**
+   * Records the events as strings.
+   */
+  private static class RecordingMonitor implements DataServiceMonitor {
+    private List<String> events = new ArrayList<String>();
+
+    public void onTransactionStart(String method, double requestTime,
+        double time) {
+      assertTrue(time >= requestTime);
+      events.add("start " + method);
+    }
+
+    public void onStatementDispatch(String method, String sql, double time) {
+      events.add("dispatch " + method + " " + sql);
+    }
+
+    public void onStatementResult(String method, String sql, int rowCount,
+        double dispatchTime, double time) {
+      assertTrue(time >= dispatchTime);
+      events.add("result " + method + " " + rowCount);
+    }
+
+    public void onTransactionEnd(String method, boolean committed,
+        double requestTime, double time) {
+      assertTrue(time >= requestTime);
+      events.add("end " + method + " " + committed);
+    }
+
+    public void onCacheHit(String method, String sql, int rowCount,
+        double time) {
+      events.add("cache " + method + " " + sql + " " + rowCount);
+    }
+  }
+
+  private TestMonitorDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestMonitorDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testEvents() {
+    delayTestFinish(10000);
+    final RecordingMonitor monitor = new RecordingMonitor();
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setMonitor(monitor);
+        service.count(new IntCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+
+          public void onSuccess(int result) {
+            List<String> expected = new ArrayList<String>();
+            expected.add("start TestMonitorDataService.count");
+            expected.add("dispatch TestMonitorDataService.count "
+                + "SELECT COUNT(*) FROM monitortable");
+            expected.add("result TestMonitorDataService.count 1");
+            expected.add("end TestMonitorDataService.count true");
+            assertEquals(expected, monitor.events);
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  public void testCacheHit() {
+    delayTestFinish(10000);
+    final RecordingMonitor monitor = new RecordingMonitor();
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.getResultCache().clear();
+        service.setMonitor(monitor);
+        service.countCached(new TestIntCallback() {
+          public void onSuccess(int result) {
+            service.countCached(new TestIntCallback() {
+              public void onSuccess(int result) {
+                List<String> expected = new ArrayList<String>();
+                expected.add("start TestMonitorDataService.countCached");
+                expected.add("dispatch TestMonitorDataService.countCached "
+                    + "SELECT COUNT(*) FROM monitortable");
+                expected.add("result TestMonitorDataService.countCached 1");
+                expected.add("end TestMonitorDataService.countCached true");
+                expected.add("cache TestMonitorDataService.countCached "
+                    + "SELECT COUNT(*) FROM monitortable 1");
+                assertEquals(expected, monitor.events);
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testPercentileMonitor() {
+    PercentileMonitor monitor = new PercentileMonitor(10);
+    assertTrue(Double.isNaN(monitor.getPercentile("m", 50)));
+    for (int i = 1; i <= 20; i++) {
+      monitor.onTransactionEnd("m", i != 20, 0, i);
+    }
+    assertEquals(20, monitor.getCount("m"));
+    assertEquals(1, monitor.getFailureCount("m"));
+    // Only the latest 10 samples (11..20) are kept:
+    assertEquals(15.0, monitor.getPercentile("m", 50));
+    assertEquals(20.0, monitor.getPercentile("m", 95));
+    assertEquals(11.0, monitor.getPercentile("m", 0));
+    assertEquals(0, monitor.getCacheHitCount("m"));
+    monitor.onCacheHit("m", "SELECT 1", 1, 21);
+    assertEquals(1, monitor.getCacheHitCount("m"));
+    assertEquals(20, monitor.getCount("m"));
+  }
+
+  public void testPercentileMonitorService() {
+    delayTestFinish(10000);
+    final PercentileMonitor monitor = new PercentileMonitor();
+    service.setMonitor(monitor);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.count(new IntCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+
+          public void onSuccess(int result) {
+            assertEquals(1, monitor.getCount("TestMonitorDataService.create"));
+            assertEquals(1, monitor.getCount("TestMonitorDataService.count"));
+            assertTrue(monitor.getPercentile("TestMonitorDataService.count",
+                99) >= 0);
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+}
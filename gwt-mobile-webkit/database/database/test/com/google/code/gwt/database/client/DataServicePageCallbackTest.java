@@ -0,0 +1,159 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.DataServiceListCallbackTest.IdRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.PageCallback;
+import com.google.code.gwt.database.client.service.ScalarCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with the {@link PageCallback}.
+ * 
+ * @author bguijt
+ */
+public class DataServicePageCallbackTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestPageCallbackDataService extends DataService {
+    
+    @Update("CREATE TABLE IF NOT EXISTS testtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "integervalue INTEGER, "
+        + "textvalue TEXT, "
+        + "numericvalue NUMERIC, "
+        + "realvalue REAL, "
+        + "nonevalue NONE)")
+    void create(VoidCallback callback);
+
+    @Update(sql="INSERT INTO testtable (integervalue) VALUES ({_})",
+        foreach="values")
+    void insert(int[] values, VoidCallback callback);
+
+    @Select("SELECT COUNT(*) FROM testtable")
+    void getCount(ScalarCallback<Integer> callback);
+
+    @Select(sql="SELECT id FROM testtable ORDER BY id", pageSize=2,
+        page="page")
+    void getIdsByPage(int page, PageCallback<IdRow> callback);
+
+    @Select(sql="SELECT id FROM testtable WHERE id > {lastId} ORDER BY id",
+        pageSize=2)
+    void getIdsAfter(int lastId, PageCallback<IdRow> callback);
+  }
+
+  private TestPageCallbackDataService service = null;
+  
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service  = GWT.create(TestPageCallbackDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testCreate() throws Exception {
+    delayTestFinish(10000);
+    service.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        service.insert(new int[] {1, 2, 3}, new VoidCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+          public void onSuccess() {
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  public void testGetIdsByPage() throws Exception {
+    delayTestFinish(3000);
+    service.getCount(new ScalarCallback<Integer>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain count! " + error);
+      }
+      public void onSuccess(final Integer count) {
+        assertTrue("Number of rows must be larger than 2 for this test!",
+            count.intValue() > 2);
+        service.getIdsByPage(0, new PageCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain first page! " + error);
+          }
+          public void onSuccess(List<IdRow> result, boolean hasNextPage) {
+            assertEquals("First page must be full!", 2, result.size());
+            assertTrue("First page must have a next page!", hasNextPage);
+            final int lastPage = (count.intValue() - 1) / 2;
+            service.getIdsByPage(lastPage, new PageCallback<IdRow>() {
+              public void onFailure(DataServiceException error) {
+                fail("Failed to obtain last page! " + error);
+              }
+              public void onSuccess(List<IdRow> result, boolean hasNextPage) {
+                assertEquals("Last page must hold the remaining rows!",
+                    count.intValue() - lastPage * 2, result.size());
+                assertFalse("Last page may not have a next page!",
+                    hasNextPage);
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testGetIdsAfter() throws Exception {
+    delayTestFinish(3000);
+    service.getIdsAfter(0, new PageCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain first page! " + error);
+      }
+      public void onSuccess(final List<IdRow> first, boolean hasNextPage) {
+        assertEquals("First page must be full!", 2, first.size());
+        assertTrue("First page must have a next page!", hasNextPage);
+        service.getIdsAfter(first.get(1).getId(), new PageCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain next page! " + error);
+          }
+          public void onSuccess(List<IdRow> next, boolean hasNextPage) {
+            assertTrue("Next page may not be empty!", next.size() > 0);
+            assertTrue("Next page must follow the first page!",
+                next.get(0).getId() > first.get(1).getId());
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.DataServiceListCallbackTest.IdRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DataServiceMonitor;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.ResultCache;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with {@link Select#prefetch() prefetched}
+ * service methods.
+ * 
+ * @author bguijt
+ */
+public class DataServicePrefetchTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestPrefetchDataService extends DataService {
+    
+    @Update("CREATE TABLE IF NOT EXISTS testtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "integervalue INTEGER, "
+        + "textvalue TEXT, "
+        + "numericvalue NUMERIC, "
+        + "realvalue REAL, "
+        + "nonevalue NONE)")
+    void create(VoidCallback callback);
+
+    @Select(sql="SELECT id FROM testtable WHERE id > {minId}",
+        prefetch="ids")
+    void getIds(int minId, ListCallback<IdRow> callback);
+
+    @Select(sql="SELECT id FROM testtable WHERE textvalue = {text}",
+        prefetch="ids")
+    void getIdsByText(String text, ListCallback<IdRow> callback);
+  }
+
+  private TestPrefetchDataService service = null;
+
+  private int dispatched = 0;
+  
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service  = GWT.create(TestPrefetchDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testCreate() throws Exception {
+    delayTestFinish(10000);
+    service.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        finishTest();
+      }
+    });
+  }
+
+  public void testPrefetched() throws Exception {
+    delayTestFinish(5000);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.prefetch("ids", 0);
+    service.prefetch("ids", 0, "unknown parameter");
+    assertEquals("Prefetching must be deferred!", 0, cache.size());
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      public boolean execute() {
+        if (cache.size() == 0) {
+          return true;
+        }
+        assertEquals("Only one resultset must be prefetched!", 1,
+            cache.size());
+        service.setMonitor(new DispatchCounter());
+        service.getIds(0, new ListCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain prefetched ID's! " + error);
+          }
+          public void onSuccess(List<IdRow> result) {
+            service.setMonitor(null);
+            assertEquals("Prefetched resultset must be relayed!", 0,
+                dispatched);
+            finishTest();
+          }
+        });
+        return false;
+      }
+    }, 50);
+  }
+
+  /**
+   * Only the service methods whose parameter types match the prefetch
+   * parameters are prefetched.
+   */
+  public void testPrefetchedByType() throws Exception {
+    delayTestFinish(5000);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.prefetch("ids", "none");
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      public boolean execute() {
+        if (cache.size() == 0) {
+          return true;
+        }
+        assertEquals("Only one resultset must be prefetched!", 1,
+            cache.size());
+        service.setMonitor(new DispatchCounter());
+        service.getIdsByText("none", new ListCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain prefetched ID's! " + error);
+          }
+          public void onSuccess(List<IdRow> result) {
+            service.setMonitor(null);
+            assertEquals("Prefetched resultset must be relayed!", 0,
+                dispatched);
+            finishTest();
+          }
+        });
+        return false;
+      }
+    }, 50);
+  }
+
+  private class DispatchCounter implements DataServiceMonitor {
+    public void onTransactionStart(String method, double requestTime,
+        double time) {
+    }
+    public void onStatementDispatch(String method, String sql, double time) {
+      dispatched++;
+    }
+    public void onStatementResult(String method, String sql, int rowCount,
+        double dispatchTime, double time) {
+    }
+    public void onTransactionEnd(String method, boolean committed,
+        double requestTime, double time) {
+    }
+    public void onCacheHit(String method, String sql, int rowCount,
+        double time) {
+    }
+  }
+}
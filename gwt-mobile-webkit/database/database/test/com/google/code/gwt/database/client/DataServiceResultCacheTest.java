@@ -0,0 +1,295 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.code.gwt.database.client.DataServiceListCallbackTest.IdRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.ResultCache;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link DataService} API with {@link Select#cached() cached}
+ * service methods.
+ * 
+ * @author bguijt
+ */
+public class DataServiceResultCacheTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestResultCacheDataService extends DataService {
+    
+    @Update("CREATE TABLE IF NOT EXISTS testtable ("
+        + "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, "
+        + "integervalue INTEGER, "
+        + "textvalue TEXT, "
+        + "numericvalue NUMERIC, "
+        + "realvalue REAL, "
+        + "nonevalue NONE)")
+    void create(VoidCallback callback);
+
+    @Update("INSERT INTO testtable (integervalue) VALUES ({value})")
+    void insert(int value, VoidCallback callback);
+
+    @Update("CREATE TABLE IF NOT EXISTS othertable (id INTEGER)")
+    void createOther(VoidCallback callback);
+
+    @Update("CREATE INDEX IF NOT EXISTS testtable_integervalue "
+        + "ON testtable (integervalue)")
+    void createIndex(VoidCallback callback);
+
+    @Select(sql="SELECT id FROM testtable", cached=true)
+    void getIds(ListCallback<IdRow> callback);
+
+    @Select(sql="SELECT id FROM testtable WHERE id IN ({ids})", cached=true)
+    void getIdsIn(Iterable<Integer> ids, ListCallback<IdRow> callback);
+  }
+
+  /**
+   * Counts the iterations over the IDs.
+   */
+  private static class CountingIds implements Iterable<Integer> {
+    private int iterations = 0;
+
+    public Iterator<Integer> iterator() {
+      iterations++;
+      return Arrays.asList(1, 2, 3).iterator();
+    }
+  }
+
+  private TestResultCacheDataService service = null;
+  
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service  = GWT.create(TestResultCacheDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testCreate() throws Exception {
+    delayTestFinish(10000);
+    service.create(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        finishTest();
+      }
+    });
+  }
+
+  public void testCachedAndInvalidated() throws Exception {
+    delayTestFinish(5000);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.getIds(new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(final List<IdRow> first) {
+        assertEquals("Resultset must be cached!", 1, cache.size());
+        service.getIds(new ListCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain cached ID's! " + error);
+          }
+          public void onSuccess(List<IdRow> cached) {
+            assertEquals("Cached resultset must be equal!", first.size(),
+                cached.size());
+            service.createOther(new VoidCallback() {
+              public void onFailure(DataServiceException error) {
+                fail(error.toString());
+              }
+              public void onSuccess() {
+                assertEquals("Resultset of another table must stay cached!",
+                    1, cache.size());
+                service.insert(1, new VoidCallback() {
+                  public void onFailure(DataServiceException error) {
+                    fail(error.toString());
+                  }
+                  public void onSuccess() {
+                    assertEquals("Resultset must be invalidated!", 0,
+                        cache.size());
+                    service.getIds(new ListCallback<IdRow>() {
+                      public void onFailure(DataServiceException error) {
+                        fail("Failed to obtain ID's! " + error);
+                      }
+                      public void onSuccess(List<IdRow> result) {
+                        assertEquals("Inserted row must be selected!",
+                            first.size() + 1, result.size());
+                        finishTest();
+                      }
+                    });
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Each caller receives its own copy of the cached rows.
+   */
+  public void testCachedRowsAreCopies() throws Exception {
+    delayTestFinish(5000);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.insert(2, new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        service.getIds(new ListCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain ID's! " + error);
+          }
+          public void onSuccess(final List<IdRow> first) {
+            for (IdRow row : first) {
+              setId(row, -1);
+            }
+            service.getIds(new ListCallback<IdRow>() {
+              public void onFailure(DataServiceException error) {
+                fail("Failed to obtain cached ID's! " + error);
+              }
+              public void onSuccess(List<IdRow> cached) {
+                assertEquals(first.size(), cached.size());
+                for (IdRow row : cached) {
+                  assertTrue("Cached row must not be modified!",
+                      row.getId() > 0);
+                }
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * A statement modifying an unknown table invalidates all resultsets.
+   */
+  public void testInvalidateAll() throws Exception {
+    delayTestFinish(5000);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.getIds(new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(List<IdRow> result) {
+        assertEquals("Resultset must be cached!", 1, cache.size());
+        service.createIndex(new VoidCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+          public void onSuccess() {
+            assertEquals("All resultsets must be invalidated!", 0,
+                cache.size());
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * A batched write invalidates the resultsets again when the batch commits,
+   * as other DataServices may cache resultsets before.
+   */
+  public void testBatchInvalidatesOnCommit() throws Exception {
+    delayTestFinish(5000);
+    final TestResultCacheDataService other =
+        GWT.create(TestResultCacheDataService.class);
+    final ResultCache cache = service.getResultCache();
+    cache.clear();
+    service.beginBatch();
+    service.insert(4, new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+      }
+    });
+    other.getIds(new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(List<IdRow> result) {
+        assertEquals("Resultset must be cached!", 1, cache.size());
+        service.commitBatch(new VoidCallback() {
+          public void onFailure(DataServiceException error) {
+            fail(error.toString());
+          }
+          public void onSuccess() {
+            assertEquals("Resultset must be invalidated!", 0, cache.size());
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * The statement determined to look up the resultset in the cache is
+   * executed as it is, without evaluating its parameters again.
+   */
+  public void testStatementDeterminedOnce() throws Exception {
+    delayTestFinish(5000);
+    service.getResultCache().clear();
+    final CountingIds ids = new CountingIds();
+    service.getIdsIn(ids, new ListCallback<IdRow>() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to obtain ID's! " + error);
+      }
+      public void onSuccess(List<IdRow> result) {
+        final int missed = ids.iterations;
+        service.getIdsIn(ids, new ListCallback<IdRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain cached ID's! " + error);
+          }
+          public void onSuccess(List<IdRow> cached) {
+            assertEquals("A cache miss must evaluate the parameters once, "
+                + "like a cache hit", ids.iterations - missed, missed);
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  private static native void setId(IdRow row, int id) /*-{
+    row.id = id;
+  }-*/;
+}
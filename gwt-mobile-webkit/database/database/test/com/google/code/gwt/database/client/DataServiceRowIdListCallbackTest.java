@@ -116,6 +116,13 @@ public class DataServiceRowIdListCallbackTest extends GWTTestCase {
       foreach="records")
     void insertRecordsArray(TestRecord[] records, RowIdListCallback callback);
 
+    @Update(sql="INSERT INTO testtable (integervalue, textvalue, "
+      + "numericvalue, realvalue, nonevalue) VALUES ({_.getI()}, "
+      + "{_.getText()}, {_.getNumber()}, {_.getReal()}, {_.getNone()})",
+      foreach="records", batchSize=2)
+    void insertRecordsBatched(List<TestRecord> records,
+        RowIdListCallback callback);
+
     @Select("SELECT integervalue, textvalue, numericvalue, realvalue, "
         + "nonevalue FROM testtable WHERE id IN ({ids})")
     void getRecords(Collection<Integer> ids, ListCallback<GenericRow> callback);
@@ -295,4 +302,42 @@ public class DataServiceRowIdListCallbackTest extends GWTTestCase {
       }
     });
   }
+
+  public void testInsertRecordsBatched() throws Exception {
+    delayTestFinish(3000);
+    final List<TestRecord> inserts = new ArrayList<TestRecord>();
+    for (int i = 0; i < 5; i++) {
+      inserts.add(new TestRecord(1006 + i, "batched record " + i, i, 1d * i,
+          null));
+    }
+    service.insertRecordsBatched(inserts, new RowIdListCallback() {
+      public void onFailure(DataServiceException error) {
+        fail("Failed to insert records! " + error.toString());
+      }
+
+      public void onSuccess(final List<Integer> rowIds) {
+        // Test returned rowIds:
+        assertNotNull("resultset may not be null!", rowIds);
+        assertEquals("Length of resultset must match!", 5, rowIds.size());
+        service.getRecords(rowIds, new ListCallback<GenericRow>() {
+          public void onFailure(DataServiceException error) {
+            fail("Failed to obtain records! " + error.toString());
+          }
+
+          public void onSuccess(List<GenericRow> result) {
+            assertNotNull("Resultset may not be null!", result);
+            assertEquals("ID list and result list must be of same size!",
+                rowIds.size(), result.size());
+            for (int i = 0; i < rowIds.size(); i++) {
+              assertEquals("int column must match!", inserts.get(i).getI(),
+                  result.get(i).getInt("integervalue"));
+              assertEquals("text column must match!", inserts.get(i).getText(),
+                  result.get(i).getString("textvalue"));
+            }
+            finishTest();
+          }
+        });
+      }
+    });
+  }
 }
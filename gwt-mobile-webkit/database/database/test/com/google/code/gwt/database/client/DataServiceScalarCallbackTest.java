@@ -19,6 +19,9 @@ package com.google.code.gwt.database.client;
 import com.google.code.gwt.database.client.service.Connection;
 import com.google.code.gwt.database.client.service.DataService;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.DoubleCallback;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.LongCallback;
 import com.google.code.gwt.database.client.service.ScalarCallback;
 import com.google.code.gwt.database.client.service.Select;
 import com.google.code.gwt.database.client.service.Update;
@@ -72,6 +75,18 @@ public class DataServiceScalarCallbackTest extends GWTTestCase {
 
     @Select("SELECT textvalue FROM testtable WHERE LENGTH(textvalue) > 0")
     void selectLastText(ScalarCallback<String> callback);
+
+    @Select("SELECT COUNT(*) FROM testtable")
+    void selectCountAllPrimitiveInt(IntCallback callback);
+
+    @Select("SELECT MAX(id) FROM testtable")
+    void selectMaxIdLong(LongCallback callback);
+
+    @Select("SELECT SUM(realvalue) FROM testtable WHERE id < 0")
+    void selectSumNoneDouble(DoubleCallback callback);
+
+    @Select("SELECT id FROM testtable WHERE id < 0")
+    void selectNoneInt(IntCallback callback);
   }
 
   private TestScalarCallbackDataService service = null;
@@ -236,4 +251,60 @@ public class DataServiceScalarCallbackTest extends GWTTestCase {
       }
     });
   }
+
+  public void testSelectCountAllPrimitiveInt() {
+    delayTestFinish(3000);
+    service.selectCountAllPrimitiveInt(new IntCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+
+      public void onSuccess(int result) {
+        assertTrue("Result must be 0 or higher", result >= 0);
+        finishTest();
+      }
+    });
+  }
+
+  public void testSelectMaxIdLong() {
+    delayTestFinish(3000);
+    service.selectMaxIdLong(new LongCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+
+      public void onSuccess(long result) {
+        assertTrue("Result must be 0 or higher", result >= 0);
+        finishTest();
+      }
+    });
+  }
+
+  public void testSelectSumNoneDouble() {
+    delayTestFinish(3000);
+    service.selectSumNoneDouble(new DoubleCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+
+      public void onSuccess(double result) {
+        assertEquals("NULL result must be 0", 0.0, result);
+        finishTest();
+      }
+    });
+  }
+
+  public void testSelectNoneInt() {
+    delayTestFinish(3000);
+    service.selectNoneInt(new IntCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+
+      public void onSuccess(int result) {
+        assertEquals("Empty resultset must be 0", 0, result);
+        finishTest();
+      }
+    });
+  }
 }
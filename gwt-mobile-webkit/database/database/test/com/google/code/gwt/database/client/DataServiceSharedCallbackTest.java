@@ -0,0 +1,155 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestListCallback;
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests when the parameters of the {@link DataService} methods are evaluated:
+ * a method executing a single statement uses a shared TransactionCallback
+ * class and evaluates its parameters when it is called, whereas a method
+ * iterating a <code>foreach</code> collection or expanding an
+ * <code>IN</code>-list evaluates them when its transaction starts.
+ * 
+ * @author bguijt
+ */
+public class DataServiceSharedCallbackTest extends GWTTestCase {
+
+  /**
+   * A mutable parameter value.
+   */
+  public static class Holder {
+    private int value;
+
+    public Holder(int value) {
+      this.value = value;
+    }
+
+    public int getValue() {
+      return value;
+    }
+  }
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestSharedCallbackDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS sharedtable (value INTEGER)")
+    void create(VoidCallback callback);
+
+    @Update("DELETE FROM sharedtable")
+    void clear(VoidCallback callback);
+
+    // Shared: a single statement.
+    @Update("INSERT INTO sharedtable (value) VALUES ({holder.getValue()})")
+    void insert(Holder holder, VoidCallback callback);
+
+    // Not shared: iterates the collection.
+    @Update(sql="INSERT INTO sharedtable (value) VALUES ({_})",
+        foreach="values")
+    void insertAll(List<Integer> values, VoidCallback callback);
+
+    // Shared: a single statement.
+    @Select("SELECT value FROM sharedtable ORDER BY value")
+    void getAll(ListCallback<GenericRow> callback);
+
+    // Not shared: expands the collection into an IN-list.
+    @Select("SELECT value FROM sharedtable WHERE value IN ({values}) "
+        + "ORDER BY value")
+    void getIn(List<Integer> values, ListCallback<GenericRow> callback);
+  }
+
+  private TestSharedCallbackDataService service = null;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestSharedCallbackDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+  }
+
+  public void testParameterEvaluation() throws Exception {
+    delayTestFinish(10000);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.clear(new TestVoidCallback() {
+          public void onSuccess() {
+            Holder holder = new Holder(1);
+            service.insert(holder, new TestVoidCallback() {
+              public void onSuccess() {
+              }
+            });
+            // Too late for the shared single statement:
+            holder.value = 2;
+
+            List<Integer> values = new ArrayList<Integer>();
+            values.add(10);
+            service.insertAll(values, new TestVoidCallback() {
+              public void onSuccess() {
+                assertInserted();
+              }
+            });
+            // Still in time for the iterated statement:
+            values.add(11);
+          }
+        });
+      }
+    });
+  }
+
+  private void assertInserted() {
+    service.getAll(new TestListCallback<GenericRow>() {
+      public void onSuccess(List<GenericRow> result) {
+        assertValues(new int[] {1, 10, 11}, result);
+
+        List<Integer> values = new ArrayList<Integer>();
+        values.add(1);
+        service.getIn(values, new TestListCallback<GenericRow>() {
+          public void onSuccess(List<GenericRow> result) {
+            assertValues(new int[] {1, 10}, result);
+            finishTest();
+          }
+        });
+        // Still in time for the IN-list:
+        values.add(10);
+      }
+    });
+  }
+
+  private void assertValues(int[] expected, List<GenericRow> result) {
+    assertEquals("Number of rows", expected.length, result.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("Row " + i, expected[i], result.get(i).getInt("value"));
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.Collection;
 import com.google.code.gwt.database.client.service.Connection;
 import com.google.code.gwt.database.client.service.DataService;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Select;
 import com.google.code.gwt.database.client.service.Update;
 import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.gwt.core.client.GWT;
@@ -51,6 +52,18 @@ public class DataServiceVoidCallbackTest extends GWTTestCase {
     
     @Update("DELETE FROM testtable")
     void emptyTable(VoidCallback callback);
+
+    /**
+     * Only reads, so it is executed in a read-only transaction.
+     */
+    @Update("SELECT COUNT(*) FROM testtable")
+    void countInUpdate(VoidCallback callback);
+
+    /**
+     * Writes, so it is executed in a read/write transaction (with a warning).
+     */
+    @Select("DELETE FROM testtable WHERE id < 0")
+    void deleteInSelect(VoidCallback callback);
     
     public enum TestEnum {
       A, B
@@ -118,4 +131,29 @@ public class DataServiceVoidCallbackTest extends GWTTestCase {
       }
     });
   }
+
+  public void testCountInUpdate() throws Exception {
+    delayTestFinish(3000);
+    service.countInUpdate(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail(error.toString());
+      }
+      public void onSuccess() {
+        finishTest();
+      }
+    });
+  }
+
+  public void testDeleteInSelect() throws Exception {
+    delayTestFinish(3000);
+    service.deleteInSelect(new VoidCallback() {
+      public void onFailure(DataServiceException error) {
+        fail("A writing @Select must run in a read/write transaction: "
+            + error);
+      }
+      public void onSuccess() {
+        finishTest();
+      }
+    });
+  }
 }
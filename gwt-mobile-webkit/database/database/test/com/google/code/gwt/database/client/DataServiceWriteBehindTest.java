@@ -0,0 +1,176 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import com.google.code.gwt.database.client.TestCallbacks.TestIntCallback;
+import com.google.code.gwt.database.client.TestCallbacks.TestVoidCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests the {@link Update#writeBehind() write-behind} service methods of the
+ * {@link DataService} API.
+ * 
+ * @author bguijt
+ */
+public class DataServiceWriteBehindTest extends GWTTestCase {
+
+  @Connection(name="gh5dt", version="1.0",
+      description="GwtHtml5DatabaseTest", maxsize=5000)
+  public interface TestWriteBehindDataService extends DataService {
+
+    @Update("CREATE TABLE IF NOT EXISTS writebehindtable ("
+        + "id INTEGER PRIMARY KEY, value INTEGER)")
+    void create(VoidCallback callback);
+
+    @Update(sql="INSERT OR REPLACE INTO writebehindtable (id, value) "
+        + "VALUES ({id}, {value})", writeBehind=true, coalesce="id")
+    void setValue(int id, int value, VoidCallback callback);
+
+    @Update(sql="UPDATE writebehindtable SET value = value + 1 "
+        + "WHERE id = {id}", writeBehind=true)
+    void increment(int id, VoidCallback callback);
+
+    @Select("SELECT value FROM writebehindtable WHERE id = {id}")
+    void getValue(int id, IntCallback callback);
+
+    @Select(sql="SELECT value FROM writebehindtable WHERE id = {id}",
+        cached=true)
+    void getCachedValue(int id, IntCallback callback);
+  }
+
+  private TestWriteBehindDataService service = null;
+  private int resolved;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() throws Exception {
+    service = GWT.create(TestWriteBehindDataService.class);
+    assertNotNull("GWT.create() of a DataService may not return null!", service);
+    resolved = 0;
+  }
+
+  public void testCoalesce() throws Exception {
+    delayTestFinish(10000);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setValue(1, 1, new CountingCallback());
+        service.setValue(1, 2, new CountingCallback());
+        service.setValue(1, 3, new CountingCallback());
+        service.flushWrites(new TestVoidCallback() {
+          public void onSuccess() {
+            assertEquals("Each coalesced callback must be invoked", 3,
+                resolved);
+            service.getValue(1, new TestIntCallback() {
+              public void onSuccess(int result) {
+                assertEquals("The last value must be written", 3, result);
+                finishTest();
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testReadObservesQueuedWrites() throws Exception {
+    delayTestFinish(10000);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setValue(2, 10, new CountingCallback());
+        service.increment(2, new CountingCallback());
+        service.increment(2, new CountingCallback());
+        service.getValue(2, new TestIntCallback() {
+          public void onSuccess(int result) {
+            assertEquals("Queued writes must be flushed before a read", 3,
+                resolved);
+            assertEquals("Uncoalesced writes must all be executed", 12, result);
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Another DataService on the same database does not flush the queue before
+   * its reads, so it may cache a resultset selected before the flush. The
+   * flush must invalidate it.
+   */
+  public void testFlushInvalidatesOtherService() throws Exception {
+    delayTestFinish(10000);
+    final TestWriteBehindDataService other = GWT.create(
+        TestWriteBehindDataService.class);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setValue(4, 1, new CountingCallback());
+        service.flushWrites(new TestVoidCallback() {
+          public void onSuccess() {
+            service.setValue(4, 2, new CountingCallback());
+            other.getCachedValue(4, new TestIntCallback() {
+              public void onSuccess(int result) {
+                assertEquals("The write must still be queued", 1, result);
+                service.flushWrites(new TestVoidCallback() {
+                  public void onSuccess() {
+                    other.getCachedValue(4, new TestIntCallback() {
+                      public void onSuccess(int result) {
+                        assertEquals("The flush must invalidate the cache",
+                            2, result);
+                        finishTest();
+                      }
+                    });
+                  }
+                });
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  public void testFlushOnTimer() throws Exception {
+    delayTestFinish(10000);
+    service.setWriteBehindPolicy(50, 100);
+    service.create(new TestVoidCallback() {
+      public void onSuccess() {
+        service.setValue(3, 7, new TestVoidCallback() {
+          public void onSuccess() {
+            finishTest();
+          }
+        });
+      }
+    });
+  }
+
+  private class CountingCallback extends TestVoidCallback {
+    public void onSuccess() {
+      resolved++;
+    }
+  }
+}
@@ -32,10 +32,24 @@ public class DatabaseSuite {
     
     // $JUnit-BEGIN$
     suite.addTestSuite(DatabaseTest.class);
+    suite.addTestSuite(DataServiceMigrationTest.class);
+    suite.addTestSuite(DataServiceConnectionTest.class);
     suite.addTestSuite(DataServiceVoidCallbackTest.class);
     suite.addTestSuite(DataServiceRowIdListCallbackTest.class);
     suite.addTestSuite(DataServiceScalarCallbackTest.class);
     suite.addTestSuite(DataServiceListCallbackTest.class);
+    suite.addTestSuite(DataServiceMappedListCallbackTest.class);
+    suite.addTestSuite(DataServiceCursorCallbackTest.class);
+    suite.addTestSuite(DataServicePageCallbackTest.class);
+    suite.addTestSuite(DataServiceBatchTest.class);
+    suite.addTestSuite(DataServiceWriteBehindTest.class);
+    suite.addTestSuite(DataServiceResultCacheTest.class);
+    suite.addTestSuite(DataServiceMonitorTest.class);
+    suite.addTestSuite(DataServiceIndexAdvisorTest.class);
+    suite.addTestSuite(DataServiceFullTextSearchTest.class);
+    suite.addTestSuite(DataServiceBulkImportTest.class);
+    suite.addTestSuite(DataServicePrefetchTest.class);
+    suite.addTestSuite(DataServiceSharedCallbackTest.class);
     // $JUnit-END$
     
     return suite;
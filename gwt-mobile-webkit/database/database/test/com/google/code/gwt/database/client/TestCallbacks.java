@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client;
+
+import junit.framework.Assert;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.IntCallback;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+/**
+ * Holds the DataService callbacks shared by the tests, which fail the test
+ * when the service method fails.
+ * 
+ * @author bguijt
+ */
+public class TestCallbacks {
+
+  private TestCallbacks() {
+  }
+
+  public abstract static class TestVoidCallback implements VoidCallback {
+    public void onFailure(DataServiceException error) {
+      Assert.fail(error.toString());
+    }
+  }
+
+  public abstract static class TestIntCallback implements IntCallback {
+    public void onFailure(DataServiceException error) {
+      Assert.fail(error.toString());
+    }
+  }
+
+  public abstract static class TestListCallback<T> implements ListCallback<T> {
+    public void onFailure(DataServiceException error) {
+      Assert.fail(error.toString());
+    }
+  }
+}
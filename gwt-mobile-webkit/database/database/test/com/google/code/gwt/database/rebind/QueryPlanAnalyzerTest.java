@@ -0,0 +1,154 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.google.gwt.core.ext.ConfigurationProperty;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
+
+/**
+ * Tests the {@link QueryPlanAnalyzer}.
+ * 
+ * @author bguijt
+ */
+public class QueryPlanAnalyzerTest extends TestCase {
+
+  private StringWriter log;
+
+  private QueryPlanAnalyzer createAnalyzer(String strict) {
+    log = new StringWriter();
+    QueryPlanAnalyzer analyzer = new QueryPlanAnalyzer(
+        new PrintWriterTreeLogger(new PrintWriter(log, true)),
+        createContext(strict));
+    analyzer.addSchemaStatement("CREATE TABLE clickcount ("
+        + "id INTEGER PRIMARY KEY, clicked INTEGER, label TEXT UNIQUE)");
+    analyzer.addSchemaStatement(
+        "CREATE INDEX IF NOT EXISTS clickcount_clicked ON clickcount (clicked)");
+    return analyzer;
+  }
+
+  public void testFullScan() {
+    List<String> problems = createAnalyzer(null).analyzeStatement(
+        "SELECT * FROM clickcount WHERE name = ?");
+    assertEquals(problems.toString(), 1, problems.size());
+    assertTrue(problems.get(0), problems.get(0).contains(
+        "scans the full table 'clickcount'"));
+  }
+
+  public void testIndexedLookup() {
+    QueryPlanAnalyzer analyzer = createAnalyzer(null);
+    assertEquals(0, analyzer.analyzeStatement(
+        "SELECT * FROM clickcount WHERE clicked > ?").size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "SELECT * FROM clickcount WHERE id = ?").size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "SELECT * FROM clickcount WHERE \"label\" = ? ORDER BY label").size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "SELECT * FROM clickcount WHERE rowid IN (?, ?)").size());
+  }
+
+  public void testTemporaryBTree() {
+    List<String> problems = createAnalyzer(null).analyzeStatement(
+        "SELECT * FROM clickcount WHERE clicked > ? ORDER BY name DESC");
+    assertEquals(problems.toString(), 1, problems.size());
+    assertTrue(problems.get(0), problems.get(0).contains(
+        "temporary B-tree for ORDER BY"));
+  }
+
+  public void testUnknownTable() {
+    assertEquals(0, createAnalyzer(null).analyzeStatement(
+        "SELECT * FROM other WHERE name = ?").size());
+  }
+
+  public void testUpdateAndDelete() {
+    QueryPlanAnalyzer analyzer = createAnalyzer(null);
+    List<String> problems = analyzer.analyzeStatement(
+        "UPDATE clickcount SET clicked = ? WHERE name = ?");
+    assertEquals(problems.toString(), 1, problems.size());
+    assertTrue(problems.get(0), problems.get(0).contains(
+        "scans the full table 'clickcount'"));
+    problems = analyzer.analyzeStatement(
+        "DELETE FROM clickcount WHERE name IS NULL");
+    assertEquals(problems.toString(), 1, problems.size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "UPDATE OR REPLACE clickcount SET name = ? WHERE id = ?").size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "DELETE FROM clickcount WHERE clicked < ?").size());
+    assertEquals(0, analyzer.analyzeStatement(
+        "DELETE FROM clickcount").size());
+  }
+
+  public void testInfo() {
+    assertTrue(createAnalyzer(null).reportStatement("getByName",
+        "SELECT * FROM clickcount WHERE name = ?"));
+    assertTrue(log.toString(), log.toString().contains("Method getByName"));
+    assertFalse(log.toString(), log.toString().contains("[WARN]"));
+    assertFalse(log.toString(), log.toString().contains("[ERROR]"));
+  }
+
+  public void testStrict() {
+    QueryPlanAnalyzer analyzer = createAnalyzer("true");
+    assertTrue(analyzer.reportStatement("getByName",
+        "SELECT * FROM clickcount WHERE name = ?"));
+    assertTrue(log.toString(), log.toString().contains("[ERROR] Method getByName"));
+    assertFalse(analyzer.reportStatement("getById",
+        "SELECT * FROM clickcount WHERE id = ?"));
+    assertFalse(log.toString(), log.toString().contains("getById"));
+  }
+
+  /**
+   * Returns a GeneratorContext with the specified value of the
+   * <code>gwt.database.strict</code> configuration property, which is
+   * undefined if <code>null</code>.
+   */
+  private static GeneratorContext createContext(final String strict) {
+    final ConfigurationProperty property = proxy(ConfigurationProperty.class,
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return strict == null ? Collections.emptyList()
+                : Collections.singletonList(strict);
+          }
+        });
+    final PropertyOracle oracle = proxy(PropertyOracle.class,
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return property;
+          }
+        });
+    return proxy(GeneratorContext.class, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return oracle;
+      }
+    });
+  }
+
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+        new Class<?>[] {type}, handler));
+  }
+}
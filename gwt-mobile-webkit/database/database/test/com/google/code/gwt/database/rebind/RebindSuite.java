@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Suite for the (plain JUnit) tests of the DataService generator.
+ * 
+ * @author bguijt
+ */
+public class RebindSuite {
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite("Test for the DataService generator");
+
+    // $JUnit-BEGIN$
+    suite.addTestSuite(QueryPlanAnalyzerTest.class);
+    suite.addTestSuite(ServiceMethodCreatorTest.class);
+    suite.addTestSuite(TableNameParserTest.class);
+    // $JUnit-END$
+
+    return suite;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the SQL handling of the {@link ServiceMethodCreator}.
+ * 
+ * @author bguijt
+ */
+public class ServiceMethodCreatorTest extends TestCase {
+
+  public void testFindValuesTuple() {
+    assertTuple("(?, ?)", "INSERT INTO t (a, b) VALUES (?, ?)");
+    assertTuple("(?, 'a)b')", "insert into t values(?, 'a)b') ");
+    assertTuple("(?, (? + 1))", "REPLACE INTO t (a, b) VALUES (?, (? + 1))");
+  }
+
+  public void testFindValuesTupleSkipsIdentifiers() {
+    assertTuple("(?, ?)",
+        "INSERT INTO t (my_values, values_count) VALUES (?, ?)");
+    assertTuple("(?)", "INSERT INTO t ($values) VALUES (?)");
+    assertTuple("(?)", "INSERT INTO t (values$2) VALUES (?)");
+    assertTuple("(?)", "INSERT INTO values1 (a) VALUES (?)");
+  }
+
+  public void testFindValuesTupleNotFound() {
+    assertNull(ServiceMethodCreator.findValuesTuple(
+        "UPDATE t SET a = ? WHERE b IN (SELECT c FROM d)"));
+    assertNull(ServiceMethodCreator.findValuesTuple(
+        "INSERT INTO t (a) SELECT a FROM my_values"));
+    assertNull(ServiceMethodCreator.findValuesTuple(
+        "INSERT INTO t DEFAULT VALUES"));
+  }
+
+  private static void assertTuple(String expected, String stmt) {
+    int[] tuple = ServiceMethodCreator.findValuesTuple(stmt);
+    assertNotNull(stmt, tuple);
+    assertEquals(expected, stmt.substring(tuple[0], tuple[1]));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the {@link TableNameParser}.
+ * 
+ * @author bguijt
+ */
+public class TableNameParserTest extends TestCase {
+
+  public void testModifiedTable() {
+    assertModified("clickcount", "INSERT INTO clickcount (id) VALUES (?)");
+    assertModified("clickcount", "insert or replace into ClickCount values (?)");
+    assertModified("clickcount", "REPLACE INTO clickcount (id) VALUES (?)");
+    assertModified("clickcount", "UPDATE clickcount SET clicked = ?");
+    assertModified("clickcount", "update or ignore clickcount set clicked = ?");
+    assertModified("clickcount", "DELETE FROM clickcount WHERE id = ?");
+    assertModified("clickcount",
+        "CREATE TABLE IF NOT EXISTS clickcount (id INTEGER)");
+    assertModified("clickcount", "DROP TABLE IF EXISTS clickcount");
+    assertModified("clickcount", "ALTER TABLE clickcount ADD label TEXT");
+  }
+
+  public void testModifiedQuotedTable() {
+    assertModified("click count", "INSERT INTO \"Click Count\" VALUES (?)");
+    assertModified("click count", "UPDATE [click count] SET clicked = ?");
+    assertModified("clickcount", "DELETE FROM `clickcount`");
+    assertModified("clickcount", "INSERT INTO main.clickcount VALUES (?)");
+    assertModified("clickcount", "DELETE FROM \"main\" . \"clickcount\"");
+  }
+
+  /**
+   * Statements modifying an unknown table invalidate all cached resultsets.
+   */
+  public void testModifiedTableUnknown() {
+    assertNull(TableNameParser.getModifiedTable(
+        "CREATE INDEX clickcount_clicked ON clickcount (clicked)"));
+    assertNull(TableNameParser.getModifiedTable("DROP INDEX clickcount_clicked"));
+    assertNull(TableNameParser.getModifiedTable(
+        "WITH c AS (SELECT 1) INSERT INTO clickcount SELECT * FROM c"));
+    assertNull(TableNameParser.getModifiedTable("PRAGMA user_version(3)"));
+    assertNull(TableNameParser.getModifiedTable("VACUUM"));
+  }
+
+  public void testSelectedTables() {
+    assertSelected("SELECT * FROM clickcount WHERE id = ?", "clickcount");
+    assertSelected("SELECT * FROM \"Click Count\" AS c, [other] o "
+        + "JOIN `third` t ON t.id = c.id", "click count", "other", "third");
+    assertSelected("SELECT * FROM main.clickcount c LEFT JOIN clickcount d "
+        + "ON c.id = d.id", "clickcount");
+    assertSelected("SELECT 1");
+  }
+
+  public void testReadOnly() {
+    assertTrue(TableNameParser.isReadOnly("SELECT * FROM clickcount"));
+    assertTrue(TableNameParser.isReadOnly("  values (1, 2)"));
+    assertTrue(TableNameParser.isReadOnly(
+        "WITH c AS (SELECT 1) SELECT * FROM c"));
+    assertFalse(TableNameParser.isReadOnly(
+        "WITH c AS (SELECT 1) INSERT INTO clickcount SELECT * FROM c"));
+    assertTrue(TableNameParser.isReadOnly(
+        "SELECT 'DELETE' FROM clickcount"));
+    assertFalse(TableNameParser.isReadOnly("DELETE FROM clickcount"));
+  }
+
+  public void testPragmaQuery() {
+    assertTrue(TableNameParser.isReadOnly("PRAGMA user_version"));
+    assertTrue(TableNameParser.isReadOnly("pragma main.user_version;"));
+    assertTrue(TableNameParser.isReadOnly("PRAGMA user_version ; "));
+  }
+
+  public void testPragmaAssignment() {
+    assertFalse(TableNameParser.isReadOnly("PRAGMA user_version(3)"));
+    assertFalse(TableNameParser.isReadOnly("PRAGMA user_version (3);"));
+    assertFalse(TableNameParser.isReadOnly("PRAGMA user_version = 3"));
+    assertFalse(TableNameParser.isReadOnly("PRAGMA user_version; DROP x"));
+  }
+
+  private static void assertModified(String expected, String sql) {
+    assertEquals(sql, expected, TableNameParser.getModifiedTable(sql));
+  }
+
+  private static void assertSelected(String sql, String... expected) {
+    assertEquals(sql, Arrays.asList(expected),
+        Arrays.asList(TableNameParser.getSelectedTables(sql)));
+  }
+}
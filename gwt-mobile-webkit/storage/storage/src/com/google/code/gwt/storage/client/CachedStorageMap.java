@@ -0,0 +1,449 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * Exposes the local/session {@link Storage} as a standard {@link Map
+ * Map&lt;String, String&gt;}, keeping a copy of all items in memory.
+ * 
+ * <p>
+ * Unlike the {@link StorageMap}, which calls into the Storage for every read,
+ * this Map reads all items in a single call (at its first use) and serves all
+ * subsequent reads from a JavaScript object. Writes go through to the Storage
+ * immediately. Changes made by other windows are applied to the copy by
+ * handling their {@link StorageEvent}s.
+ * </p>
+ * 
+ * <p>
+ * Changes made to the Storage from the same window (e.g. by
+ * {@link Storage#setItem(String, String)} or by another Map instance) do not
+ * raise StorageEvents in most browsers, and are thus not seen by this Map.
+ * Call {@link #invalidate()} after such changes, or when the Map is no longer
+ * used.
+ * </p>
+ * 
+ * <p>
+ * The characteristics listed at {@link StorageMap} apply to this Map as well.
+ * If a {@link StorageCodec} is specified, the values are decoded only once,
+ * when they are read into memory.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class CachedStorageMap extends AbstractMap<String, String> {
+
+  private Storage storage;
+  private StorageCodec<String> codec;
+  private Items items;
+  private int size;
+  private CachedEntrySet entrySet;
+
+  private StorageEventHandler handler = new StorageEventHandler() {
+    public void onStorageChange(StorageEvent event) {
+      if (items != null && event.getStorageArea() == storage) {
+        applyStorageEvent(event);
+      }
+    }
+  };
+
+  /**
+   * Creates the Map with the specified Storage as data provider.
+   * 
+   * @param storage a local/session Storage instance obtained by either
+   *          {@link Storage#getLocalStorage()} or
+   *          {@link Storage#getSessionStorage()}.
+   */
+  public CachedStorageMap(Storage storage) {
+    this(storage, null);
+  }
+
+  /**
+   * Creates the Map with the specified Storage as data provider, which keeps
+   * the values encoded by the specified codec.
+   * 
+   * @param storage a local/session Storage instance obtained by either
+   *          {@link Storage#getLocalStorage()} or
+   *          {@link Storage#getSessionStorage()}.
+   * @param codec the codec of the values in the Storage (e.g.
+   *          {@link CompressingCodec}), or <code>null</code> to keep the values
+   *          as-is
+   */
+  public CachedStorageMap(Storage storage, StorageCodec<String> codec) {
+    this.storage = storage;
+    this.codec = codec;
+  }
+
+  /**
+   * Discards the in-memory copy of the Storage items, and stops listening to
+   * StorageEvents. The items are read again at the next use of this Map.
+   */
+  public void invalidate() {
+    if (items != null) {
+      items = null;
+      size = 0;
+      Storage.removeStorageEventHandler(handler);
+    }
+  }
+
+  /**
+   * Removes all items from the Storage.
+   * 
+   * @see Storage#clear()
+   */
+  public void clear() {
+    storage.clear();
+    if (items != null) {
+      items = Items.create();
+      size = 0;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the Storage contains the specified key,
+   * <code>false</code> otherwise.
+   */
+  public boolean containsKey(Object key) {
+    return getItems().get(key.toString()) != null;
+  }
+
+  /**
+   * Returns <code>true</code> if the Storage contains the specified value,
+   * <code>false</code> otherwise.
+   */
+  public boolean containsValue(Object value) {
+    return getItems().containsValue(value.toString());
+  }
+
+  /**
+   * Returns a Set containing all entries of the Storage.
+   */
+  public Set<Map.Entry<String, String>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new CachedEntrySet();
+    }
+    return entrySet;
+  }
+
+  /**
+   * Returns the value associated with the specified key in the Storage.
+   * 
+   * @param key the key identifying the value
+   * @see Storage#getItem(String)
+   */
+  public String get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    return getItems().get(key.toString());
+  }
+
+  /**
+   * adds (or overwrites) a new key/value pair in the Storage.
+   * 
+   * @param key the key identifying the value (not <code>null</code>)
+   * @param value the value associated with the key (not <code>null</code>)
+   * @see Storage#setItem(String, String)
+   */
+  public String put(String key, String value) {
+    if (key == null || value == null) {
+      throw new IllegalArgumentException("Key and/or value cannot be null!");
+    }
+    String old = getItems().get(key);
+    storage.setItem(key, codec == null ? value : codec.encode(value));
+    putItem(key, value);
+    return old;
+  }
+
+  /**
+   * Adds (or overwrites) all key/value pairs of the specified Map in the
+   * Storage, in a single call.
+   * 
+   * @param m the key/value pairs to add (no <code>null</code> keys or values)
+   * @see Storage#setItems(Map)
+   */
+  public void putAll(Map<? extends String, ? extends String> m) {
+    storage.setItems(StorageMap.encodeItems(StorageMap.checkItems(m), codec));
+    if (items != null) {
+      for (Map.Entry<? extends String, ? extends String> e : m.entrySet()) {
+        putItem(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Removes the key/value pair from the Storage.
+   * 
+   * @param key the key identifying the item to remove
+   * @return the value associated with the key - <code>null</code> if the key
+   *         was not present in the Storage
+   * @see Storage#removeItem(String)
+   */
+  public String remove(Object key) {
+    String k = key.toString();
+    String old = getItems().get(k);
+    storage.removeItem(k);
+    removeItem(k);
+    return old;
+  }
+
+  /**
+   * Returns the number of items in the Storage.
+   * 
+   * @return the number of items
+   */
+  public int size() {
+    getItems();
+    return size;
+  }
+
+  /**
+   * Returns the in-memory copy of the Storage items, reading them from the
+   * Storage if needed.
+   */
+  private Items getItems() {
+    if (items == null) {
+      items = Items.create();
+      size = 0;
+      JsArrayString all = storage.getAll();
+      for (int i = 0; i < all.length(); i += 2) {
+        putItem(all.get(i), decode(all.get(i + 1)));
+      }
+      Storage.addStorageEventHandler(handler);
+    }
+    return items;
+  }
+
+  private void putItem(String key, String value) {
+    if (items.put(key, value) == null) {
+      size++;
+    }
+  }
+
+  private void removeItem(String key) {
+    if (items.remove(key) != null) {
+      size--;
+    }
+  }
+
+  private void applyStorageEvent(StorageEvent event) {
+    String key = event.getKey();
+    if (key == null || key.length() == 0) {
+      // The Storage is cleared:
+      items = Items.create();
+      size = 0;
+    } else if (event.getNewValue() == null) {
+      removeItem(key);
+    } else {
+      putItem(key, decode(event.getNewValue()));
+    }
+  }
+
+  private String decode(String data) {
+    return codec == null ? data : codec.decode(data);
+  }
+
+  private boolean eq(Object a, Object b) {
+    if (a == b) {
+      return true;
+    }
+    if (a == null) {
+      return false;
+    }
+    return a.equals(b);
+  }
+
+  /*
+   * Holds the Storage items as properties of a JavaScript object. The keys are
+   * prefixed to avoid clashes with the properties of Object.prototype.
+   */
+  private static final class Items extends JavaScriptObject {
+
+    protected Items() {
+    }
+
+    static native Items create() /*-{
+      return {};
+    }-*/;
+
+    native String get(String key) /*-{
+      var value = this[':' + key];
+      return value == null ? null : value;
+    }-*/;
+
+    native String put(String key, String value) /*-{
+      var old = this[':' + key];
+      this[':' + key] = value;
+      return old == null ? null : old;
+    }-*/;
+
+    native String remove(String key) /*-{
+      var old = this[':' + key];
+      delete this[':' + key];
+      return old == null ? null : old;
+    }-*/;
+
+    native boolean containsValue(String value) /*-{
+      for (var k in this) {
+        if (k.charAt(0) == ':' && this[k] == value) {
+          return true;
+        }
+      }
+      return false;
+    }-*/;
+
+    native JsArrayString keys() /*-{
+      var keys = [];
+      for (var k in this) {
+        if (k.charAt(0) == ':') {
+          keys.push(k.substring(1));
+        }
+      }
+      return keys;
+    }-*/;
+  }
+
+  /*
+   * Represents a Map.Entry to a cached Storage item
+   */
+  private class CachedEntry implements Map.Entry<String, String> {
+    private String key;
+
+    public CachedEntry(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getValue() {
+      return get(key);
+    }
+
+    public String setValue(String value) {
+      return put(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object obj) {
+      if (obj == null)
+        return false;
+      if (obj == this)
+        return true;
+      if (!(obj instanceof Map.Entry))
+        return false;
+
+      Map.Entry e = (Map.Entry) obj;
+
+      return eq(key, e.getKey()) && eq(getValue(), e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      String value = getValue();
+      return (key == null ? 0 : key.hashCode())
+          ^ (value == null ? 0 : value.hashCode());
+    }
+  }
+
+  /*
+   * Represents an Iterator over a snapshot of the cached keys
+   */
+  private class CachedEntryIterator implements
+      Iterator<Map.Entry<String, String>> {
+    private JsArrayString keys = getItems().keys();
+    private int index = -1;
+    private boolean removed = false;
+
+    public boolean hasNext() {
+      return index < keys.length() - 1;
+    }
+
+    public Map.Entry<String, String> next() {
+      if (hasNext()) {
+        index++;
+        removed = false;
+        return new CachedEntry(keys.get(index));
+      }
+      throw new NoSuchElementException();
+    }
+
+    public void remove() {
+      if (index < 0 || removed) {
+        throw new IllegalStateException("Cannot remove() Entry - index="
+            + index + ", removed=" + removed);
+      }
+      CachedStorageMap.this.remove(keys.get(index));
+      removed = true;
+    }
+  }
+
+  /*
+   * Represents a Set<Map.Entry> over all cached Storage items
+   */
+  private class CachedEntrySet extends AbstractSet<Map.Entry<String, String>> {
+    public void clear() {
+      CachedStorageMap.this.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+      if (o == null || !(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry e = (Map.Entry) o;
+      Object key = e.getKey();
+      return key != null && containsKey(key) && eq(get(key), e.getValue());
+    }
+
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new CachedEntryIterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+      if (o == null || !(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry e = (Map.Entry) o;
+      if (e.getKey() == null) {
+        return false;
+      }
+      String key = e.getKey().toString();
+      if (eq(get(key), e.getValue())) {
+        return CachedStorageMap.this.remove(key) != null;
+      }
+      return false;
+    }
+
+    public int size() {
+      return CachedStorageMap.this.size();
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compresses String values which are larger than a threshold, to make more
+ * room in the Storage quota.
+ * 
+ * <p>
+ * Values are compressed using LZW, and the resulting codes are packed into 15
+ * bits per UTF-16 character. The characters are kept clear of control
+ * characters and surrogates, which some browsers fail to store. Compressed
+ * values are prefixed with a marker character, so that {@link #decode(String)}
+ * recognizes them; other values (e.g. values written before this codec was
+ * used) are returned as-is.
+ * </p>
+ * 
+ * <p>
+ * Use this codec with either {@link StorageMap} or {@link CachedStorageMap}:
+ * </p>
+ * 
+ * <pre>
+ * Map&lt;String, String&gt; map = new StorageMap(Storage.getLocalStorage(),
+ *     new CompressingCodec());
+ * </pre>
+ * 
+ * @author bguijt
+ */
+public class CompressingCodec implements StorageCodec<String> {
+
+  /**
+   * The default minimum length of values to compress.
+   */
+  public static final int DEFAULT_THRESHOLD = 256;
+
+  // Marks a compressed value:
+  private static final char COMPRESSED = '\uE000';
+  // Marks an uncompressed value which starts with a marker character:
+  private static final char ESCAPED = '\uE001';
+
+  // Codes 0 and 1 are reserved:
+  private static final int LITERAL = 0;
+  private static final int END = 1;
+
+  private static final int BITS_PER_CHAR = 15;
+  private static final int CHAR_OFFSET = 32;
+
+  private final int threshold;
+
+  /**
+   * Creates a codec which compresses values of at least
+   * {@link #DEFAULT_THRESHOLD} characters.
+   */
+  public CompressingCodec() {
+    this(DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Creates a codec which compresses values of at least the specified number
+   * of characters.
+   * 
+   * @param threshold the minimum length of values to compress
+   */
+  public CompressingCodec(int threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Returns the compressed value, or the value itself if it is shorter than
+   * the threshold or does not compress.
+   */
+  public String encode(String value) {
+    if (value.length() >= threshold) {
+      String compressed = compress(value);
+      if (compressed.length() + 1 < value.length()) {
+        return COMPRESSED + compressed;
+      }
+    }
+    if (value.length() > 0
+        && (value.charAt(0) == COMPRESSED || value.charAt(0) == ESCAPED)) {
+      return ESCAPED + value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the decompressed value, or the data itself if it is not
+   * compressed.
+   */
+  public String decode(String data) {
+    if (data.length() > 0) {
+      if (data.charAt(0) == COMPRESSED) {
+        return decompress(data.substring(1));
+      }
+      if (data.charAt(0) == ESCAPED) {
+        return data.substring(1);
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Returns the LZW codes of the specified value, packed into characters.
+   */
+  static String compress(String value) {
+    Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    BitWriter out = new BitWriter();
+    int next = 2;
+    String w = "";
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      String wc = w + c;
+      if (dictionary.containsKey(wc)) {
+        w = wc;
+        continue;
+      }
+      if (w.length() > 0) {
+        out.write(dictionary.get(w), next);
+        dictionary.put(wc, next++);
+      }
+      String s = String.valueOf(c);
+      if (dictionary.containsKey(s)) {
+        w = s;
+      } else {
+        out.write(LITERAL, next);
+        out.write(c, 1 << 16);
+        dictionary.put(s, next++);
+        w = "";
+      }
+    }
+    if (w.length() > 0) {
+      // The decompressor expects an entry to be pending after this code:
+      out.write(dictionary.get(w), next++);
+    }
+    out.write(END, next);
+    return out.toString();
+  }
+
+  /**
+   * Returns the value of the specified packed LZW codes.
+   */
+  static String decompress(String data) {
+    List<String> dictionary = new ArrayList<String>();
+    dictionary.add(null);
+    dictionary.add(null);
+    BitReader in = new BitReader(data);
+    StringBuilder value = new StringBuilder();
+    String prev = null;
+    while (true) {
+      // The dictionary of the compressor is one entry ahead while an entry
+      // is pending:
+      int code = in.read(dictionary.size() + (prev != null ? 1 : 0));
+      String entry;
+      if (code == END) {
+        return value.toString();
+      } else if (code == LITERAL) {
+        entry = String.valueOf((char) in.read(1 << 16));
+        if (prev != null) {
+          dictionary.add(prev + entry);
+        }
+        dictionary.add(entry);
+        prev = null;
+      } else {
+        if (code < dictionary.size()) {
+          entry = dictionary.get(code);
+        } else if (code == dictionary.size() && prev != null) {
+          entry = prev + prev.charAt(0);
+        } else {
+          throw new IllegalArgumentException("Invalid compressed data");
+        }
+        if (prev != null) {
+          dictionary.add(prev + entry.charAt(0));
+        }
+        prev = entry;
+      }
+      value.append(entry);
+    }
+  }
+
+  /**
+   * Returns the number of bits needed to write the values below the specified
+   * limit.
+   */
+  private static int bits(int limit) {
+    int bits = 1;
+    while ((1 << bits) < limit) {
+      bits++;
+    }
+    return bits;
+  }
+
+  /*
+   * Packs values of varying bit widths into characters
+   */
+  private static class BitWriter {
+    private StringBuilder out = new StringBuilder();
+    private int buffer;
+    private int count;
+
+    void write(int value, int limit) {
+      for (int bit = bits(limit) - 1; bit >= 0; bit--) {
+        buffer = (buffer << 1) | ((value >> bit) & 1);
+        if (++count == BITS_PER_CHAR) {
+          out.append((char) (buffer + CHAR_OFFSET));
+          buffer = 0;
+          count = 0;
+        }
+      }
+    }
+
+    public String toString() {
+      if (count > 0) {
+        out.append((char) ((buffer << (BITS_PER_CHAR - count)) + CHAR_OFFSET));
+        buffer = 0;
+        count = 0;
+      }
+      return out.toString();
+    }
+  }
+
+  /*
+   * Reads values of varying bit widths from the characters of a BitWriter
+   */
+  private static class BitReader {
+    private String data;
+    private int position;
+    private int buffer;
+    private int count;
+
+    BitReader(String data) {
+      this.data = data;
+    }
+
+    int read(int limit) {
+      int value = 0;
+      for (int bit = bits(limit) - 1; bit >= 0; bit--) {
+        if (count == 0) {
+          if (position == data.length()) {
+            throw new IllegalArgumentException("Truncated compressed data");
+          }
+          buffer = data.charAt(position++) - CHAR_OFFSET;
+          count = BITS_PER_CHAR;
+        }
+        count--;
+        value = (value << 1) | ((buffer >> count) & 1);
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Converts JavaScript objects (overlay types) to and from JSON, using the
+ * native <code>JSON.stringify()</code> and <code>JSON.parse()</code>
+ * functions of the browser.
+ * 
+ * <p>
+ * Native JSON is available in all WebKit browsers, Firefox 3.5+ and IE8+.
+ * </p>
+ * 
+ * @param <T> the JavaScript overlay type of the values
+ * @see <a href="http://www.ecma-international.org/publications/standards/Ecma-262.htm">ECMAScript
+ *      5 - The JSON Object</a>
+ * @author bguijt
+ */
+public class JsonCodec<T extends JavaScriptObject> implements StorageCodec<T> {
+
+  public String encode(T value) {
+    return stringify(value);
+  }
+
+  public T decode(String data) {
+    return parse(data).<T> cast();
+  }
+
+  private static native String stringify(JavaScriptObject value) /*-{
+    return $wnd.JSON.stringify(value);
+  }-*/;
+
+  private static native JavaScriptObject parse(String data) /*-{
+    return $wnd.JSON.parse(data);
+  }-*/;
+}
@@ -16,8 +16,13 @@
 
 package com.google.code.gwt.storage.client;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.google.code.gwt.storage.client.impl.StorageImpl;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 
 /**
  * Implements the HTML5 Storage interface.
@@ -180,6 +185,25 @@ public final class Storage {
     return impl.key(storage, index);
   }
 
+  /**
+   * Returns all keys in this Storage, read in a single call.
+   * 
+   * @return a snapshot of the keys in this Storage
+   */
+  JsArrayString getKeys() {
+    return impl.getKeys(storage);
+  }
+
+  /**
+   * Returns all keys and their values in this Storage, read in a single call,
+   * as an array of alternating keys and values.
+   * 
+   * @return a snapshot of the items in this Storage
+   */
+  JsArrayString getAll() {
+    return impl.getAll(storage);
+  }
+
   /**
    * Returns the item in the Storage associated with the specified key.
    * 
@@ -216,6 +240,60 @@ public final class Storage {
     impl.removeItem(storage, key);
   };
 
+  /**
+   * Returns the items in the Storage associated with the specified keys, read
+   * in a single call.
+   * 
+   * @param keys the keys to values in the Storage
+   * @return the values associated with the given keys, in the same order
+   * @see #getItem(String)
+   */
+  public String[] getItems(String... keys) {
+    JsArrayString values = impl.getItems(storage, toJsArray(keys));
+    String[] result = new String[keys.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = values.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Sets the values in the Storage associated with the keys of the specified
+   * Map, written in a single call.
+   * 
+   * <p>
+   * Implementations which persist the Storage themselves (e.g. IE6/IE7) do so
+   * only once for all items.
+   * </p>
+   * 
+   * @param items the keys and values to store
+   * @see #setItem(String, String)
+   */
+  public void setItems(Map<String, String> items) {
+    JsArrayString array = JavaScriptObject.createArray().cast();
+    for (Map.Entry<String, String> item : items.entrySet()) {
+      array.push(item.getKey());
+      array.push(item.getValue());
+    }
+    impl.setItems(storage, array);
+  }
+
+  /**
+   * Removes the items in the Storage associated with the specified keys, in a
+   * single call.
+   * 
+   * <p>
+   * Implementations which persist the Storage themselves (e.g. IE6/IE7) do so
+   * only once for all items.
+   * </p>
+   * 
+   * @param keys the keys to values in the Storage
+   * @see #removeItem(String)
+   */
+  public void removeItems(Collection<String> keys) {
+    impl.removeItems(storage, toJsArray(keys));
+  }
+
   /**
    * Removes all items in the Storage.
    * 
@@ -225,4 +303,20 @@ public final class Storage {
   public void clear() {
     impl.clear(storage);
   }
+
+  private static JsArrayString toJsArray(String[] keys) {
+    JsArrayString array = JavaScriptObject.createArray().cast();
+    for (String key : keys) {
+      array.push(key);
+    }
+    return array;
+  }
+
+  private static JsArrayString toJsArray(Collection<String> keys) {
+    JsArrayString array = JavaScriptObject.createArray().cast();
+    for (String key : keys) {
+      array.push(key);
+    }
+    return array;
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+/**
+ * Converts values to and from the String representation in which they are
+ * kept in a {@link Storage}.
+ * 
+ * <p>
+ * Implementations must be able to {@link #decode(String)} whatever they
+ * {@link #encode(Object)}.
+ * </p>
+ * 
+ * @param <T> the type of the values
+ * @author bguijt
+ */
+public interface StorageCodec<T> {
+
+  /**
+   * Returns the String representation of the specified value.
+   * 
+   * @param value the value to encode (not <code>null</code>)
+   * @return the String to put in the Storage
+   */
+  String encode(T value);
+
+  /**
+   * Returns the value represented by the specified String.
+   * 
+   * @param data the String read from the Storage (not <code>null</code>)
+   * @return the decoded value
+   */
+  T decode(String data);
+}
@@ -18,12 +18,14 @@ package com.google.code.gwt.storage.client;
 
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.google.gwt.core.client.JavaScriptException;
+import com.google.gwt.core.client.JsArrayString;
 
 /**
  * Exposes the local/session {@link Storage} as a standard {@link Map
@@ -48,6 +50,12 @@ import com.google.gwt.core.client.JavaScriptException;
  * {@link JavaScriptException}s instead;</li>
  * <li><em>String values and keys</em> - All keys and values in this Map are
  * String types.</li>
+ * <li><em>Value codec</em> - Values can be kept in the Storage in an encoded
+ * form (e.g. compressed), by specifying a {@link StorageCodec}. Keys are never
+ * encoded.</li>
+ * <li><em>Snapshot Iterators</em> - The Iterators read all keys (and values)
+ * of the Storage in a single call when they are created, and do not reflect
+ * later changes made to the Storage by others.</li>
  * </ol>
  * 
  * @author bguijt
@@ -55,7 +63,9 @@ import com.google.gwt.core.client.JavaScriptException;
 public class StorageMap extends AbstractMap<String, String> {
 
   private Storage storage;
+  private StorageCodec<String> codec;
   private StorageEntrySet entrySet;
+  private StorageKeySet keySet;
 
   /**
    * Creates the Map with the specified Storage as data provider.
@@ -65,7 +75,23 @@ public class StorageMap extends AbstractMap<String, String> {
    *          {@link Storage#getSessionStorage()}.
    */
   public StorageMap(Storage storage) {
+    this(storage, null);
+  }
+
+  /**
+   * Creates the Map with the specified Storage as data provider, which keeps
+   * the values encoded by the specified codec.
+   * 
+   * @param storage a local/session Storage instance obtained by either
+   *          {@link Storage#getLocalStorage()} or
+   *          {@link Storage#getSessionStorage()}.
+   * @param codec the codec of the values in the Storage (e.g.
+   *          {@link CompressingCodec}), or <code>null</code> to keep the values
+   *          as-is
+   */
+  public StorageMap(Storage storage, StorageCodec<String> codec) {
     this.storage = storage;
+    this.codec = codec;
   }
 
   /**
@@ -91,9 +117,9 @@ public class StorageMap extends AbstractMap<String, String> {
    * ).
    */
   public boolean containsValue(Object value) {
-    int s = size();
-    for (int i = 0; i < s; i++) {
-      if (value.equals(storage.getItem(storage.key(i)))) {
+    JsArrayString all = storage.getAll();
+    for (int i = 1; i < all.length(); i += 2) {
+      if (value.equals(decode(all.get(i)))) {
         return true;
       }
     }
@@ -110,6 +136,16 @@ public class StorageMap extends AbstractMap<String, String> {
     return entrySet;
   }
 
+  /**
+   * Returns a Set containing all keys of the Storage.
+   */
+  public Set<String> keySet() {
+    if (keySet == null) {
+      keySet = new StorageKeySet();
+    }
+    return keySet;
+  }
+
   /**
    * Returns the value associated with the specified key in the Storage.
    * 
@@ -120,7 +156,7 @@ public class StorageMap extends AbstractMap<String, String> {
     if (key == null) {
       return null;
     }
-    return storage.getItem(key.toString());
+    return decode(storage.getItem(key.toString()));
   }
 
   /**
@@ -134,11 +170,22 @@ public class StorageMap extends AbstractMap<String, String> {
     if (key == null || value == null) {
       throw new IllegalArgumentException("Key and/or value cannot be null!");
     }
-    String old = storage.getItem(key);
-    storage.setItem(key, value);
+    String old = decode(storage.getItem(key));
+    storage.setItem(key, encode(value));
     return old;
   }
 
+  /**
+   * Adds (or overwrites) all key/value pairs of the specified Map in the
+   * Storage, in a single call.
+   * 
+   * @param m the key/value pairs to add (no <code>null</code> keys or values)
+   * @see Storage#setItems(Map)
+   */
+  public void putAll(Map<? extends String, ? extends String> m) {
+    storage.setItems(encodeItems(checkItems(m), codec));
+  }
+
   /**
    * Removes the key/value pair from the Storage.
    * 
@@ -149,7 +196,7 @@ public class StorageMap extends AbstractMap<String, String> {
    */
   public String remove(Object key) {
     String k = key.toString();
-    String old = storage.getItem(k);
+    String old = decode(storage.getItem(k));
     storage.removeItem(k);
     return old;
   }
@@ -164,6 +211,45 @@ public class StorageMap extends AbstractMap<String, String> {
     return storage.getLength();
   }
 
+  /**
+   * Returns the specified Map as a Map&lt;String, String&gt;, after checking
+   * that it contains no <code>null</code> keys or values.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, String> checkItems(
+      Map<? extends String, ? extends String> m) {
+    for (Map.Entry<? extends String, ? extends String> e : m.entrySet()) {
+      if (e.getKey() == null || e.getValue() == null) {
+        throw new IllegalArgumentException("Key and/or value cannot be null!");
+      }
+    }
+    return (Map<String, String>) m;
+  }
+
+  private String decode(String data) {
+    return codec == null || data == null ? data : codec.decode(data);
+  }
+
+  private String encode(String value) {
+    return codec == null ? value : codec.encode(value);
+  }
+
+  /**
+   * Returns the specified Map with its values encoded by the specified codec
+   * (if any).
+   */
+  static Map<String, String> encodeItems(Map<String, String> items,
+      StorageCodec<String> codec) {
+    if (codec == null) {
+      return items;
+    }
+    Map<String, String> encoded = new HashMap<String, String>();
+    for (Map.Entry<String, String> e : items.entrySet()) {
+      encoded.put(e.getKey(), codec.encode(e.getValue()));
+    }
+    return encoded;
+  }
+
   private boolean eq(Object a, Object b) {
     if (a == b) {
       return true;
@@ -175,13 +261,16 @@ public class StorageMap extends AbstractMap<String, String> {
   }
 
   /*
-   * Represents a Map.Entry to a Storage item
+   * Represents a Map.Entry to a Storage item, holding the value read by the
+   * Iterator
    */
   private class StorageEntry implements Map.Entry<String, String> {
     private String key;
+    private String value;
 
-    public StorageEntry(String key) {
+    public StorageEntry(String key, String value) {
       this.key = key;
+      this.value = value;
     }
 
     public String getKey() {
@@ -189,12 +278,13 @@ public class StorageMap extends AbstractMap<String, String> {
     }
 
     public String getValue() {
-      return storage.getItem(key);
+      return value;
     }
 
     public String setValue(String value) {
-      String oldValue = storage.getItem(key);
-      storage.setItem(key, value);
+      String oldValue = this.value;
+      storage.setItem(key, encode(value));
+      this.value = value;
       return oldValue;
     }
 
@@ -222,39 +312,103 @@ public class StorageMap extends AbstractMap<String, String> {
   }
 
   /*
-   * Represents an Iterator over all Storage items
+   * Represents an Iterator over a snapshot of the Storage keys, optionally
+   * alternated with their values
    */
-  private class StorageEntryIterator implements
-      Iterator<Map.Entry<String, String>> {
-    private int index = -1;
+  private abstract class StorageIterator<E> implements Iterator<E> {
+    private JsArrayString snapshot;
+    private int step;
+    private int index;
     private boolean removed = false;
 
+    public StorageIterator(JsArrayString snapshot, int step) {
+      this.snapshot = snapshot;
+      this.step = step;
+      this.index = -step;
+    }
+
     public boolean hasNext() {
-      return index < size() - 1;
+      return index + step < snapshot.length();
     }
 
-    public Map.Entry<String, String> next() {
+    public E next() {
       if (hasNext()) {
-        index++;
+        index += step;
         removed = false;
-        return new StorageEntry(storage.key(index));
+        return get(snapshot, index);
       }
       throw new NoSuchElementException();
     }
 
     public void remove() {
-      if (index >= 0 && index < size()) {
-        if (removed) {
-          throw new IllegalStateException(
-              "Cannot remove() Entry - already removed!");
-        }
-        storage.removeItem(storage.key(index));
-        removed = true;
-        index--;
-      } else {
+      if (index < 0) {
         throw new IllegalStateException("Cannot remove() Entry - index="
             + index + ", size=" + size());
       }
+      if (removed) {
+        throw new IllegalStateException(
+            "Cannot remove() Entry - already removed!");
+      }
+      storage.removeItem(snapshot.get(index));
+      removed = true;
+    }
+
+    /**
+     * Returns the element at the specified index of the snapshot.
+     */
+    protected abstract E get(JsArrayString snapshot, int index);
+  }
+
+  /*
+   * Represents an Iterator over all Storage items
+   */
+  private class StorageEntryIterator extends
+      StorageIterator<Map.Entry<String, String>> {
+    public StorageEntryIterator() {
+      super(storage.getAll(), 2);
+    }
+
+    protected Map.Entry<String, String> get(JsArrayString snapshot, int index) {
+      return new StorageEntry(snapshot.get(index),
+          decode(snapshot.get(index + 1)));
+    }
+  }
+
+  /*
+   * Represents an Iterator over all Storage keys
+   */
+  private class StorageKeyIterator extends StorageIterator<String> {
+    public StorageKeyIterator() {
+      super(storage.getKeys(), 1);
+    }
+
+    protected String get(JsArrayString snapshot, int index) {
+      return snapshot.get(index);
+    }
+  }
+
+  /*
+   * Represents a Set over all Storage keys
+   */
+  private class StorageKeySet extends AbstractSet<String> {
+    public void clear() {
+      StorageMap.this.clear();
+    }
+
+    public boolean contains(Object o) {
+      return o != null && containsKey(o);
+    }
+
+    public Iterator<String> iterator() {
+      return new StorageKeyIterator();
+    }
+
+    public boolean remove(Object o) {
+      return o != null && StorageMap.this.remove(o) != null;
+    }
+
+    public int size() {
+      return StorageMap.this.size();
     }
   }
 
@@ -290,7 +444,7 @@ public class StorageMap extends AbstractMap<String, String> {
         return false;
       }
       String key = e.getKey().toString();
-      String value = storage.getItem(key);
+      String value = decode(storage.getItem(key));
       if (eq(value, e.getValue())) {
         return StorageMap.this.remove(key) != null;
       }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+/**
+ * Keeps String keys or values as-is.
+ * 
+ * @author bguijt
+ */
+public final class StringCodec implements StorageCodec<String> {
+
+  /**
+   * The only instance of this codec.
+   */
+  public static final StringCodec INSTANCE = new StringCodec();
+
+  private StringCodec() {
+  }
+
+  public String encode(String value) {
+    return value;
+  }
+
+  public String decode(String data) {
+    return data;
+  }
+}
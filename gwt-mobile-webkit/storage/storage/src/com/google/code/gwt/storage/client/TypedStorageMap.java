@@ -0,0 +1,308 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Exposes a {@link Map Map&lt;String, String&gt;} on a {@link Storage} (e.g.
+ * a {@link StorageMap} or {@link CachedStorageMap}) as a typed Map, converting
+ * its keys and values by {@link StorageCodec}s.
+ * 
+ * <pre>
+ * Map&lt;String, Settings&gt; settings = new TypedStorageMap&lt;String, Settings&gt;(
+ *     new CachedStorageMap(Storage.getLocalStorage()),
+ *     StringCodec.INSTANCE, new JsonCodec&lt;Settings&gt;(), true);
+ * </pre>
+ * 
+ * <p>
+ * Optionally, the decoded values are kept in memory, together with the String
+ * they were decoded from. A value is then decoded again only when its String
+ * in the Storage changes. Note that cached values are shared by subsequent
+ * {@link #get(Object)} calls: <code>put()</code> a changed value to store it.
+ * </p>
+ * 
+ * <p>
+ * Keys and values cannot be <code>null</code>.
+ * </p>
+ * 
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @author bguijt
+ */
+public class TypedStorageMap<K, V> extends AbstractMap<K, V> {
+
+  private Map<String, String> map;
+  private StorageCodec<K> keyCodec;
+  private StorageCodec<V> valueCodec;
+  private Map<String, DecodedValue<V>> decodedValues;
+  private TypedEntrySet entrySet;
+
+  /**
+   * Creates the Map on the specified String Map, without keeping the decoded
+   * values in memory.
+   * 
+   * @param map the Map containing the encoded keys and values
+   * @param keyCodec the codec of the keys
+   * @param valueCodec the codec of the values
+   */
+  public TypedStorageMap(Map<String, String> map, StorageCodec<K> keyCodec,
+      StorageCodec<V> valueCodec) {
+    this(map, keyCodec, valueCodec, false);
+  }
+
+  /**
+   * Creates the Map on the specified String Map.
+   * 
+   * @param map the Map containing the encoded keys and values
+   * @param keyCodec the codec of the keys
+   * @param valueCodec the codec of the values
+   * @param cacheValues <code>true</code> to keep the decoded values in memory
+   */
+  public TypedStorageMap(Map<String, String> map, StorageCodec<K> keyCodec,
+      StorageCodec<V> valueCodec, boolean cacheValues) {
+    this.map = map;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    if (cacheValues) {
+      decodedValues = new HashMap<String, DecodedValue<V>>();
+    }
+  }
+
+  /**
+   * Removes all items from the underlying Map.
+   */
+  public void clear() {
+    map.clear();
+    if (decodedValues != null) {
+      decodedValues.clear();
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the underlying Map contains the specified
+   * key, <code>false</code> otherwise.
+   */
+  public boolean containsKey(Object key) {
+    return key != null && map.containsKey(encodeKey(key));
+  }
+
+  /**
+   * Returns a Set containing all entries of the underlying Map.
+   */
+  public Set<Map.Entry<K, V>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new TypedEntrySet();
+    }
+    return entrySet;
+  }
+
+  /**
+   * Returns the (decoded) value associated with the specified key.
+   */
+  public V get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    String k = encodeKey(key);
+    return decode(k, map.get(k));
+  }
+
+  /**
+   * Adds (or overwrites) the encoded key/value pair in the underlying Map.
+   * 
+   * @return the previous value associated with the key - <code>null</code>
+   *         if the key was not present
+   */
+  public V put(K key, V value) {
+    if (key == null || value == null) {
+      throw new IllegalArgumentException("Key and/or value cannot be null!");
+    }
+    String k = keyCodec.encode(key);
+    String data = valueCodec.encode(value);
+    V old = decode(k, map.put(k, data));
+    if (decodedValues != null) {
+      decodedValues.put(k, new DecodedValue<V>(data, value));
+    }
+    return old;
+  }
+
+  /**
+   * Removes the key/value pair from the underlying Map.
+   * 
+   * @return the value associated with the key - <code>null</code> if the key
+   *         was not present
+   */
+  public V remove(Object key) {
+    if (key == null) {
+      return null;
+    }
+    String k = encodeKey(key);
+    V old = decode(k, map.remove(k));
+    if (decodedValues != null) {
+      decodedValues.remove(k);
+    }
+    return old;
+  }
+
+  /**
+   * Returns the number of items in the underlying Map.
+   */
+  public int size() {
+    return map.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private String encodeKey(Object key) {
+    return keyCodec.encode((K) key);
+  }
+
+  /**
+   * Returns the decoded value of the specified data, which is associated with
+   * the specified (encoded) key. The value is taken from the decoded values if
+   * it was decoded from the same data before.
+   */
+  private V decode(String key, String data) {
+    if (data == null) {
+      return null;
+    }
+    if (decodedValues == null) {
+      return valueCodec.decode(data);
+    }
+    DecodedValue<V> decoded = decodedValues.get(key);
+    if (decoded == null || !decoded.data.equals(data)) {
+      decoded = new DecodedValue<V>(data, valueCodec.decode(data));
+      decodedValues.put(key, decoded);
+    }
+    return decoded.value;
+  }
+
+  /*
+   * Holds a decoded value with the data it was decoded from
+   */
+  private static class DecodedValue<V> {
+    private final String data;
+    private final V value;
+
+    public DecodedValue(String data, V value) {
+      this.data = data;
+      this.value = value;
+    }
+  }
+
+  /*
+   * Represents a Map.Entry to a typed item, decoding the value when it is
+   * first requested
+   */
+  private class TypedEntry implements Map.Entry<K, V> {
+    private Map.Entry<String, String> entry;
+    private K key;
+
+    public TypedEntry(Map.Entry<String, String> entry) {
+      this.entry = entry;
+      this.key = keyCodec.decode(entry.getKey());
+    }
+
+    public K getKey() {
+      return key;
+    }
+
+    public V getValue() {
+      return decode(entry.getKey(), entry.getValue());
+    }
+
+    public V setValue(V value) {
+      if (value == null) {
+        throw new IllegalArgumentException("Value cannot be null!");
+      }
+      V old = getValue();
+      String data = valueCodec.encode(value);
+      entry.setValue(data);
+      if (decodedValues != null) {
+        decodedValues.put(entry.getKey(), new DecodedValue<V>(data, value));
+      }
+      return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean equals(Object obj) {
+      if (obj == this)
+        return true;
+      if (!(obj instanceof Map.Entry))
+        return false;
+
+      Map.Entry e = (Map.Entry) obj;
+
+      return key.equals(e.getKey()) && getValue().equals(e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ getValue().hashCode();
+    }
+  }
+
+  /*
+   * Represents an Iterator over all typed items
+   */
+  private class TypedEntryIterator implements Iterator<Map.Entry<K, V>> {
+    private Iterator<Map.Entry<String, String>> iterator =
+        map.entrySet().iterator();
+    private String key;
+
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    public Map.Entry<K, V> next() {
+      Map.Entry<String, String> entry = iterator.next();
+      key = entry.getKey();
+      return new TypedEntry(entry);
+    }
+
+    public void remove() {
+      iterator.remove();
+      if (decodedValues != null) {
+        decodedValues.remove(key);
+      }
+    }
+  }
+
+  /*
+   * Represents a Set<Map.Entry> over all typed items
+   */
+  private class TypedEntrySet extends AbstractSet<Map.Entry<K, V>> {
+    public void clear() {
+      TypedStorageMap.this.clear();
+    }
+
+    public Iterator<Map.Entry<K, V>> iterator() {
+      return new TypedEntryIterator();
+    }
+
+    public int size() {
+      return TypedStorageMap.this.size();
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.google.code.gwt.storage.client.StorageEvent;
 import com.google.code.gwt.storage.client.StorageEventHandler;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
 
 /**
@@ -161,6 +162,39 @@ public class StorageImpl {
     return $wnd[storage].key(index);
   }-*/;
 
+  /**
+   * Returns all keys in this Storage, in the order of {@link #key(String, int)}.
+   * 
+   * @param storage either {@link #LOCAL_STORAGE} or {@link #SESSION_STORAGE}
+   * @return a snapshot of the keys in this Storage
+   */
+  public native JsArrayString getKeys(String storage) /*-{
+    var s = $wnd[storage];
+    var keys = [];
+    for (var i = 0, n = s.length; i < n; i++) {
+      keys.push(s.key(i));
+    }
+    return keys;
+  }-*/;
+
+  /**
+   * Returns all keys and their values in this Storage, as a single array of
+   * alternating keys and values (<code>[key0, value0, key1, value1, ...]</code>
+   * ).
+   * 
+   * @param storage either {@link #LOCAL_STORAGE} or {@link #SESSION_STORAGE}
+   * @return a snapshot of the items in this Storage
+   */
+  public native JsArrayString getAll(String storage) /*-{
+    var s = $wnd[storage];
+    var items = [];
+    for (var i = 0, n = s.length; i < n; i++) {
+      var key = s.key(i);
+      items.push(key, s.getItem(key));
+    }
+    return items;
+  }-*/;
+
   /**
    * Returns the item in the Storage associated with the specified key.
    * 
@@ -200,6 +234,49 @@ public class StorageImpl {
     $wnd[storage].removeItem(key);
   }-*/;
 
+  /**
+   * Returns the items in the Storage associated with the specified keys.
+   * 
+   * @param storage either {@link #LOCAL_STORAGE} or {@link #SESSION_STORAGE}
+   * @param keys the keys to values in the Storage
+   * @return the values associated with the given keys, in the same order
+   */
+  public native JsArrayString getItems(String storage, JsArrayString keys) /*-{
+    var s = $wnd[storage];
+    var values = [];
+    for (var i = 0, n = keys.length; i < n; i++) {
+      values.push(s.getItem(keys[i]));
+    }
+    return values;
+  }-*/;
+
+  /**
+   * Sets the values in the Storage associated with the specified keys.
+   * 
+   * @param storage either {@link #LOCAL_STORAGE} or {@link #SESSION_STORAGE}
+   * @param items an array of alternating keys and values (
+   *          <code>[key0, value0, key1, value1, ...]</code>)
+   */
+  public native void setItems(String storage, JsArrayString items) /*-{
+    var s = $wnd[storage];
+    for (var i = 0, n = items.length; i < n; i += 2) {
+      s.setItem(items[i], items[i + 1]);
+    }
+  }-*/;
+
+  /**
+   * Removes the items in the Storage associated with the specified keys.
+   * 
+   * @param storage either {@link #LOCAL_STORAGE} or {@link #SESSION_STORAGE}
+   * @param keys the keys to values in the Storage
+   */
+  public native void removeItems(String storage, JsArrayString keys) /*-{
+    var s = $wnd[storage];
+    for (var i = 0, n = keys.length; i < n; i++) {
+      s.removeItem(keys[i]);
+    }
+  }-*/;
+
   /**
    * Removes all items in the Storage.
    * 
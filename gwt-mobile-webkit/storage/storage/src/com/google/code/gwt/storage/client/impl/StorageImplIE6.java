@@ -17,6 +17,7 @@
 package com.google.code.gwt.storage.client.impl;
 
 import com.google.code.gwt.storage.client.StorageEventHandler;
+import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.user.client.DOM;
 
 /**
@@ -143,7 +144,37 @@ public class StorageImplIE6 extends StorageImpl {
    */
   @Override
   public native String key(String storage, int index) /*-{
-    return $wnd.Storage.getObjectKeys($wnd.ieLocalStorageEl.index)[index];
+    var key = $wnd.Storage.getObjectKeys($wnd.ieLocalStorageEl.index)[index];
+    return key == null ? null : $wnd.Storage.unesc(key);
+  }-*/;
+
+  /**
+   * Returns the (unescaped) keys from our cached index, which is loaded only
+   * once.
+   */
+  @Override
+  public native JsArrayString getKeys(String storage) /*-{
+    this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::load()();
+    var keys = $wnd.Storage.getObjectKeys($wnd.ieLocalStorageEl.index);
+    for (var i = 0; i < keys.length; i++) {
+      keys[i] = $wnd.Storage.unesc(keys[i]);
+    }
+    return keys;
+  }-*/;
+
+  /**
+   * Returns the (unescaped) keys and values from our cached index, which is
+   * loaded only once.
+   */
+  @Override
+  public native JsArrayString getAll(String storage) /*-{
+    this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::load()();
+    var index = $wnd.ieLocalStorageEl.index;
+    var items = [];
+    for (var key in index) {
+      items.push($wnd.Storage.unesc(key), index[key]);
+    }
+    return items;
   }-*/;
 
   /**
@@ -161,6 +192,46 @@ public class StorageImplIE6 extends StorageImpl {
     this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::save()();
   }-*/;
 
+  /**
+   * Reads all items from the userData store, which is loaded only once.
+   */
+  @Override
+  public native JsArrayString getItems(String storage, JsArrayString keys) /*-{
+    this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::load()();
+    var values = [];
+    for (var i = 0, n = keys.length; i < n; i++) {
+      var cleanKey = $wnd.Storage.esc(keys[i]);
+      values.push($wnd.ieLocalStorageEl.getAttribute(cleanKey));
+    }
+    return values;
+  }-*/;
+
+  /**
+   * Writes all items to the userData store, which is saved only once.
+   */
+  @Override
+  public native void setItems(String storage, JsArrayString items) /*-{
+    for (var i = 0, n = items.length; i < n; i += 2) {
+      var cleanKey = $wnd.Storage.esc(items[i]);
+      $wnd.ieLocalStorageEl.setAttribute(cleanKey, items[i + 1]);
+      $wnd.ieLocalStorageEl.index[cleanKey] = items[i + 1];
+    }
+    this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::save()();
+  }-*/;
+
+  /**
+   * Removes all items from the userData store, which is saved only once.
+   */
+  @Override
+  public native void removeItems(String storage, JsArrayString keys) /*-{
+    for (var i = 0, n = keys.length; i < n; i++) {
+      var cleanKey = $wnd.Storage.esc(keys[i]);
+      $wnd.ieLocalStorageEl.removeAttribute(cleanKey);
+      delete $wnd.ieLocalStorageEl.index[cleanKey];
+    }
+    this.@com.google.code.gwt.storage.client.impl.StorageImplIE6::save()();
+  }-*/;
+
   /**
    * TODO: IE6 does not support storage events
    */
@@ -168,6 +239,14 @@ public class StorageImplIE6 extends StorageImpl {
   public void addStorageEventHandler(StorageEventHandler handler) {
   }
 
+  /**
+   * No handlers are registered, see
+   * {@link #addStorageEventHandler(StorageEventHandler)}
+   */
+  @Override
+  public void removeStorageEventHandler(StorageEventHandler handler) {
+  }
+
   /**
    * The load method reads information from the userData store.
    * http://msdn.microsoft.com/en-us/library/ms531395%28v=VS.85%29.aspx
@@ -388,5 +467,12 @@ public class StorageImplIE6 extends StorageImpl {
     $wnd.Storage.esc = function(str) {
       return str.replace(/_/g, '__').replace(/ /g, '_s').replace("'", "");
     };
+
+    // restore the characters replaced by esc() (except for the quote)
+    $wnd.Storage.unesc = function(str) {
+      return str.replace(/_(_|s)/g, function(match, ch) {
+        return ch == '_' ? '_' : ' ';
+      });
+    };
   }-*/;
 }
@@ -17,6 +17,7 @@
 package com.google.code.gwt.storage.client.impl;
 
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JsArrayString;
 
 /**
  * IE8-specific implementation of the Web Storage.
@@ -59,6 +60,36 @@ public class StorageImplIE8 extends StorageImpl {
     }
   }
 
+  /**
+   * Writes the items one by one if StorageEvent handlers are registered, as
+   * the StorageEvent data is prepared for each item.
+   */
+  @Override
+  public void setItems(String storage, JsArrayString items) {
+    if (hasStorageEventHandlers()) {
+      for (int i = 0; i < items.length(); i += 2) {
+        setItem(storage, items.get(i), items.get(i + 1));
+      }
+    } else {
+      super.setItems(storage, items);
+    }
+  }
+
+  /**
+   * Removes the items one by one if StorageEvent handlers are registered, as
+   * the StorageEvent data is prepared for each item.
+   */
+  @Override
+  public void removeItems(String storage, JsArrayString keys) {
+    if (hasStorageEventHandlers()) {
+      for (int i = 0; i < keys.length(); i++) {
+        removeItem(storage, keys.get(i));
+      }
+    } else {
+      super.removeItems(storage, keys);
+    }
+  }
+
   @Override
   public void clear(String storage) {
     super.clear(storage);
@@ -19,6 +19,7 @@ package com.google.code.gwt.storage.client.impl;
 import com.google.code.gwt.storage.client.StorageEvent;
 import com.google.code.gwt.storage.client.StorageEventHandler;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
 
 /**
  * Mozilla-specific implementation of a Storage.
@@ -46,6 +47,36 @@ public class StorageImplMozilla extends StorageImpl {
     @com.google.code.gwt.storage.client.impl.StorageImplMozilla::fireStorageEvent(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;) (key, oldValue, null, storage);
   }-*/;
 
+  /**
+   * Writes the items one by one if StorageEvent handlers are registered, as a
+   * StorageEvent is fired for each item.
+   */
+  @Override
+  public void setItems(String storage, JsArrayString items) {
+    if (hasStorageEventHandlers()) {
+      for (int i = 0; i < items.length(); i += 2) {
+        setItem(storage, items.get(i), items.get(i + 1));
+      }
+    } else {
+      super.setItems(storage, items);
+    }
+  }
+
+  /**
+   * Removes the items one by one if StorageEvent handlers are registered, as
+   * a StorageEvent is fired for each item.
+   */
+  @Override
+  public void removeItems(String storage, JsArrayString keys) {
+    if (hasStorageEventHandlers()) {
+      for (int i = 0; i < keys.length(); i++) {
+        removeItem(storage, keys.get(i));
+      }
+    } else {
+      super.removeItems(storage, keys);
+    }
+  }
+
   @Override
   public native void clear(String storage) /*-{
     $wnd[storage].clear();
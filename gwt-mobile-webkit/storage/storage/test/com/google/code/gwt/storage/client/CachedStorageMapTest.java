@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.Map;
+
+/**
+ * Tests the {@link CachedStorageMap} class.
+ * 
+ * @author bguijt
+ */
+public class CachedStorageMapTest extends StorageMapTest {
+
+  @Override
+  protected Map<String, String> createMap(Storage storage) {
+    return new CachedStorageMap(storage);
+  }
+
+  public void testReadsFromCache() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("name", "Bart");
+    CachedStorageMap map = new CachedStorageMap(s);
+    assertEquals("Bart", map.get("name"));
+
+    // StorageEvents (if any) are dispatched after this test method returns:
+    s.setItem("name", "Pepijn");
+    assertEquals("The value must be read from the copy", "Bart",
+        map.get("name"));
+    map.invalidate();
+    assertEquals("Pepijn", map.get("name"));
+  }
+
+  public void testAppliesStorageEvents() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("name", "Bart");
+    s.setItem("lastName", "Guijt");
+    CachedStorageMap map = new CachedStorageMap(s);
+    assertEquals(2, map.size());
+
+    fireStorageEvent("name", "Bart", "Pepijn");
+    assertEquals("Pepijn", map.get("name"));
+    fireStorageEvent("email", null, "bart@guijt.me");
+    assertEquals("bart@guijt.me", map.get("email"));
+    assertEquals(3, map.size());
+    fireStorageEvent("lastName", "Guijt", null);
+    assertFalse(map.containsKey("lastName"));
+    assertEquals(2, map.size());
+    fireStorageEvent("", null, null);
+    assertTrue(map.isEmpty());
+    map.invalidate();
+  }
+
+  /**
+   * Dispatches a synthetic StorageEvent of the local Storage to the
+   * registered StorageEventHandlers, as if raised by another window.
+   */
+  private static native void fireStorageEvent(String key, String oldValue,
+      String newValue) /*-{
+    // StorageEventImplIE8 reads the event data from StorageImplIE8:
+    @com.google.code.gwt.storage.client.impl.StorageImplIE8::eventKey = key;
+    @com.google.code.gwt.storage.client.impl.StorageImplIE8::eventOldValue = oldValue;
+    @com.google.code.gwt.storage.client.impl.StorageImplIE8::eventNewValue = newValue;
+    @com.google.code.gwt.storage.client.impl.StorageImplIE8::eventSource = "localStorage";
+    var event = {key: key, oldValue: oldValue, newValue: newValue,
+        storageArea: $wnd.localStorage};
+    @com.google.code.gwt.storage.client.impl.StorageImpl::handleStorageEvent(Lcom/google/code/gwt/storage/client/StorageEvent;)(event);
+  }-*/;
+
+  public void testWritesThrough() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    CachedStorageMap map = new CachedStorageMap(s);
+    assertNull(map.put("name", "Bart"));
+    assertEquals("Bart", s.getItem("name"));
+    assertEquals("Bart", map.put("name", "Pepijn"));
+    assertEquals("Pepijn", s.getItem("name"));
+    assertEquals(1, map.size());
+    assertEquals("Pepijn", map.remove("name"));
+    assertNull(s.getItem("name"));
+    assertEquals(0, map.size());
+    map.invalidate();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.Map;
+
+/**
+ * Tests the {@link CompressingCodec} class, both by itself and as the codec of
+ * a {@link StorageMap}.
+ * 
+ * @author bguijt
+ */
+public class CompressingCodecTest extends StorageMapTest {
+
+  @Override
+  protected Map<String, String> createMap(Storage storage) {
+    // Compresses all values, except the ones which do not get any smaller:
+    return new StorageMap(storage, new CompressingCodec(0));
+  }
+
+  public void testRoundTrip() {
+    CompressingCodec codec = new CompressingCodec(0);
+    String[] values = {"", "a", "aaaaaaaaaaaaaaaaaaaaaaaa",
+        "TOBEORNOTTOBEORTOBEORNOT", "\uE000marker", "\uE001escape",
+        "\u0000\uD83D\uDE00\uFFFF"};
+    for (String value : values) {
+      assertEquals(value, codec.decode(codec.encode(value)));
+    }
+  }
+
+  public void testCompresses() {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 100; i++) {
+      json.append("{\"id\":").append(i).append(",\"read\":false},");
+    }
+    String value = json.append("]").toString();
+
+    CompressingCodec codec = new CompressingCodec();
+    String encoded = codec.encode(value);
+    assertTrue("Value is not compressed: " + encoded.length(),
+        encoded.length() < value.length() / 2);
+    assertEquals(value, codec.decode(encoded));
+  }
+
+  public void testThreshold() {
+    CompressingCodec codec = new CompressingCodec(100);
+    String value = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    assertEquals(value, codec.encode(value));
+    assertEquals(value, codec.decode(value));
+  }
+
+  public void testReadsUncompressedValues() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("name", "Bart");
+    StorageMap map = new StorageMap(s, new CompressingCodec(0));
+    assertEquals("Bart", map.get("name"));
+  }
+}
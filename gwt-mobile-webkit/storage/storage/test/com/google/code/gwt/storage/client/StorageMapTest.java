@@ -57,7 +57,7 @@ public class StorageMapTest extends MapInterfaceTest<String, String> {
       throws UnsupportedOperationException {
     Storage s = createStorage();
     s.clear();
-    return new StorageMap(s);
+    return createMap(s);
   }
 
   @Override
@@ -70,7 +70,14 @@ public class StorageMapTest extends MapInterfaceTest<String, String> {
     s.setItem("three", "March");
     s.setItem("four", "April");
     s.setItem("five", "May");
-    return new StorageMap(s);
+    return createMap(s);
+  }
+
+  /**
+   * Returns the Map under test, backed by the specified Storage.
+   */
+  protected Map<String, String> createMap(Storage storage) {
+    return new StorageMap(storage);
   }
 
   private Storage createStorage() {
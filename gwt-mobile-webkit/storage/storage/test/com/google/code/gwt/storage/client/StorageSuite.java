@@ -33,6 +33,9 @@ public class StorageSuite {
     // $JUnit-BEGIN$
    suite.addTestSuite(StorageTest.class);
    suite.addTestSuite(StorageMapTest.class);
+   suite.addTestSuite(CachedStorageMapTest.class);
+   suite.addTestSuite(CompressingCodecTest.class);
+   suite.addTestSuite(TypedStorageMapTest.class);
     // $JUnit-END$
     
     return suite;
@@ -16,6 +16,11 @@
 
 package com.google.code.gwt.storage.client;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gwt.core.client.JsArrayString;
 import com.google.gwt.junit.client.GWTTestCase;
 
 /**
@@ -95,6 +100,76 @@ public class StorageTest extends GWTTestCase {
     sessionStorage.setItem("name", "Pepijn");
   }
 
+  public void testGetAll() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("name", "Bart");
+    s.setItem("lastName", "Guijt");
+
+    JsArrayString keys = s.getKeys();
+    assertEquals(2, keys.length());
+    JsArrayString all = s.getAll();
+    assertEquals(4, all.length());
+    for (int i = 0; i < all.length(); i += 2) {
+      assertEquals(keys.get(i / 2), all.get(i));
+      assertEquals(s.getItem(all.get(i)), all.get(i + 1));
+    }
+  }
+
+  /**
+   * The IE6/7 implementation escapes '_' and ' ' in its attribute names; the
+   * keys must be unescaped again.
+   */
+  public void testGetAllEscapedKeys() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("first_name", "Bart");
+    s.setItem("last name", "Guijt");
+
+    JsArrayString keys = s.getKeys();
+    assertEquals(2, keys.length());
+    JsArrayString all = s.getAll();
+    Map<String, String> items = new HashMap<String, String>();
+    for (int i = 0; i < all.length(); i += 2) {
+      items.put(all.get(i), all.get(i + 1));
+    }
+    assertEquals("Bart", items.get("first_name"));
+    assertEquals("Guijt", items.get("last name"));
+    assertTrue(items.containsKey(keys.get(0)));
+    assertTrue(items.containsKey(keys.get(1)));
+    assertTrue(items.containsKey(s.key(0)));
+
+    StorageMap map = new StorageMap(s);
+    assertTrue(map.containsKey("first_name"));
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      entry.setValue(entry.getValue() + "!");
+    }
+    assertEquals("Bart!", s.getItem("first_name"));
+    assertEquals("Guijt!", s.getItem("last name"));
+    assertEquals(2, s.getLength());
+  }
+
+  public void testItems() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    Map<String, String> items = new HashMap<String, String>();
+    items.put("name", "Bart");
+    items.put("lastName", "Guijt");
+    items.put("country", "The Netherlands");
+    s.setItems(items);
+    assertEquals(3, s.getLength());
+
+    String[] values = s.getItems("lastName", "email", "name");
+    assertEquals(3, values.length);
+    assertEquals("Guijt", values[0]);
+    assertNull(values[1]);
+    assertEquals("Bart", values[2]);
+
+    s.removeItems(Arrays.asList("name", "lastName"));
+    assertEquals(1, s.getLength());
+    assertEquals("The Netherlands", s.getItem("country"));
+  }
+
   public void doStorage(Storage s) {
     assertNotNull("No support for Web Storage!", s);
 
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.storage.client;
+
+import java.util.Map;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Tests the {@link TypedStorageMap} class.
+ * 
+ * @author bguijt
+ */
+public class TypedStorageMapTest extends StorageMapTest {
+
+  /**
+   * A JSON overlay type to store.
+   */
+  static final class Person extends JavaScriptObject {
+    protected Person() {
+    }
+
+    static native Person create(String name) /*-{
+      return {name: name};
+    }-*/;
+
+    native String getName() /*-{
+      return this.name;
+    }-*/;
+  }
+
+  @Override
+  protected Map<String, String> createMap(Storage storage) {
+    return new TypedStorageMap<String, String>(new StorageMap(storage),
+        StringCodec.INSTANCE, StringCodec.INSTANCE, true);
+  }
+
+  public void testJsonCodec() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    Map<String, Person> map = new TypedStorageMap<String, Person>(
+        new StorageMap(s), StringCodec.INSTANCE, new JsonCodec<Person>());
+    map.put("bart", Person.create("Bart"));
+    assertEquals("{\"name\":\"Bart\"}", s.getItem("bart"));
+    assertEquals("Bart", map.get("bart").getName());
+    assertEquals(1, map.size());
+  }
+
+  public void testDecodedValueCache() {
+    Storage s = Storage.getLocalStorage();
+    s.clear();
+    s.setItem("bart", "{\"name\":\"Bart\"}");
+    Map<String, Person> map = new TypedStorageMap<String, Person>(
+        new StorageMap(s), StringCodec.INSTANCE, new JsonCodec<Person>(), true);
+    Person person = map.get("bart");
+    assertSame(person, map.get("bart"));
+
+    // A changed String in the Storage is decoded again:
+    s.setItem("bart", "{\"name\":\"Pepijn\"}");
+    assertEquals("Pepijn", map.get("bart").getName());
+  }
+}